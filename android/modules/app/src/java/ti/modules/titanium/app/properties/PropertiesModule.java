@@ -6,6 +6,7 @@
  */
 package ti.modules.titanium.app.properties;
 
+import org.appcelerator.kroll.KrollDict;
 import org.appcelerator.kroll.KrollModule;
 import org.appcelerator.kroll.annotations.Kroll;
 import org.appcelerator.titanium.TiApplication;
@@ -80,7 +81,7 @@ public class PropertiesModule extends KrollModule {
 	//Convenience method for pulling raw values
 	public Object getPreferenceValue(String key)
 	{
-		return appProperties.getPreference().getAll().get(key);
+		return appProperties.getPreferenceValue(key);
 	}
 	
 	@Kroll.method
@@ -129,4 +130,15 @@ public class PropertiesModule extends KrollModule {
 		}
 	}
 
+	@Kroll.method
+	public void setProperties(KrollDict properties)
+	{
+		if (properties == null || properties.isEmpty()) {
+			return;
+		}
+		if (appProperties.setProperties(properties)) {
+			fireEvent(TiC.EVENT_CHANGE, null);
+		}
+	}
+
 }
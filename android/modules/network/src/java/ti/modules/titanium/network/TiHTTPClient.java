@@ -938,13 +938,13 @@ public class TiHTTPClient
 					blob = ((TiResourceFile) value).read();
 				}
 				String mimeType = blob.getMimeType();
-				File tmpFile = File.createTempFile("tixhr", "." + TiMimeTypeHelper.getFileExtensionFromMimeType(mimeType, "txt"));
-				FileOutputStream fos = new FileOutputStream(tmpFile);
-				fos.write(blob.getBytes());
-				fos.close();
-
-				tmpFiles.add(tmpFile);
-
+				File nativeFile = blob.getNativeFile();
+				if (nativeFile != null) {
+					// File blobs on disk can be uploaded in place without a temporary copy.
+					parts.put(name, new FileBody(nativeFile, mimeType));
+					return blob.getLength();
+				}
+				File tmpFile = createTempFile(blob);
 				FileBody body = new FileBody(tmpFile, mimeType);
 				parts.put(name, body);
 				return blob.getLength();
@@ -964,6 +964,20 @@ public class TiHTTPClient
 		return 0;
 	}
 	
+	// Streams the blob to a temporary file that is removed once the request completes.
+	private File createTempFile(TiBlob blob) throws IOException
+	{
+		File tmpFile = File.createTempFile("tixhr", "." + TiMimeTypeHelper.getFileExtensionFromMimeType(blob.getMimeType(), "txt"));
+		tmpFiles.add(tmpFile);
+		FileOutputStream fos = new FileOutputStream(tmpFile);
+		try {
+			blob.writeTo(fos);
+		} finally {
+			fos.close();
+		}
+		return tmpFile;
+	}
+
 	private Object titaniumFileAsPutData(Object value)
 	{
 		if (value instanceof TiBaseFile && !(value instanceof TiResourceFile)) {
@@ -978,13 +992,11 @@ public class TiHTTPClient
 					blob = ((TiResourceFile) value).read();
 				}
 				String mimeType = blob.getMimeType();
-				File tmpFile = File.createTempFile("tixhr", "." + TiMimeTypeHelper.getFileExtensionFromMimeType(mimeType, "txt"));
-				FileOutputStream fos = new FileOutputStream(tmpFile);
-				fos.write(blob.getBytes());
-				fos.close();
-		
-				tmpFiles.add(tmpFile);
-				return new FileEntity(tmpFile, mimeType);
+				File nativeFile = blob.getNativeFile();
+				if (nativeFile != null) {
+					return new FileEntity(nativeFile, mimeType);
+				}
+				return new FileEntity(createTempFile(blob), mimeType);
 			} catch (IOException e) {
 				Log.e(TAG, "Error adding put data: " + e.getMessage());
 			}
@@ -0,0 +1,257 @@
+/**
+ * Appcelerator Titanium Mobile
+ * Copyright (c) 2012 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Apache Public License
+ * Please see the LICENSE included with this distribution for details.
+ */
+package ti.modules.titanium.network.socket;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.appcelerator.kroll.common.Log;
+
+/**
+ * Drives all non-blocking socket channels from a single thread. Channels are registered with a
+ * {@link Listener} that is told when the channel is ready for the operations it is interested in.
+ * Every change to registrations is posted to the selector thread, so callers never block on it.
+ */
+public class SocketSelector implements Runnable
+{
+	private static final String TAG = "SocketSelector";
+
+	private static SocketSelector instance;
+	private static ExecutorService blockingExecutor;
+
+	/**
+	 * Receives readiness notifications. Always called on the selector thread, so implementations
+	 * must not block.
+	 */
+	public interface Listener
+	{
+		void onReady(SelectionKey key);
+	}
+
+	private static class DelayedTask implements Comparable<DelayedTask>
+	{
+		final long when;
+		final Runnable task;
+
+		DelayedTask(long when, Runnable task)
+		{
+			this.when = when;
+			this.task = task;
+		}
+
+		public int compareTo(DelayedTask another)
+		{
+			return when < another.when ? -1 : (when == another.when ? 0 : 1);
+		}
+	}
+
+	private final Selector selector;
+	private final ArrayList<Runnable> pendingTasks = new ArrayList<Runnable>();
+	private final PriorityQueue<DelayedTask> delayedTasks = new PriorityQueue<DelayedTask>();
+	private Thread thread;
+
+	private SocketSelector() throws IOException
+	{
+		selector = Selector.open();
+	}
+
+	/**
+	 * @return the shared selector, starting its thread on first use.
+	 * @throws IOException if the selector could not be opened.
+	 */
+	public static synchronized SocketSelector getInstance() throws IOException
+	{
+		if (instance == null) {
+			instance = new SocketSelector();
+			instance.thread = new Thread(instance, "TiSocketSelector");
+			instance.thread.setDaemon(true);
+			instance.thread.start();
+		}
+		return instance;
+	}
+
+	/**
+	 * Runs work that may block (such as host name resolution) away from both the selector and runtime threads.
+	 * @param task the work to run.
+	 */
+	public static synchronized void executeBlocking(Runnable task)
+	{
+		if (blockingExecutor == null) {
+			blockingExecutor = Executors.newCachedThreadPool();
+		}
+		blockingExecutor.execute(task);
+	}
+
+	/**
+	 * @return whether the calling thread is the selector thread.
+	 */
+	public boolean isSelectorThread()
+	{
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Runs a task on the selector thread.
+	 * @param task the task to run.
+	 */
+	public void post(Runnable task)
+	{
+		synchronized (pendingTasks) {
+			pendingTasks.add(task);
+		}
+		selector.wakeup();
+	}
+
+	/**
+	 * Runs a task on the selector thread after a delay.
+	 * @param task the task to run.
+	 * @param delay the delay in milliseconds.
+	 */
+	public void postDelayed(Runnable task, long delay)
+	{
+		synchronized (pendingTasks) {
+			delayedTasks.add(new DelayedTask(System.currentTimeMillis() + delay, task));
+		}
+		selector.wakeup();
+	}
+
+	/**
+	 * Registers a non-blocking channel with this selector.
+	 * @param channel the channel to register.
+	 * @param ops the initial interest set.
+	 * @param listener notified when the channel is ready.
+	 */
+	public void register(final SelectableChannel channel, final int ops, final Listener listener)
+	{
+		post(new Runnable() {
+			public void run()
+			{
+				try {
+					channel.register(selector, ops, listener);
+				} catch (ClosedChannelException e) {
+					Log.w(TAG, "Unable to register closed channel", Log.DEBUG_MODE);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Adds operations to the interest set of a registered channel.
+	 * @param channel the registered channel.
+	 * @param ops the operations to add.
+	 */
+	public void addInterest(final SelectableChannel channel, final int ops)
+	{
+		if (isSelectorThread()) {
+			updateInterest(channel, ops, true);
+			return;
+		}
+		post(new Runnable() {
+			public void run()
+			{
+				updateInterest(channel, ops, true);
+			}
+		});
+	}
+
+	/**
+	 * Removes operations from the interest set of a registered channel.
+	 * @param channel the registered channel.
+	 * @param ops the operations to remove.
+	 */
+	public void removeInterest(final SelectableChannel channel, final int ops)
+	{
+		if (isSelectorThread()) {
+			updateInterest(channel, ops, false);
+			return;
+		}
+		post(new Runnable() {
+			public void run()
+			{
+				updateInterest(channel, ops, false);
+			}
+		});
+	}
+
+	private void updateInterest(SelectableChannel channel, int ops, boolean add)
+	{
+		SelectionKey key = channel.keyFor(selector);
+		if (key == null || !key.isValid()) {
+			return;
+		}
+		try {
+			key.interestOps(add ? key.interestOps() | ops : key.interestOps() & ~ops);
+		} catch (CancelledKeyException e) {
+			// Channel was closed in the meantime
+		}
+	}
+
+	private long runTasks()
+	{
+		ArrayList<Runnable> tasks;
+		long timeout = 0;
+		synchronized (pendingTasks) {
+			tasks = new ArrayList<Runnable>(pendingTasks);
+			pendingTasks.clear();
+
+			long now = System.currentTimeMillis();
+			while (!delayedTasks.isEmpty() && delayedTasks.peek().when <= now) {
+				tasks.add(delayedTasks.poll().task);
+			}
+			if (!delayedTasks.isEmpty()) {
+				timeout = Math.max(1, delayedTasks.peek().when - now);
+			}
+		}
+
+		for (Runnable task : tasks) {
+			try {
+				task.run();
+			} catch (Throwable t) {
+				Log.e(TAG, "Error running socket task: " + t.getMessage(), t);
+			}
+		}
+		return timeout;
+	}
+
+	public void run()
+	{
+		while (true) {
+			long timeout = runTasks();
+			try {
+				// 0 blocks until woken up by post() or a channel becoming ready
+				selector.select(timeout);
+			} catch (IOException e) {
+				Log.e(TAG, "Socket selector failed: " + e.getMessage(), e);
+				continue;
+			}
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				try {
+					if (key.isValid()) {
+						((Listener) key.attachment()).onReady(key);
+					}
+				} catch (CancelledKeyException e) {
+					// Channel was closed by its listener
+				} catch (Throwable t) {
+					Log.e(TAG, "Error handling socket event: " + t.getMessage(), t);
+				}
+			}
+		}
+	}
+}
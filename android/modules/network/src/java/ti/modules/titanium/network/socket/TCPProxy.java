@@ -7,11 +7,15 @@
 package ti.modules.titanium.network.socket;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedList;
 
 import org.appcelerator.kroll.KrollDict;
 import org.appcelerator.kroll.KrollFunction;
@@ -19,24 +23,53 @@ import org.appcelerator.kroll.KrollProxy;
 import org.appcelerator.kroll.annotations.Kroll;
 import org.appcelerator.kroll.common.Log;
 import org.appcelerator.titanium.TiContext;
-import org.appcelerator.titanium.io.TiStream;
+import org.appcelerator.titanium.io.TiChannelStream;
 import org.appcelerator.titanium.util.TiConvert;
-import org.appcelerator.titanium.util.TiStreamHelper;
 
 import ti.modules.titanium.BufferProxy;
 
 @Kroll.proxy(creatableInModule=SocketModule.class)
-public class TCPProxy extends KrollProxy implements TiStream
+public class TCPProxy extends KrollProxy implements TiChannelStream
 {
 	private static final String TAG = "TCPProxy";
 
+	private static final int RECEIVE_BUFFER_SIZE = 8192;
+	// Writes up to this size are copied into a shared chunk so they go out in one system call
+	private static final int SMALL_WRITE_SIZE = 1024;
+	private static final int COALESCE_CHUNK_SIZE = 8192;
+	private static final int MAX_GATHERED_CHUNKS = 16;
+	private static final int DEFAULT_HIGH_WATERMARK = 65536;
+	private static final int DEFAULT_LOW_WATERMARK = 16384;
+
 	//private boolean initialized = false;
-	private Socket clientSocket = null;
-	private ServerSocket serverSocket = null;
+	private SocketChannel clientChannel = null;
+	private ServerSocketChannel serverChannel = null;
 	private boolean accepting = false;
 	private KrollDict acceptOptions = null;
 	private int state = 0;
-	private InputStream inputStream = null;
+
+	// Synchronous read/write wait on these until the selector reports the channel is ready.
+	private final Object readLock = new Object();
+	private final Object writeLock = new Object();
+	private boolean readReady = false;
+	private boolean writeReady = false;
+
+	// Outgoing data, written by the selector thread. All write state is guarded by writeQueue.
+	private final LinkedList<ByteBuffer> writeQueue = new LinkedList<ByteBuffer>();
+	// Tail chunk of writeQueue that small writes are still copied into, if any
+	private ByteBuffer coalesceChunk = null;
+	private long queuedBytes = 0;
+	private long totalBytesWritten = 0;
+	private long gatheringWrites = 0;
+	private long queuedWrites = 0;
+	private boolean aboveHighWatermark = false;
+
+	private final SocketSelector.Listener selectorListener = new SocketSelector.Listener() {
+		public void onReady(SelectionKey key)
+		{
+			handleReady(key);
+		}
+	};
 
 
 	public TCPProxy()
@@ -57,7 +90,13 @@ public class TCPProxy extends KrollProxy implements TiStream
 			Object host = getProperty("host");
 			Object port = getProperty("port");
 			if((host != null) && (port != null) && (TiConvert.toInt(port) > 0)) {
-				new ConnectedSocketThread().start();
+				// Host name resolution blocks, so it happens off the runtime and selector threads.
+				SocketSelector.executeBlocking(new Runnable() {
+					public void run()
+					{
+						startConnect();
+					}
+				});
 
 			} else {
 				throw new IllegalArgumentException("Unable to call connect, socket must have a valid host and port");
@@ -76,17 +115,18 @@ public class TCPProxy extends KrollProxy implements TiStream
 			Object listenQueueSize = getProperty("listenQueueSize");
 
 			try {
-				if ((port != null) && (listenQueueSize != null)) {
-					serverSocket = new ServerSocket(TiConvert.toInt(port), TiConvert.toInt(listenQueueSize));
-
-				} else if (port != null) {
-					serverSocket = new ServerSocket(TiConvert.toInt(port));
+				serverChannel = ServerSocketChannel.open();
+				serverChannel.configureBlocking(false);
+				InetSocketAddress address = new InetSocketAddress(port != null ? TiConvert.toInt(port) : 0);
+				if (listenQueueSize != null) {
+					serverChannel.socket().bind(address, TiConvert.toInt(listenQueueSize));
 
 				} else {
-					serverSocket = new ServerSocket();
+					serverChannel.socket().bind(address);
 				}
 
-				new ListeningSocketThread().start();
+				// Connections are only taken once accept() adds OP_ACCEPT to the interest set.
+				SocketSelector.getInstance().register(serverChannel, 0, selectorListener);
 				state = SocketModule.LISTENING;
 
 			} catch (IOException e) {
@@ -109,17 +149,35 @@ public class TCPProxy extends KrollProxy implements TiStream
 
 		this.acceptOptions = acceptOptions;
 		accepting = true;
+		SocketSelector.getInstance().addInterest(serverChannel, SelectionKey.OP_ACCEPT);
 	}
 
 	private void closeSocket() throws IOException {
-		if (clientSocket != null) {
-			clientSocket.close();
-			clientSocket = null;
-		}
+		try {
+			if (clientChannel != null) {
+				clientChannel.close();
+				clientChannel = null;
+			}
+
+			if (serverChannel != null) {
+				serverChannel.close();
+				serverChannel = null;
+			}
 
-		if (serverSocket != null) {
-			serverSocket.close();
-			serverSocket = null;
+		} finally {
+			// Wake up any synchronous read or write waiting on the closed channel
+			synchronized (readLock) {
+				readLock.notifyAll();
+			}
+			synchronized (writeLock) {
+				writeLock.notifyAll();
+			}
+			synchronized (writeQueue) {
+				writeQueue.clear();
+				coalesceChunk = null;
+				queuedBytes = 0;
+				writeQueue.notifyAll();
+			}
 		}
 	}
 
@@ -172,6 +230,31 @@ public class TCPProxy extends KrollProxy implements TiStream
 		setSocketProperty("accepted", accepted);
 	}
 
+	@Kroll.setProperty @Kroll.method
+	public void setReceived(KrollFunction received)
+	{
+		setSocketProperty("received", received);
+	}
+
+	// Write flow control settings can be changed at any time
+	@Kroll.setProperty @Kroll.method
+	public void setDrain(KrollFunction drain)
+	{
+		setProperty("drain", drain);
+	}
+
+	@Kroll.setProperty @Kroll.method
+	public void setWriteHighWatermark(int writeHighWatermark)
+	{
+		setProperty("writeHighWatermark", writeHighWatermark);
+	}
+
+	@Kroll.setProperty @Kroll.method
+	public void setWriteLowWatermark(int writeLowWatermark)
+	{
+		setProperty("writeLowWatermark", writeLowWatermark);
+	}
+
 	private void setSocketProperty(String propertyName, Object propertyValue)
 	{
 		if ((state != SocketModule.LISTENING) && (state != SocketModule.CONNECTED)) {
@@ -188,97 +271,372 @@ public class TCPProxy extends KrollProxy implements TiStream
 		return state;
 	}
 
-	private class ConnectedSocketThread extends Thread
+	private void startConnect()
 	{
-		public ConnectedSocketThread()
-		{
-			super("ConnectedSocketThread");
+		String host = TiConvert.toString(getProperty("host"));
+		Object timeoutProperty = getProperty("timeout");
+
+		try {
+			InetSocketAddress address = new InetSocketAddress(host, TiConvert.toInt(getProperty("port")));
+			if (address.isUnresolved()) {
+				updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to connect, unknown host <" + host + ">", 0));
+				return;
+			}
+
+			clientChannel = SocketChannel.open();
+			clientChannel.configureBlocking(false);
+			SocketSelector selector = SocketSelector.getInstance();
+			if (clientChannel.connect(address)) {
+				selector.register(clientChannel, 0, selectorListener);
+				onConnected();
+				return;
+			}
+			selector.register(clientChannel, SelectionKey.OP_CONNECT, selectorListener);
+
+			int timeout = timeoutProperty != null ? TiConvert.toInt(timeoutProperty, 0) : 0;
+			if (timeout > 0) {
+				final SocketChannel connectingChannel = clientChannel;
+				selector.postDelayed(new Runnable() {
+					public void run()
+					{
+						if (connectingChannel == clientChannel && connectingChannel.isConnectionPending()) {
+							connectFailed("Unable to connect, IO error");
+						}
+					}
+				}, timeout);
+			}
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			connectFailed("Unable to connect, IO error");
 		}
+	}
 
-		public void run()
-		{
-			String host = TiConvert.toString(getProperty("host"));
-			Object timeoutProperty = getProperty("timeout");
+	private void connectFailed(String message)
+	{
+		try {
+			closeSocket();
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to close socket after failed connect", Log.DEBUG_MODE);
+		}
+		updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs(message, 0));
+	}
 
+	private void onConnected() throws IOException
+	{
+		state = SocketModule.CONNECTED;
+		if (getProperty("received") instanceof KrollFunction) {
+			SocketSelector.getInstance().addInterest(clientChannel, SelectionKey.OP_READ);
+		}
+		Object callback = getProperty("connected");
+		if (callback instanceof KrollFunction) {
+			((KrollFunction) callback).callAsync(getKrollObject(), buildConnectedCallbackArgs());
+		}
+	}
+
+	// Called on the selector thread.
+	private void handleReady(SelectionKey key)
+	{
+		SocketSelector selector;
+		try {
+			selector = SocketSelector.getInstance();
+		} catch (IOException e) {
+			return;
+		}
+
+		if (key.isConnectable()) {
+			selector.removeInterest(key.channel(), SelectionKey.OP_CONNECT);
 			try {
-				if (timeoutProperty != null) {
-					int timeout = TiConvert.toInt(timeoutProperty, 0);
+				if (clientChannel.finishConnect()) {
+					onConnected();
+				}
+			} catch (IOException e) {
+				connectFailed("Unable to connect, IO error");
+			}
+			return;
+		}
 
-					clientSocket = new Socket();
-					clientSocket.connect(new InetSocketAddress(host, TiConvert.toInt(getProperty("port"))), timeout);
+		if (key.isAcceptable()) {
+			acceptConnection(selector);
+			return;
+		}
 
-				} else {
-					clientSocket = new Socket(host, TiConvert.toInt(getProperty("port")));
+		if (key.isReadable()) {
+			if (getProperty("received") instanceof KrollFunction) {
+				receive(selector);
+			} else {
+				selector.removeInterest(key.channel(), SelectionKey.OP_READ);
+				synchronized (readLock) {
+					readReady = true;
+					readLock.notifyAll();
 				}
-				updateState(SocketModule.CONNECTED, "connected", buildConnectedCallbackArgs());
+			}
+		}
 
-			} catch (UnknownHostException e) {
-				e.printStackTrace();
-				updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to connect, unknown host <" + host + ">", 0));
+		if (key.isValid() && key.isWritable()) {
+			if (!flushWriteQueue()) {
+				selector.removeInterest(key.channel(), SelectionKey.OP_WRITE);
+			}
+			synchronized (writeLock) {
+				writeReady = true;
+				writeLock.notifyAll();
+			}
+		}
+	}
 
-			} catch (IOException e) {
+	private void acceptConnection(SocketSelector selector)
+	{
+		if (!accepting) {
+			selector.removeInterest(serverChannel, SelectionKey.OP_ACCEPT);
+			return;
+		}
+
+		try {
+			SocketChannel acceptedChannel = serverChannel.accept();
+			if (acceptedChannel == null) {
+				return;
+			}
+			acceptedChannel.configureBlocking(false);
+
+			TCPProxy acceptedTcpProxy = new TCPProxy();
+			acceptedTcpProxy.clientChannel = acceptedChannel;
+			acceptedTcpProxy.setProperty("host", acceptedChannel.socket().getInetAddress().getHostAddress());
+			acceptedTcpProxy.setProperty("port", acceptedChannel.socket().getPort());
+
+			Object optionValue;
+			if((optionValue = acceptOptions.get("timeout")) != null) {
+				acceptedTcpProxy.setProperty("timeout", TiConvert.toInt(optionValue, 0));
+			}
+			if((optionValue = acceptOptions.get("error")) != null) {
+				if(optionValue instanceof KrollFunction) {
+					acceptedTcpProxy.setProperty("error", (KrollFunction) optionValue);
+				}
+			}
+			if((optionValue = acceptOptions.get("received")) != null) {
+				if(optionValue instanceof KrollFunction) {
+					acceptedTcpProxy.setProperty("received", (KrollFunction) optionValue);
+				}
+			}
+
+			acceptedTcpProxy.state = SocketModule.CONNECTED;
+			selector.register(acceptedChannel,
+				optionValue instanceof KrollFunction ? SelectionKey.OP_READ : 0, acceptedTcpProxy.selectorListener);
+
+			accepting = false;
+			selector.removeInterest(serverChannel, SelectionKey.OP_ACCEPT);
+
+			Object callback = getProperty("accepted");
+			if (callback instanceof KrollFunction) {
+				((KrollFunction) callback).callAsync(getKrollObject(), buildAcceptedCallbackArgs(acceptedTcpProxy));
+			}
+
+		} catch (IOException e) {
+			if (state == SocketModule.LISTENING) {
 				e.printStackTrace();
-				updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to connect, IO error", 0));
+				updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to accept new connection, IO error", 0));
 			}
 		}
 	}
 
-	private class ListeningSocketThread extends Thread
+	/**
+	 * Reads whatever is available and hands it to the received callback. A bytesProcessed of -1
+	 * tells the callback the peer closed its end.
+	 */
+	private void receive(SocketSelector selector)
 	{
-		public ListeningSocketThread()
-		{
-			super("ListeningSocketThread");
+		BufferProxy buffer = new BufferProxy(RECEIVE_BUFFER_SIZE);
+		int bytesRead;
+		try {
+			bytesRead = clientChannel.read(buffer.getByteBuffer());
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to read from socket, IO error", 0));
+			return;
 		}
 
-		public void run()
-		{
-			while(true) {
-				if(accepting) {
-					try {
-						Socket acceptedSocket = serverSocket.accept();
-
-						TCPProxy acceptedTcpProxy = new TCPProxy();
-						acceptedTcpProxy.clientSocket = acceptedSocket;
-						acceptedTcpProxy.setProperty("host", acceptedTcpProxy.clientSocket.getInetAddress().getHostAddress());
-						acceptedTcpProxy.setProperty("port", acceptedTcpProxy.clientSocket.getPort());
-
-						Object optionValue;
-						if((optionValue = acceptOptions.get("timeout")) != null) {
-							acceptedTcpProxy.setProperty("timeout", TiConvert.toInt(optionValue, 0));
-						}
-						if((optionValue = acceptOptions.get("error")) != null) {
-							if(optionValue instanceof KrollFunction) {
-								acceptedTcpProxy.setProperty("error", (KrollFunction) optionValue);
-							}
-						}
+		if (bytesRead == 0) {
+			return;
+		}
+		if (bytesRead == -1) {
+			selector.removeInterest(clientChannel, SelectionKey.OP_READ);
+			buffer.resize(0);
+		} else if (bytesRead < RECEIVE_BUFFER_SIZE) {
+			buffer.resize(bytesRead);
+		}
 
-						acceptedTcpProxy.state = SocketModule.CONNECTED;
+		Object callback = getProperty("received");
+		if (callback instanceof KrollFunction) {
+			((KrollFunction) callback).callAsync(getKrollObject(), buildReceivedCallbackArgs(buffer, bytesRead));
+		}
+	}
 
-						Object callback = getProperty("accepted");
-						if (callback instanceof KrollFunction) {
-							((KrollFunction) callback).callAsync(getKrollObject(), buildAcceptedCallbackArgs(acceptedTcpProxy));
-						}
+	/**
+	 * Adds data to the write queue and asks the selector to write it.
+	 * @param data the data to write, from its position to its limit.
+	 * @param copy whether to copy data, callers that don't wait for the write to finish must copy.
+	 * @return the queued chunk holding data.
+	 */
+	private ByteBuffer enqueueWrite(ByteBuffer data, boolean copy) throws IOException
+	{
+		SocketChannel channel = clientChannel;
+		if (channel == null) {
+			throw new IOException("Socket closed");
+		}
 
-						accepting = false;
+		ByteBuffer chunk;
+		int length = data.remaining();
+		synchronized (writeQueue) {
+			if (copy && length <= SMALL_WRITE_SIZE) {
+				if (coalesceChunk == null || coalesceChunk.capacity() - coalesceChunk.limit() < length) {
+					coalesceChunk = ByteBuffer.allocate(COALESCE_CHUNK_SIZE);
+					coalesceChunk.limit(0);
+					writeQueue.add(coalesceChunk);
+				}
+				// Append past the limit, the selector may be draining the chunk from its position
+				ByteBuffer tail = coalesceChunk.duplicate();
+				tail.limit(coalesceChunk.capacity());
+				tail.position(coalesceChunk.limit());
+				tail.put(data);
+				coalesceChunk.limit(tail.position());
+				chunk = coalesceChunk;
 
-					} catch (IOException e) {
-						if (state == SocketModule.LISTENING) {
-							e.printStackTrace();
-							updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to accept new connection, IO error", 0));
-						}
+			} else {
+				if (copy) {
+					chunk = ByteBuffer.allocate(length);
+					chunk.put(data);
+					chunk.flip();
+				} else {
+					chunk = data;
+				}
+				writeQueue.add(chunk);
+				coalesceChunk = null;
+			}
 
+			queuedBytes += length;
+			queuedWrites++;
+			if (queuedBytes >= getWatermark("writeHighWatermark", DEFAULT_HIGH_WATERMARK)) {
+				aboveHighWatermark = true;
+			}
+		}
+
+		SocketSelector.getInstance().addInterest(channel, SelectionKey.OP_WRITE);
+		return chunk;
+	}
+
+	/**
+	 * Writes as much of the queue as the socket accepts, several chunks per system call.
+	 * Called on the selector thread.
+	 * @return whether data is left in the queue.
+	 */
+	private boolean flushWriteQueue()
+	{
+		SocketChannel channel = clientChannel;
+		boolean fireDrain = false;
+		long remaining;
+
+		synchronized (writeQueue) {
+			if (channel == null || writeQueue.isEmpty()) {
+				return false;
+			}
+
+			try {
+				while (!writeQueue.isEmpty()) {
+					int count = Math.min(writeQueue.size(), MAX_GATHERED_CHUNKS);
+					ByteBuffer[] chunks = writeQueue.subList(0, count).toArray(new ByteBuffer[count]);
+					long written = channel.write(chunks);
+					gatheringWrites++;
+					totalBytesWritten += written;
+					queuedBytes -= written;
+
+					while (!writeQueue.isEmpty() && !writeQueue.getFirst().hasRemaining()) {
+						if (writeQueue.removeFirst() == coalesceChunk) {
+							coalesceChunk = null;
+						}
+					}
+					if (written == 0) {
+						// Socket send buffer is full, wait for the next writable event
 						break;
 					}
+				}
 
-				} else {
-					try {
-						sleep(500);
+			} catch (IOException e) {
+				e.printStackTrace();
+				writeQueue.notifyAll();
+				try {
+					closeSocket();
+				} catch (IOException closeException) {
+					Log.w(TAG, "Unable to close socket after failed write", Log.DEBUG_MODE);
+				}
+				updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to write to socket, IO error", 0));
+				return false;
+			}
+
+			writeQueue.notifyAll();
+			remaining = queuedBytes;
+			if (aboveHighWatermark && remaining <= getWatermark("writeLowWatermark", DEFAULT_LOW_WATERMARK)) {
+				aboveHighWatermark = false;
+				fireDrain = true;
+			}
+		}
+
+		if (fireDrain) {
+			Object callback = getProperty("drain");
+			if (callback instanceof KrollFunction) {
+				((KrollFunction) callback).callAsync(getKrollObject(), buildDrainCallbackArgs(remaining));
+			}
+		}
+		return remaining > 0;
+	}
+
+	private int getWatermark(String name, int defaultValue)
+	{
+		Object value = getProperty(name);
+		return value != null ? TiConvert.toInt(value, defaultValue) : defaultValue;
+	}
+
+	/**
+	 * Blocks the calling thread until chunk has been written, or the socket closes.
+	 */
+	private void awaitWritten(ByteBuffer chunk) throws IOException
+	{
+		synchronized (writeQueue) {
+			try {
+				while (chunk.hasRemaining()) {
+					if (!isConnected()) {
+						throw new IOException("Socket closed");
+					}
+					writeQueue.wait();
+				}
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while waiting for socket");
+			}
+		}
+	}
 
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-						Log.e(TAG, "Listening thread interrupted");
+	/**
+	 * Blocks the calling thread until the selector reports the channel ready for op, or the socket closes.
+	 */
+	private void awaitReady(int op) throws IOException
+	{
+		boolean read = op == SelectionKey.OP_READ;
+		Object lock = read ? readLock : writeLock;
+		synchronized (lock) {
+			if (read) {
+				readReady = false;
+			} else {
+				writeReady = false;
+			}
+			SocketSelector.getInstance().addInterest(clientChannel, op);
+			try {
+				while (!(read ? readReady : writeReady)) {
+					if (!isConnected()) {
+						throw new IOException("Socket closed");
 					}
+					lock.wait();
 				}
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while waiting for socket");
 			}
 		}
 	}
@@ -301,6 +659,25 @@ public class TCPProxy extends KrollProxy implements TiStream
 		return callbackArgs;
 	}
 
+	private KrollDict buildDrainCallbackArgs(long queuedBytes)
+	{
+		KrollDict callbackArgs = new KrollDict();
+		callbackArgs.put("socket", this);
+		callbackArgs.put("queuedBytes", queuedBytes);
+
+		return callbackArgs;
+	}
+
+	private KrollDict buildReceivedCallbackArgs(BufferProxy buffer, int bytesProcessed)
+	{
+		KrollDict callbackArgs = new KrollDict();
+		callbackArgs.put("socket", this);
+		callbackArgs.put("buffer", buffer);
+		callbackArgs.put("bytesProcessed", bytesProcessed);
+
+		return callbackArgs;
+	}
+
 	private KrollDict buildAcceptedCallbackArgs(TCPProxy acceptedTcpProxy)
 	{
 		KrollDict callbackArgs = new KrollDict();
@@ -316,13 +693,7 @@ public class TCPProxy extends KrollProxy implements TiStream
 
 		if (state == SocketModule.ERROR) {
 			try {
-				if (clientSocket != null) {
-					clientSocket.close();
-				}
-
-				if (serverSocket != null) {
-					serverSocket.close();
-				}
+				closeSocket();
 
 			} catch (IOException e) {
 				Log.w(TAG, "Unable to close socket in error state", Log.DEBUG_MODE);
@@ -394,12 +765,28 @@ public class TCPProxy extends KrollProxy implements TiStream
 			throw new IllegalArgumentException("Invalid number of arguments");
 		}
 
-		if (inputStream == null) {
-			inputStream = clientSocket.getInputStream();
+		if (getProperty("received") instanceof KrollFunction) {
+			throw new IOException("Unable to read from socket, data is delivered to the received callback");
+		}
+
+		ByteBuffer byteBuffer = bufferProxy.getByteBuffer();
+		if ((offset + length) > byteBuffer.limit()) {
+			length = byteBuffer.limit() - offset;
+		}
+		if (length == 0) {
+			return 0;
 		}
+		byteBuffer.position(offset);
+		byteBuffer.limit(offset + length);
 
 		try {
-			return TiStreamHelper.read(inputStream, bufferProxy, offset, length);
+			while (true) {
+				int bytesRead = clientChannel.read(byteBuffer);
+				if (bytesRead != 0) {
+					return bytesRead;
+				}
+				awaitReady(SelectionKey.OP_READ);
+			}
 
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -458,10 +845,27 @@ public class TCPProxy extends KrollProxy implements TiStream
 			throw new IllegalArgumentException("Invalid number of arguments");
 		}
 
+		ByteBuffer byteBuffer = bufferProxy.getByteBuffer();
+		if ((offset + length) > byteBuffer.limit()) {
+			length = byteBuffer.limit() - offset;
+		}
+		byteBuffer.position(offset);
+		byteBuffer.limit(offset + length);
+
+		if (length == 0) {
+			return 0;
+		}
+
 		try {
-			return TiStreamHelper.write(clientSocket.getOutputStream(), bufferProxy, offset, length);
+			// Goes through the queue so it is ordered after earlier asynchronous writes
+			awaitWritten(enqueueWrite(byteBuffer, false));
+			return length;
 
 		} catch (IOException e) {
+			if (state == SocketModule.ERROR || state == SocketModule.CLOSED) {
+				// Closed while waiting, whoever closed it has already reported why
+				throw e;
+			}
 			e.printStackTrace();
 			closeSocket();
 			updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to write to socket, IO error", 0));
@@ -469,6 +873,111 @@ public class TCPProxy extends KrollProxy implements TiStream
 		}
 	}
 
+	/**
+	 * Queues data to be written without blocking the caller. The data is copied, so the buffer
+	 * can be reused as soon as this returns.
+	 * @return false once the queued data reaches the high watermark, the drain callback is called
+	 * when it falls back to the low watermark.
+	 */
+	@Kroll.method
+	//public boolean writeAsync(BufferProxy buffer)
+	//public boolean writeAsync(BufferProxy buffer, int offset, int length)
+	public boolean writeAsync(Object args[]) throws IOException
+	{
+		if (!isConnected()) {
+			throw new IOException("Unable to write to socket, not connected");
+		}
+
+		BufferProxy bufferProxy = null;
+		int offset = 0;
+		int length = 0;
+
+		if (args.length == 1 || args.length == 3) {
+			if (args[0] instanceof BufferProxy) {
+				bufferProxy = (BufferProxy) args[0];
+				length = bufferProxy.getLength();
+
+			} else {
+				throw new IllegalArgumentException("Invalid buffer argument");
+			}
+
+			if (args.length == 3) {
+				if (args[1] instanceof Number) {
+					offset = ((Number)args[1]).intValue();
+
+				} else {
+					throw new IllegalArgumentException("Invalid offset argument");
+				}
+
+				if (args[2] instanceof Number) {
+					length = ((Number)args[2]).intValue();
+
+				} else {
+					throw new IllegalArgumentException("Invalid length argument");
+				}
+			}
+
+		} else {
+			throw new IllegalArgumentException("Invalid number of arguments");
+		}
+
+		ByteBuffer byteBuffer = bufferProxy.getByteBuffer();
+		if ((offset + length) > byteBuffer.limit()) {
+			length = byteBuffer.limit() - offset;
+		}
+		byteBuffer.position(offset);
+		byteBuffer.limit(offset + length);
+
+		if (length > 0) {
+			enqueueWrite(byteBuffer, true);
+		}
+		synchronized (writeQueue) {
+			return !aboveHighWatermark;
+		}
+	}
+
+	/**
+	 * @return a dictionary with queuedBytes, bytesWritten, queuedWrites (calls that queued data)
+	 * and gatheringWrites (system calls used to write them).
+	 */
+	@Kroll.method
+	public KrollDict getWriteStats()
+	{
+		KrollDict stats = new KrollDict();
+		synchronized (writeQueue) {
+			stats.put("queuedBytes", queuedBytes);
+			stats.put("bytesWritten", totalBytesWritten);
+			stats.put("queuedWrites", queuedWrites);
+			stats.put("gatheringWrites", gatheringWrites);
+		}
+		return stats;
+	}
+
+	public ReadableByteChannel getReadableChannel() throws IOException
+	{
+		// Incoming data belongs to the received callback while one is set
+		if (!isConnected() || getProperty("received") instanceof KrollFunction) {
+			return null;
+		}
+		return clientChannel;
+	}
+
+	public WritableByteChannel getWritableChannel() throws IOException
+	{
+		// Writing to the channel directly would jump ahead of queued data
+		synchronized (writeQueue) {
+			if (!writeQueue.isEmpty()) {
+				return null;
+			}
+		}
+		return isConnected() ? clientChannel : null;
+	}
+
+	public void awaitChannelReady(boolean forWrite) throws IOException
+	{
+		awaitReady(forWrite ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+
 	@Kroll.method
 	public boolean isWritable()
 	{
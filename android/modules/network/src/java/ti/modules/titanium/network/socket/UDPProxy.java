@@ -0,0 +1,519 @@
+/**
+ * Appcelerator Titanium Mobile
+ * Copyright (c) 2012 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Apache Public License
+ * Please see the LICENSE included with this distribution for details.
+ */
+package ti.modules.titanium.network.socket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import org.appcelerator.kroll.KrollDict;
+import org.appcelerator.kroll.KrollFunction;
+import org.appcelerator.kroll.KrollProxy;
+import org.appcelerator.kroll.annotations.Kroll;
+import org.appcelerator.kroll.common.Log;
+import org.appcelerator.titanium.TiApplication;
+import org.appcelerator.titanium.TiContext;
+import org.appcelerator.titanium.util.TiConvert;
+
+import ti.modules.titanium.BufferProxy;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+
+/**
+ * A datagram socket driven by the shared {@link SocketSelector}. Each received datagram is handed
+ * to the received callback in its own buffer, buffers given back with recycle() are reused for
+ * later datagrams.
+ */
+@Kroll.proxy(creatableInModule=SocketModule.class)
+public class UDPProxy extends KrollProxy
+{
+	private static final String TAG = "UDPProxy";
+
+	private static final int DEFAULT_RECEIVE_BUFFER_SIZE = 8192;
+	// Largest payload of an IPv4 datagram
+	private static final int MAX_DATAGRAM_SIZE = 65507;
+	// Datagrams read per selector wakeup, so a busy socket cannot starve the others
+	private static final int MAX_RECEIVE_BATCH = 32;
+	private static final int MAX_POOLED_BUFFERS = 16;
+	private static final int MAX_QUEUED_DATAGRAMS = 256;
+
+	private static class Datagram
+	{
+		final ByteBuffer data;
+		final InetSocketAddress target;
+
+		Datagram(ByteBuffer data, InetSocketAddress target)
+		{
+			this.data = data;
+			this.target = target;
+		}
+	}
+
+	private DatagramChannel channel = null;
+	private int state = 0;
+
+	private ByteBuffer receiveBuffer = null;
+	private final LinkedList<BufferProxy> bufferPool = new LinkedList<BufferProxy>();
+
+	// Outgoing datagrams, sent by the selector thread. The counters below are guarded by sendQueue.
+	private final LinkedList<Datagram> sendQueue = new LinkedList<Datagram>();
+	private final HashMap<String, InetAddress> resolvedHosts = new HashMap<String, InetAddress>();
+	private long packetsSent = 0;
+	private long bytesSent = 0;
+	private long packetsDropped = 0;
+	private long packetsReceived = 0;
+	private long bytesReceived = 0;
+
+	// Group memberships are held by a separate socket, see joinGroup()
+	private MulticastSocket membershipSocket = null;
+	private WifiManager.MulticastLock multicastLock = null;
+	private int groupCount = 0;
+
+	private final SocketSelector.Listener selectorListener = new SocketSelector.Listener() {
+		public void onReady(SelectionKey key)
+		{
+			handleReady(key);
+		}
+	};
+
+
+	public UDPProxy()
+	{
+		super();
+		state = SocketModule.INITIALIZED;
+	}
+
+	public UDPProxy(TiContext tiContext)
+	{
+		this();
+	}
+
+	/**
+	 * Binds the socket to the port property (0 or unset picks a free port) and starts delivering
+	 * datagrams to the received callback.
+	 */
+	@Kroll.method
+	public void start() throws Exception
+	{
+		if (state == SocketModule.LISTENING) {
+			throw new Exception("Unable to call start on socket in <" + state + "> state");
+		}
+
+		Object port = getProperty("port");
+		Object broadcast = getProperty("broadcast");
+		Object receiveBufferSize = getProperty("receiveBufferSize");
+		int size = receiveBufferSize != null ? TiConvert.toInt(receiveBufferSize) : DEFAULT_RECEIVE_BUFFER_SIZE;
+		if (size <= 0 || size > MAX_DATAGRAM_SIZE) {
+			throw new IllegalArgumentException("Unable to call start, receiveBufferSize must be between 1 and " + MAX_DATAGRAM_SIZE);
+		}
+
+		try {
+			channel = DatagramChannel.open();
+			channel.configureBlocking(false);
+			channel.socket().setReuseAddress(true);
+			channel.socket().setBroadcast(broadcast != null && TiConvert.toBoolean(broadcast));
+			channel.socket().bind(new InetSocketAddress(port != null ? TiConvert.toInt(port) : 0));
+
+			receiveBuffer = ByteBuffer.allocateDirect(size);
+			SocketSelector.getInstance().register(channel, SelectionKey.OP_READ, selectorListener);
+			state = SocketModule.LISTENING;
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			closeSocket();
+			state = SocketModule.ERROR;
+			throw new Exception("Unable to start socket, IO error");
+		}
+	}
+
+	/**
+	 * Queues a datagram without blocking the caller. The data is copied, so the buffer can be
+	 * reused as soon as this returns.
+	 * @return false if the datagram was dropped because too many are already waiting to be sent.
+	 */
+	@Kroll.method
+	public boolean sendTo(BufferProxy buffer, String host, int port) throws Exception
+	{
+		if (state != SocketModule.LISTENING) {
+			throw new Exception("Unable to send on socket in <" + state + "> state");
+		}
+		if (host == null || port <= 0) {
+			throw new IllegalArgumentException("Unable to send, a valid host and port are required");
+		}
+
+		ByteBuffer source = buffer.getByteBuffer();
+		if (source.remaining() > MAX_DATAGRAM_SIZE) {
+			throw new IllegalArgumentException("Unable to send, datagram is larger than " + MAX_DATAGRAM_SIZE + " bytes");
+		}
+		final ByteBuffer data = ByteBuffer.allocate(source.remaining());
+		data.put(source);
+		data.flip();
+
+		InetAddress address;
+		synchronized (resolvedHosts) {
+			address = resolvedHosts.get(host);
+		}
+		if (address != null) {
+			return enqueueDatagram(new Datagram(data, new InetSocketAddress(address, port)));
+		}
+
+		// Host name resolution blocks, so it happens off the runtime and selector threads.
+		final String hostName = host;
+		final int targetPort = port;
+		SocketSelector.executeBlocking(new Runnable() {
+			public void run()
+			{
+				try {
+					InetAddress resolved = InetAddress.getByName(hostName);
+					synchronized (resolvedHosts) {
+						resolvedHosts.put(hostName, resolved);
+					}
+					enqueueDatagram(new Datagram(data, new InetSocketAddress(resolved, targetPort)));
+
+				} catch (UnknownHostException e) {
+					fireError("Unable to send, unknown host <" + hostName + ">");
+				}
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Gives a buffer from the received callback back to the socket. The buffer must not be used
+	 * afterwards, it will be filled with a later datagram.
+	 */
+	@Kroll.method
+	public void recycle(BufferProxy buffer)
+	{
+		buffer.resize(0);
+		synchronized (bufferPool) {
+			if (bufferPool.size() < MAX_POOLED_BUFFERS && !bufferPool.contains(buffer)) {
+				bufferPool.add(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Starts receiving datagrams sent to a multicast group. The socket must have been started.
+	 * @param group the group address, such as 239.255.255.250.
+	 */
+	@Kroll.method
+	public void joinGroup(String group) throws Exception
+	{
+		if (state != SocketModule.LISTENING) {
+			throw new Exception("Unable to join group on socket in <" + state + "> state");
+		}
+
+		try {
+			InetAddress address = InetAddress.getByName(group);
+			if (!address.isMulticastAddress()) {
+				throw new IllegalArgumentException("Unable to join group, <" + group + "> is not a multicast address");
+			}
+			if (membershipSocket == null) {
+				membershipSocket = new MulticastSocket(0);
+			}
+			membershipSocket.joinGroup(address);
+			if (groupCount++ == 0) {
+				acquireMulticastLock();
+			}
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new Exception("Unable to join group <" + group + ">, IO error");
+		}
+	}
+
+	@Kroll.method
+	public void leaveGroup(String group) throws Exception
+	{
+		if (membershipSocket == null) {
+			throw new Exception("Unable to leave group <" + group + ">, socket has not joined any group");
+		}
+
+		try {
+			membershipSocket.leaveGroup(InetAddress.getByName(group));
+			if (--groupCount == 0) {
+				releaseMulticastLock();
+			}
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new Exception("Unable to leave group <" + group + ">, IO error");
+		}
+	}
+
+	/**
+	 * @return the port the socket is bound to, or 0 if it has not been started.
+	 */
+	@Kroll.getProperty @Kroll.method
+	public int getLocalPort()
+	{
+		DatagramChannel channel = this.channel;
+		return channel != null ? channel.socket().getLocalPort() : 0;
+	}
+
+	/**
+	 * @return a dictionary with packetsSent, bytesSent, packetsDropped (datagrams that could not
+	 * be queued or sent), packetsReceived and bytesReceived.
+	 */
+	@Kroll.method
+	public KrollDict getStats()
+	{
+		KrollDict stats = new KrollDict();
+		synchronized (sendQueue) {
+			stats.put("packetsSent", packetsSent);
+			stats.put("bytesSent", bytesSent);
+			stats.put("packetsDropped", packetsDropped);
+			stats.put("packetsReceived", packetsReceived);
+			stats.put("bytesReceived", bytesReceived);
+		}
+		return stats;
+	}
+
+	@Kroll.method
+	public void close() throws IOException
+	{
+		if (state != SocketModule.LISTENING) {
+			throw new IOException("Socket is not started, unable to call close on socket in <" + state + "> state");
+		}
+
+		state = 0; // set socket state to uninitialized to prevent use while closing
+		closeSocket();
+		state = SocketModule.CLOSED;
+	}
+
+	private boolean enqueueDatagram(Datagram datagram)
+	{
+		DatagramChannel channel = this.channel;
+		synchronized (sendQueue) {
+			if (channel == null || sendQueue.size() >= MAX_QUEUED_DATAGRAMS) {
+				packetsDropped++;
+				return false;
+			}
+			sendQueue.add(datagram);
+		}
+
+		try {
+			SocketSelector.getInstance().addInterest(channel, SelectionKey.OP_WRITE);
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to reach socket selector", Log.DEBUG_MODE);
+		}
+		return true;
+	}
+
+	// Called on the selector thread.
+	private void handleReady(SelectionKey key)
+	{
+		DatagramChannel channel = this.channel;
+		if (channel == null) {
+			return;
+		}
+
+		if (key.isReadable()) {
+			receive(channel);
+		}
+
+		if (key.isValid() && key.isWritable()) {
+			if (!flushSendQueue(channel)) {
+				try {
+					SocketSelector.getInstance().removeInterest(key.channel(), SelectionKey.OP_WRITE);
+				} catch (IOException e) {
+					// The selector is running, since it called us
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends queued datagrams until the queue is empty or the socket buffer is full.
+	 * @return whether datagrams are still waiting to be sent.
+	 */
+	private boolean flushSendQueue(DatagramChannel channel)
+	{
+		while (true) {
+			Datagram datagram;
+			synchronized (sendQueue) {
+				datagram = sendQueue.peek();
+				if (datagram == null) {
+					return false;
+				}
+			}
+
+			int length = datagram.data.remaining();
+			int sent;
+			try {
+				sent = channel.send(datagram.data, datagram.target);
+
+			} catch (IOException e) {
+				// Only this datagram is lost, the socket itself is still usable
+				synchronized (sendQueue) {
+					sendQueue.poll();
+					packetsDropped++;
+				}
+				fireError("Unable to send to <" + datagram.target + ">, IO error");
+				continue;
+			}
+
+			if (sent == 0) {
+				return true;
+			}
+			synchronized (sendQueue) {
+				sendQueue.poll();
+				packetsSent++;
+				bytesSent += length;
+			}
+		}
+	}
+
+	private void receive(DatagramChannel channel)
+	{
+		for (int i = 0; i < MAX_RECEIVE_BATCH; i++) {
+			InetSocketAddress source;
+			receiveBuffer.clear();
+			try {
+				source = (InetSocketAddress) channel.receive(receiveBuffer);
+
+			} catch (IOException e) {
+				if (state == SocketModule.LISTENING) {
+					e.printStackTrace();
+					updateState(SocketModule.ERROR, "error", buildErrorCallbackArgs("Unable to receive from socket, IO error", 0));
+				}
+				return;
+			}
+			if (source == null) {
+				return;
+			}
+
+			receiveBuffer.flip();
+			int length = receiveBuffer.remaining();
+			synchronized (sendQueue) {
+				packetsReceived++;
+				bytesReceived += length;
+			}
+
+			Object callback = getProperty("received");
+			if (!(callback instanceof KrollFunction)) {
+				continue;
+			}
+
+			BufferProxy buffer;
+			synchronized (bufferPool) {
+				buffer = bufferPool.poll();
+			}
+			if (buffer == null) {
+				buffer = new BufferProxy(length);
+			} else {
+				buffer.resize(length);
+			}
+			buffer.getByteBuffer().put(receiveBuffer);
+
+			((KrollFunction) callback).callAsync(getKrollObject(), buildReceivedCallbackArgs(buffer, length, source));
+		}
+	}
+
+	private void acquireMulticastLock()
+	{
+		// Many Wi-Fi drivers filter multicast traffic unless a lock is held
+		try {
+			if (multicastLock == null) {
+				WifiManager wifiManager = (WifiManager) TiApplication.getInstance().getSystemService(Context.WIFI_SERVICE);
+				multicastLock = wifiManager.createMulticastLock(TAG);
+				multicastLock.setReferenceCounted(false);
+			}
+			multicastLock.acquire();
+
+		} catch (SecurityException e) {
+			Log.w(TAG, "Unable to acquire multicast lock, CHANGE_WIFI_MULTICAST_STATE permission is missing");
+		}
+	}
+
+	private void releaseMulticastLock()
+	{
+		if (multicastLock != null && multicastLock.isHeld()) {
+			multicastLock.release();
+		}
+	}
+
+	private void fireError(String error)
+	{
+		Object callback = getProperty("error");
+		if (callback instanceof KrollFunction) {
+			((KrollFunction) callback).callAsync(getKrollObject(), buildErrorCallbackArgs(error, 0));
+		}
+	}
+
+	private void closeSocket()
+	{
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to close socket", Log.DEBUG_MODE);
+			}
+			channel = null;
+		}
+
+		if (membershipSocket != null) {
+			membershipSocket.close();
+			membershipSocket = null;
+		}
+		groupCount = 0;
+		releaseMulticastLock();
+
+		synchronized (sendQueue) {
+			packetsDropped += sendQueue.size();
+			sendQueue.clear();
+		}
+		synchronized (bufferPool) {
+			bufferPool.clear();
+		}
+	}
+
+	private KrollDict buildErrorCallbackArgs(String error, int errorCode)
+	{
+		KrollDict callbackArgs = new KrollDict();
+		callbackArgs.put("socket", this);
+		callbackArgs.put("error", error);
+		callbackArgs.put("errorCode", errorCode);
+
+		return callbackArgs;
+	}
+
+	private KrollDict buildReceivedCallbackArgs(BufferProxy buffer, int bytesProcessed, InetSocketAddress source)
+	{
+		KrollDict callbackArgs = new KrollDict();
+		callbackArgs.put("socket", this);
+		callbackArgs.put("buffer", buffer);
+		callbackArgs.put("bytesProcessed", bytesProcessed);
+		callbackArgs.put("address", source.getAddress().getHostAddress());
+		callbackArgs.put("port", source.getPort());
+
+		return callbackArgs;
+	}
+
+	private void updateState(int state, String callbackName, KrollDict callbackArgs)
+	{
+		this.state = state;
+
+		if (state == SocketModule.ERROR) {
+			closeSocket();
+		}
+
+		Object callback = getProperty(callbackName);
+		if (callback instanceof KrollFunction) {
+			((KrollFunction) callback).callAsync(getKrollObject(), callbackArgs);
+		}
+	}
+}
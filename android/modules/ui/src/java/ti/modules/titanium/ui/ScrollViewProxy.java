@@ -27,7 +27,8 @@ import android.os.Message;
 	TiC.PROPERTY_SHOW_VERTICAL_SCROLL_INDICATOR,
 	TiC.PROPERTY_SCROLL_TYPE,
 	TiC.PROPERTY_CONTENT_OFFSET,
-	TiC.PROPERTY_CAN_CANCEL_EVENTS
+	TiC.PROPERTY_CAN_CANCEL_EVENTS,
+	TiC.PROPERTY_VIRTUALIZE_CHILDREN
 })
 public class ScrollViewProxy extends TiViewProxy
 	implements Handler.Callback
@@ -58,6 +59,27 @@ public class ScrollViewProxy extends TiViewProxy
 		return (TiUIScrollView) getOrCreateView();
 	}
 
+	@Override
+	protected void realizeChildView(TiUIView view, TiViewProxy child)
+	{
+		// With virtualizeChildren, the view of a child is created by the scroll view once it scrolls near the visible area
+		if (view instanceof TiUIScrollView && ((TiUIScrollView) view).isVirtualized() && child.peekView() == null) {
+			((TiUIScrollView) view).addVirtual(child);
+			return;
+		}
+		super.realizeChildView(view, child);
+	}
+
+	@Override
+	public void handleRemove(TiViewProxy child)
+	{
+		TiUIView view = peekView();
+		if (view instanceof TiUIScrollView && child != null && child.peekView() == null) {
+			((TiUIScrollView) view).removeVirtual(child);
+		}
+		super.handleRemove(child);
+	}
+
 	@Kroll.method
 	public void scrollTo(int x, int y) {
 		if (!TiApplication.isUIThread()) {
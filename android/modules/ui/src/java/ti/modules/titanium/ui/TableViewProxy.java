@@ -23,11 +23,13 @@ import org.appcelerator.titanium.util.TiConvert;
 import org.appcelerator.titanium.view.TiUIView;
 
 import ti.modules.titanium.ui.widget.TiUITableView;
+import ti.modules.titanium.ui.widget.tableview.TableViewModel;
 import ti.modules.titanium.ui.widget.tableview.TableViewModel.Item;
 import android.app.Activity;
 import android.os.Message;
 
 @Kroll.proxy(creatableInModule = UIModule.class, propertyAccessors = { 
+	TiC.PROPERTY_FILTER_ASYNC,
 	TiC.PROPERTY_FILTER_ATTRIBUTE,
 	TiC.PROPERTY_FILTER_CASE_INSENSITIVE,
 	TiC.PROPERTY_HEADER_TITLE,
@@ -57,6 +59,7 @@ public class TableViewProxy extends TiViewProxy
 	private static final int MSG_APPEND_SECTION = TiViewProxy.MSG_LAST_ID + 5009;
 	private static final int MSG_DELETE_SECTION = TiViewProxy.MSG_LAST_ID + 5010;
 	private static final int MSG_INSERT_SECTION = TiViewProxy.MSG_LAST_ID + 5011;
+	private static final int MSG_UPDATE_ROW = TiViewProxy.MSG_LAST_ID + 5012;
 
 	public static final String CLASSNAME_DEFAULT = "__default__";
 	public static final String CLASSNAME_HEADER = "__header__";
@@ -157,6 +160,16 @@ public class TableViewProxy extends TiViewProxy
 
 	@Kroll.method
 	public void updateRow(Object row, Object data, @Kroll.argument(optional = true) KrollDict options)
+	{
+		if (TiApplication.isUIThread()) {
+			handleUpdateRow(row, data);
+			return;
+		}
+
+		TiMessenger.sendBlockingMainMessage(getMainHandler().obtainMessage(MSG_UPDATE_ROW), new Object[] { row, data });
+	}
+
+	private void handleUpdateRow(Object row, Object data)
 	{
 		TableViewSectionProxy sectionProxy = null;
 		int rowIndex = -1;
@@ -186,7 +199,7 @@ public class TableViewProxy extends TiViewProxy
 		}
 		if (sectionProxy != null) {
 			sectionProxy.updateRowAt(rowIndex, rowProxy);
-			getTableView().setModelDirty();
+			getTableView().getModel().updateRow(sectionProxy, rowIndex);
 			updateView();
 		} else {
 			Log.e(TAG, "Unable to update row. Non-existent row: " + row);
@@ -244,8 +257,10 @@ public class TableViewProxy extends TiViewProxy
 		}
 
 		ArrayList<TableViewSectionProxy> sections = getSectionsArray();
+		TableViewModel model = getTableView().getModel();
 		if (sections.size() == 0) {
 			processData(rowList);
+			model.setDirty();
 		} else {
 			for (int i = 0; i < rowList.length; i++) {
 				TableViewRowProxy rowProxy = rowProxyFor(rowList[i]);
@@ -255,11 +270,13 @@ public class TableViewProxy extends TiViewProxy
 				if (lastSection == null || !lastSection.equals(addedToSection)) {
 					sections.add(addedToSection);
 					addedToSection.setParent(this);
+					model.setDirty();
+				} else {
+					model.insertRow(lastSection, (int) lastSection.getRowCount() - 1);
 				}
 			}
 		}
 
-		getTableView().setModelDirty();
 		updateView();
 	}
 
@@ -319,7 +336,7 @@ public class TableViewProxy extends TiViewProxy
 			RowResult rr = new RowResult();
 			if (locateIndex(index, rr)) {
 				rr.section.removeRowAt(rr.rowIndexInSection);
-				getTableView().setModelDirty();
+				getTableView().getModel().removeRow(rr.section, rr.rowIndexInSection);
 				updateView();
 			} else {
 				throw new IllegalStateException("Unable to delete row. Index out of range. Non-existent row at " + index);
@@ -328,8 +345,10 @@ public class TableViewProxy extends TiViewProxy
 			TableViewRowProxy rowProxy = (TableViewRowProxy) row;
 			TiViewProxy section = rowProxy.getParent();
 			if (section instanceof TableViewSectionProxy) {
-				((TableViewSectionProxy) section).remove(rowProxy);
-				getTableView().setModelDirty();
+				TableViewSectionProxy sectionProxy = (TableViewSectionProxy) section;
+				int rowIndex = sectionProxy.rows.indexOf(rowProxy);
+				sectionProxy.remove(rowProxy);
+				getTableView().getModel().removeRow(sectionProxy, rowIndex);
 				updateView();
 			} else {
 				Log.e(TAG, "Unable to delete row. The row is not added to the table yet.");
@@ -411,6 +430,7 @@ public class TableViewProxy extends TiViewProxy
 
 	private void handleInsertRowBefore(int index, Object data) throws IllegalStateException
 	{
+		TableViewModel model = getTableView().getModel();
 		if (getSectionsArray().size() > 0) {
 			if (index < 0) {
 				index = 0;
@@ -420,6 +440,7 @@ public class TableViewProxy extends TiViewProxy
 			if (locateIndex(index, rr)) {
 				TableViewRowProxy rowProxy = rowProxyFor(data);
 				rr.section.insertRowAt(rr.rowIndexInSection, rowProxy);
+				model.insertRow(rr.section, rr.rowIndexInSection);
 			} else {
 				throw new IllegalStateException("Index out of range. Non-existent row at " + index);
 			}
@@ -427,8 +448,8 @@ public class TableViewProxy extends TiViewProxy
 			// Add first row.
 			Object[] args = { rowProxyFor(data) };
 			processData(args);
+			model.setDirty();
 		}
-		getTableView().setModelDirty();
 		updateView();
 	}
 
@@ -489,7 +510,7 @@ public class TableViewProxy extends TiViewProxy
 			// TODO check for section
 			TableViewRowProxy rowProxy = rowProxyFor(data);
 			rr.section.insertRowAt(rr.rowIndexInSection + 1, rowProxy);
-			getTableView().setModelDirty();
+			getTableView().getModel().insertRow(rr.section, rr.rowIndexInSection + 1);
 			updateView();
 		} else {
 			throw new IllegalStateException("Index out of range. Non-existent row at " + index);
@@ -797,6 +818,16 @@ public class TableViewProxy extends TiViewProxy
 	}
     
 
+	@Kroll.method
+	public KrollDict getRowPoolStats()
+	{
+		TiUITableView tableView = (TiUITableView) peekView();
+		if (tableView == null || tableView.getTableView() == null) {
+			return new KrollDict();
+		}
+		return tableView.getTableView().getRowPoolStats();
+	}
+
 	@Kroll.method
 	public void scrollToTop(int index)
 	{
@@ -837,6 +868,12 @@ public class TableViewProxy extends TiViewProxy
 				result.setResult(e);
 			}
 			return true;
+		} else if (msg.what == MSG_UPDATE_ROW) {
+			AsyncResult result = (AsyncResult) msg.obj;
+			Object[] args = (Object[]) result.getArg();
+			handleUpdateRow(args[0], args[1]);
+			result.setResult(null);
+			return true;
 		} else if (msg.what == MSG_APPEND_ROW) {
 			AsyncResult result = (AsyncResult) msg.obj;
 			handleAppendRow(result.getArg());
@@ -15,6 +15,7 @@ import org.appcelerator.titanium.TiC;
 import org.appcelerator.titanium.TiDimension;
 import org.appcelerator.titanium.proxy.TiViewProxy;
 import org.appcelerator.titanium.util.TiConvert;
+import org.appcelerator.titanium.util.TiUIHelper;
 import org.appcelerator.titanium.view.TiCompositeLayout;
 import org.appcelerator.titanium.view.TiCompositeLayout.LayoutArrangement;
 import org.appcelerator.titanium.view.TiUIView;
@@ -40,6 +41,58 @@ public class TiUIScrollView extends TiUIView
 	private boolean setInitialOffset = false;
 	private boolean mScrollingEnabled = true;
 
+	// Size in dips given to a placeholder before any child has been laid out
+	private static final int DEFAULT_ESTIMATED_SIZE = 44;
+
+	private boolean virtualized = false;
+	private boolean virtualUpdatePending = false;
+	// Size given to placeholders of children that were never laid out, the average size of the children laid out
+	private int estimatedWidth = -1;
+	private int estimatedHeight = -1;
+
+	private final Runnable virtualUpdate = new Runnable()
+	{
+		public void run()
+		{
+			updateVirtualViews();
+		}
+	};
+
+	// Takes the place of a child whose view has not been created, at the size the child had when it was last laid out
+	private class VirtualPlaceholder extends View
+	{
+		private final TiViewProxy child;
+		private int childWidth = -1;
+		private int childHeight = -1;
+
+		public VirtualPlaceholder(Context context, TiViewProxy child)
+		{
+			super(context);
+			this.child = child;
+		}
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+		{
+			setMeasuredDimension(getPlaceholderSize(childWidth, estimatedWidth, widthMeasureSpec),
+				getPlaceholderSize(childHeight, estimatedHeight, heightMeasureSpec));
+		}
+
+		private int getPlaceholderSize(int childSize, int estimatedSize, int measureSpec)
+		{
+			if (MeasureSpec.getMode(measureSpec) == MeasureSpec.EXACTLY) {
+				return MeasureSpec.getSize(measureSpec);
+			}
+			if (childSize >= 0) {
+				return childSize;
+			}
+			if (estimatedSize < 0) {
+				estimatedSize = (int) TiUIHelper.getRawDIPSize(DEFAULT_ESTIMATED_SIZE, getContext());
+			}
+			return resolveSize(estimatedSize, measureSpec);
+		}
+	}
+
 	private class TiScrollViewLayout extends TiCompositeLayout
 	{
 		private static final int AUTO = Integer.MAX_VALUE;
@@ -77,6 +130,15 @@ public class TiUIScrollView extends TiUIView
 			canCancelEvents = value;
 		}
 
+		@Override
+		protected void onLayout(boolean changed, int l, int t, int r, int b)
+		{
+			super.onLayout(changed, l, t, r, b);
+			if (virtualized) {
+				scheduleVirtualUpdate();
+			}
+		}
+
 		@Override
 		public boolean dispatchTouchEvent(MotionEvent ev)
 		{
@@ -238,6 +300,9 @@ public class TiUIScrollView extends TiUIView
 			data.put(TiC.EVENT_PROPERTY_Y, t);
 			setContentOffset(l, t);
 			getProxy().fireEvent(TiC.EVENT_SCROLL, data);
+			if (virtualized) {
+				scheduleVirtualUpdate();
+			}
 		}
 
 		@Override
@@ -344,6 +409,9 @@ public class TiUIScrollView extends TiUIView
 			data.put(TiC.EVENT_PROPERTY_Y, t);
 			setContentOffset(l, t);
 			getProxy().fireEvent(TiC.EVENT_SCROLL, data);
+			if (virtualized) {
+				scheduleVirtualUpdate();
+			}
 		}
 
 		@Override
@@ -526,6 +594,11 @@ public class TiUIScrollView extends TiUIView
 			scrollViewLayout.setEnableHorizontalWrap(TiConvert.toBoolean(d, TiC.PROPERTY_HORIZONTAL_WRAP));
 		}
 
+		// android only property
+		if (d.containsKey(TiC.PROPERTY_VIRTUALIZE_CHILDREN)) {
+			virtualized = TiConvert.toBoolean(d, TiC.PROPERTY_VIRTUALIZE_CHILDREN);
+		}
+
 		setNativeView(view);
 
 		nativeView.setHorizontalScrollBarEnabled(showHorizontalScrollBar);
@@ -576,6 +649,144 @@ public class TiUIScrollView extends TiUIView
 		}
 	}
 
+	/**
+	 * @return whether children's views are only created while they are near the visible area.
+	 */
+	public boolean isVirtualized()
+	{
+		return virtualized;
+	}
+
+	/**
+	 * Adds a placeholder for a child instead of its view. The view is created once the placeholder comes within one
+	 * screen of the visible area, and released again once it is more than two screens away.
+	 * @param child the child proxy.
+	 */
+	public void addVirtual(TiViewProxy child)
+	{
+		TiScrollViewLayout layout = getLayout();
+		TiCompositeLayout.LayoutParams params = new TiCompositeLayout.LayoutParams();
+		TiConvert.fillLayout(child.getProperties(), params);
+		layout.addView(new VirtualPlaceholder(layout.getContext(), child), params);
+		scheduleVirtualUpdate();
+	}
+
+	/**
+	 * Removes the placeholder of a child whose view is not created.
+	 * @param child the child proxy.
+	 */
+	public void removeVirtual(TiViewProxy child)
+	{
+		TiScrollViewLayout layout = getLayout();
+		for (int i = 0; i < layout.getChildCount(); i++) {
+			View view = layout.getChildAt(i);
+			if (view instanceof VirtualPlaceholder && ((VirtualPlaceholder) view).child == child) {
+				layout.removeViewAt(i);
+				return;
+			}
+		}
+	}
+
+	private void scheduleVirtualUpdate()
+	{
+		// Runs after layout and scrolling, the views can't be swapped while the hierarchy is being laid out
+		View view = getNativeView();
+		if (!virtualUpdatePending && view != null) {
+			virtualUpdatePending = true;
+			view.post(virtualUpdate);
+		}
+	}
+
+	private void updateVirtualViews()
+	{
+		virtualUpdatePending = false;
+		View scrollView = getNativeView();
+		if (scrollView == null) {
+			return;
+		}
+		int width = scrollView.getWidth();
+		int height = scrollView.getHeight();
+		if (width == 0 || height == 0) {
+			return;
+		}
+		int left = scrollView.getScrollX();
+		int top = scrollView.getScrollY();
+
+		HashMap<View, TiUIView> childViews = new HashMap<View, TiUIView>();
+		for (TiUIView child : children) {
+			View outerView = child.getOuterView();
+			if (outerView != null) {
+				childViews.put(outerView, child);
+			}
+		}
+
+		TiScrollViewLayout layout = getLayout();
+		int totalWidth = 0;
+		int totalHeight = 0;
+		int laidOut = 0;
+		for (int i = 0; i < layout.getChildCount(); i++) {
+			View view = layout.getChildAt(i);
+			if (view instanceof VirtualPlaceholder) {
+				if (intersects(view, left - width, top - height, left + 2 * width, top + 2 * height)) {
+					realizeVirtual(layout, i, (VirtualPlaceholder) view);
+				}
+				continue;
+			}
+
+			TiUIView child = childViews.get(view);
+			// Views added since the last layout don't have their position yet
+			if (child == null || view.isLayoutRequested()) {
+				continue;
+			}
+			totalWidth += view.getWidth();
+			totalHeight += view.getHeight();
+			laidOut++;
+			// Released further out than views are created, so a child near the edge isn't created and released over
+			// and over while scrolling
+			if (!intersects(view, left - 2 * width, top - 2 * height, left + 3 * width, top + 3 * height)
+				&& view.findFocus() == null) {
+				releaseVirtual(layout, i, child);
+			}
+		}
+		if (laidOut > 0) {
+			estimatedWidth = totalWidth / laidOut;
+			estimatedHeight = totalHeight / laidOut;
+		}
+	}
+
+	private static boolean intersects(View view, int left, int top, int right, int bottom)
+	{
+		return view.getRight() > left && view.getLeft() < right && view.getBottom() > top && view.getTop() < bottom;
+	}
+
+	private void realizeVirtual(TiScrollViewLayout layout, int index, VirtualPlaceholder placeholder)
+	{
+		TiUIView child = placeholder.child.getOrCreateView();
+		if (child == null || child.getOuterView() == null || child.getOuterView().getParent() != null) {
+			return;
+		}
+		layout.removeViewAt(index);
+		layout.addView(child.getOuterView(), index, child.getLayoutParams());
+		children.add(child);
+		child.setParent(getProxy());
+	}
+
+	private void releaseVirtual(TiScrollViewLayout layout, int index, TiUIView child)
+	{
+		View outerView = child.getOuterView();
+		TiViewProxy childProxy = child.getProxy();
+		VirtualPlaceholder placeholder = new VirtualPlaceholder(layout.getContext(), childProxy);
+		placeholder.childWidth = outerView.getWidth();
+		placeholder.childHeight = outerView.getHeight();
+
+		layout.removeViewAt(index);
+		layout.addView(placeholder, index, child.getLayoutParams());
+		children.remove(child);
+		child.setParent(null);
+		// Only the views are released, the proxy keeps its properties and creates them again when needed
+		childProxy.releaseViews();
+	}
+
 	@Override
 	public void add(TiUIView child)
 	{
@@ -174,6 +174,9 @@ public class TiUITableView extends TiUIView
 			filterCaseInsensitive = TiConvert.toBoolean(d, TiC.PROPERTY_FILTER_CASE_INSENSITIVE);
 		}
 		tableView.setFilterCaseInsensitive(filterCaseInsensitive);
+		if (d.containsKey(TiC.PROPERTY_FILTER_ASYNC)) {
+			tableView.setFilterAsync(TiConvert.toBoolean(d, TiC.PROPERTY_FILTER_ASYNC));
+		}
 		super.processProperties(d);
 	}
 
@@ -216,6 +219,15 @@ public class TiUITableView extends TiUIView
 		Log.d(TAG, "Property: " + key + " old: " + oldValue + " new: " + newValue, Log.DEBUG_MODE);
 		if (key.equals(TiC.PROPERTY_SEPARATOR_COLOR)) {
 			tableView.setSeparatorColor(TiConvert.toString(newValue));
+		} else if (key.equals(TiC.PROPERTY_FILTER_ATTRIBUTE)) {
+			tableView.setFilterAttribute(TiConvert.toString(newValue));
+			tableView.dataSetChanged();
+		} else if (key.equals(TiC.PROPERTY_FILTER_CASE_INSENSITIVE)) {
+			tableView.setFilterCaseInsensitive(TiConvert.toBoolean(newValue));
+			tableView.dataSetChanged();
+		} else if (key.equals(TiC.PROPERTY_FILTER_ASYNC)) {
+			// Applies from the next change to the filter text
+			tableView.setFilterAsync(TiConvert.toBoolean(newValue));
 		} else {
 			super.propertyChanged(key, oldValue, newValue, proxy);
 		}
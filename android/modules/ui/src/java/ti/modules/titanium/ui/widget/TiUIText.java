@@ -15,6 +15,7 @@ import org.appcelerator.titanium.TiC;
 import org.appcelerator.titanium.proxy.TiViewProxy;
 import org.appcelerator.titanium.util.TiConvert;
 import org.appcelerator.titanium.util.TiUIHelper;
+import org.appcelerator.titanium.view.TiPropertyTable;
 import org.appcelerator.titanium.view.TiUIView;
 
 import android.content.Context;
@@ -70,6 +71,37 @@ public class TiUIText extends TiUIView
 	private static final int TEXT_AUTOCAPITALIZATION_WORDS = 2;
 	private static final int TEXT_AUTOCAPITALIZATION_ALL = 3;
 
+	// Ids of the properties handled by propertyChanged(), anything else is passed on to TiUIView
+	private static final int PROPERTY_ENABLED = 1;
+	private static final int PROPERTY_VALUE = 2;
+	private static final int PROPERTY_MAX_LENGTH = 3;
+	private static final int PROPERTY_COLOR = 4;
+	private static final int PROPERTY_HINT_TEXT = 5;
+	private static final int PROPERTY_ELLIPSIZE = 6;
+	private static final int PROPERTY_ALIGN = 7;
+	private static final int PROPERTY_KEYBOARD = 8;
+	private static final int PROPERTY_RETURN_KEY_TYPE = 9;
+	private static final int PROPERTY_FONT = 10;
+	private static final int PROPERTY_AUTO_LINK = 11;
+
+	private static final TiPropertyTable propertyTable = new TiPropertyTable()
+		.add(TiC.PROPERTY_ENABLED, PROPERTY_ENABLED)
+		.add(TiC.PROPERTY_VALUE, PROPERTY_VALUE)
+		.add(TiC.PROPERTY_MAX_LENGTH, PROPERTY_MAX_LENGTH)
+		.add(TiC.PROPERTY_COLOR, PROPERTY_COLOR)
+		.add(TiC.PROPERTY_HINT_TEXT, PROPERTY_HINT_TEXT)
+		.add(TiC.PROPERTY_ELLIPSIZE, PROPERTY_ELLIPSIZE)
+		.add(TiC.PROPERTY_TEXT_ALIGN, PROPERTY_ALIGN)
+		.add(TiC.PROPERTY_VERTICAL_ALIGN, PROPERTY_ALIGN)
+		.add(TiC.PROPERTY_KEYBOARD_TYPE, PROPERTY_KEYBOARD)
+		.add(TiC.PROPERTY_AUTOCORRECT, PROPERTY_KEYBOARD)
+		.add(TiC.PROPERTY_AUTOCAPITALIZATION, PROPERTY_KEYBOARD)
+		.add(TiC.PROPERTY_PASSWORD_MASK, PROPERTY_KEYBOARD)
+		.add(TiC.PROPERTY_EDITABLE, PROPERTY_KEYBOARD)
+		.add(TiC.PROPERTY_RETURN_KEY_TYPE, PROPERTY_RETURN_KEY_TYPE)
+		.add(TiC.PROPERTY_FONT, PROPERTY_FONT)
+		.add(TiC.PROPERTY_AUTO_LINK, PROPERTY_AUTO_LINK);
+
 	private boolean field;
 	private int maxLength = -1;
 
@@ -197,59 +229,70 @@ public class TiUIText extends TiUIView
 	public void propertyChanged(String key, Object oldValue, Object newValue, KrollProxy proxy)
 	{
 		Log.d(TAG, "Property: " + key + " old: " + oldValue + " new: " + newValue, Log.DEBUG_MODE);
-		if (key.equals(TiC.PROPERTY_ENABLED)) {
-			tv.setEnabled(TiConvert.toBoolean(newValue));
-		} else if (key.equals(TiC.PROPERTY_VALUE)) {
-			tv.setText((String) newValue);
-		} else if (key.equals(TiC.PROPERTY_MAX_LENGTH)) {
-			maxLength = TiConvert.toInt(newValue);
-			//truncate if current text exceeds max length
-			Editable currentText = tv.getText();
-			if (maxLength >= 0 && currentText.length() > maxLength) {
-				CharSequence truncateText = currentText.subSequence(0, maxLength);
-				int cursor = tv.getSelectionStart() - 1;
-				if (cursor > maxLength) {
-					cursor = maxLength;
+		switch (propertyTable.get(key)) {
+			case PROPERTY_ENABLED:
+				tv.setEnabled(TiConvert.toBoolean(newValue));
+				break;
+			case PROPERTY_VALUE:
+				tv.setText((String) newValue);
+				break;
+			case PROPERTY_MAX_LENGTH:
+				maxLength = TiConvert.toInt(newValue);
+				//truncate if current text exceeds max length
+				Editable currentText = tv.getText();
+				if (maxLength >= 0 && currentText.length() > maxLength) {
+					CharSequence truncateText = currentText.subSequence(0, maxLength);
+					int cursor = tv.getSelectionStart() - 1;
+					if (cursor > maxLength) {
+						cursor = maxLength;
+					}
+					tv.setText(truncateText);
+					tv.setSelection(cursor);
 				}
-				tv.setText(truncateText);
-				tv.setSelection(cursor);
-			}
-		} else if (key.equals(TiC.PROPERTY_COLOR)) {
-			tv.setTextColor(TiConvert.toColor((String) newValue));
-		} else if (key.equals(TiC.PROPERTY_HINT_TEXT)) {
-			tv.setHint((String) newValue);
-		} else if (key.equals(TiC.PROPERTY_ELLIPSIZE)) {
-			if (TiConvert.toBoolean(newValue)) {
-				tv.setEllipsize(TruncateAt.END);
-			} else {
-				tv.setEllipsize(null);
-			}
-		} else if (key.equals(TiC.PROPERTY_TEXT_ALIGN) || key.equals(TiC.PROPERTY_VERTICAL_ALIGN)) {
-			String textAlign = null;
-			String verticalAlign = null;
-			if (key.equals(TiC.PROPERTY_TEXT_ALIGN)) {
-				textAlign = TiConvert.toString(newValue);
-			} else if (proxy.hasProperty(TiC.PROPERTY_TEXT_ALIGN)){
-				textAlign = TiConvert.toString(proxy.getProperty(TiC.PROPERTY_TEXT_ALIGN));
-			}
-			if (key.equals(TiC.PROPERTY_VERTICAL_ALIGN)) {
-				verticalAlign = TiConvert.toString(newValue);
-			} else if (proxy.hasProperty(TiC.PROPERTY_VERTICAL_ALIGN)){
-				verticalAlign = TiConvert.toString(proxy.getProperty(TiC.PROPERTY_VERTICAL_ALIGN));
-			}
-			handleTextAlign(textAlign, verticalAlign);
-		} else if (key.equals(TiC.PROPERTY_KEYBOARD_TYPE) || (key.equals(TiC.PROPERTY_AUTOCORRECT) || key.equals(TiC.PROPERTY_AUTOCAPITALIZATION) || key.equals(TiC.PROPERTY_PASSWORD_MASK) || key.equals(TiC.PROPERTY_EDITABLE))) {
-			KrollDict d = proxy.getProperties();
-			handleKeyboard(d);
-		} else if (key.equals(TiC.PROPERTY_RETURN_KEY_TYPE)) {
-			handleReturnKeyType(TiConvert.toInt(newValue));
-		} else if (key.equals(TiC.PROPERTY_FONT)) {
-			TiUIHelper.styleText(tv, (HashMap) newValue);
-		} else if (key.equals(TiC.PROPERTY_AUTO_LINK)){
-			TiUIHelper.linkifyIfEnabled(tv, newValue);
-		} else {
-		
-			super.propertyChanged(key, oldValue, newValue, proxy);
+				break;
+			case PROPERTY_COLOR:
+				tv.setTextColor(TiConvert.toColor((String) newValue));
+				break;
+			case PROPERTY_HINT_TEXT:
+				tv.setHint((String) newValue);
+				break;
+			case PROPERTY_ELLIPSIZE:
+				if (TiConvert.toBoolean(newValue)) {
+					tv.setEllipsize(TruncateAt.END);
+				} else {
+					tv.setEllipsize(null);
+				}
+				break;
+			case PROPERTY_ALIGN:
+				String textAlign = null;
+				String verticalAlign = null;
+				if (key.equals(TiC.PROPERTY_TEXT_ALIGN)) {
+					textAlign = TiConvert.toString(newValue);
+				} else if (proxy.hasProperty(TiC.PROPERTY_TEXT_ALIGN)){
+					textAlign = TiConvert.toString(proxy.getProperty(TiC.PROPERTY_TEXT_ALIGN));
+				}
+				if (key.equals(TiC.PROPERTY_VERTICAL_ALIGN)) {
+					verticalAlign = TiConvert.toString(newValue);
+				} else if (proxy.hasProperty(TiC.PROPERTY_VERTICAL_ALIGN)){
+					verticalAlign = TiConvert.toString(proxy.getProperty(TiC.PROPERTY_VERTICAL_ALIGN));
+				}
+				handleTextAlign(textAlign, verticalAlign);
+				break;
+			case PROPERTY_KEYBOARD:
+				KrollDict d = proxy.getProperties();
+				handleKeyboard(d);
+				break;
+			case PROPERTY_RETURN_KEY_TYPE:
+				handleReturnKeyType(TiConvert.toInt(newValue));
+				break;
+			case PROPERTY_FONT:
+				TiUIHelper.styleText(tv, (HashMap) newValue);
+				break;
+			case PROPERTY_AUTO_LINK:
+				TiUIHelper.linkifyIfEnabled(tv, newValue);
+				break;
+			default:
+				super.propertyChanged(key, oldValue, newValue, proxy);
 		}
 	}
 
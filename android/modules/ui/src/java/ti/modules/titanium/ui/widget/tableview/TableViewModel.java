@@ -7,7 +7,9 @@
 package ti.modules.titanium.ui.widget.tableview;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
+import org.appcelerator.kroll.KrollDict;
 import org.appcelerator.kroll.common.Log;
 import org.appcelerator.titanium.TiC;
 import org.appcelerator.titanium.TiContext;
@@ -22,6 +24,9 @@ public class TableViewModel
 {
 	private static final String TAG = "TableViewModel";
 
+	// Start of the class names given to rows that don't set one
+	private static final String AUTO_CLASSNAME_PREFIX = "__auto__";
+
 	// Flat view
 
 	public class Item {
@@ -41,12 +46,31 @@ public class TableViewModel
 		public String className;
 		public TiViewProxy proxy;
 		public Object rowData;
+
+		// Normalized value of the table's filter attribute, kept by TiTableView while searching, with the value it
+		// was computed from
+		public String filterKey;
+		public Object filterKeySource;
+		public int filterKeyVersion;
+	}
+	// Where the items of a section are in the flat view, so rows can be inserted and removed without a rebuild
+	private static class SectionRange {
+		TableViewSectionProxy section;
+		int sectionIndex;
+		int start;
+		int headerItems;
+		int rowCount;
+		int firstRowIndex;
+		boolean hasHeaderTitle;
+		boolean hasFooterTitle;
 	}
+
 	private TableViewProxy proxy;
 
 	private boolean dirty;
 
 	private ArrayList<Item> viewModel;
+	private ArrayList<SectionRange> sectionRanges;
 
 	// The unstructured set of data. Modifier operations are treated as edits to this
 	// and the section structure.
@@ -68,17 +92,58 @@ public class TableViewModel
 			viewModel.clear();
 			viewModel = null;
 		}
+		sectionRanges = null;
 		proxy = null;
 	}
 
 	public static String classNameForRow(TableViewRowProxy rowProxy) {
 		String className = TiConvert.toString(rowProxy.getProperty(TiC.PROPERTY_CLASS_NAME));
 		if (className == null) {
-			className = TableViewProxy.CLASSNAME_DEFAULT;
+			className = structuralClassNameForRow(rowProxy);
 		}
 		return className;
 	}
 
+	/**
+	 * Recomputes the class name of a row's item. The structure of a row without a className changes when it gains
+	 * or loses properties or children after its item was built.
+	 * @param item the item to update.
+	 * @return the item's class name.
+	 */
+	public static String refreshClassName(Item item) {
+		if (item.proxy instanceof TableViewRowProxy) {
+			item.className = classNameForRow((TableViewRowProxy) item.proxy);
+		}
+		return item.className;
+	}
+
+	// Rows without a className share views with rows of the same structure: the same view classes nested the same
+	// way, each with the same properties set. Applying a row to a view built for another row of that structure
+	// overwrites every property the other row had set, so nothing from the other row is left showing.
+	private static String structuralClassNameForRow(TableViewRowProxy rowProxy) {
+		StringBuilder className = new StringBuilder(AUTO_CLASSNAME_PREFIX);
+		appendStructure(className, rowProxy);
+		return className.toString();
+	}
+
+	private static void appendStructure(StringBuilder structure, TiViewProxy proxy) {
+		structure.append(proxy.getClass().getSimpleName()).append('(');
+		// Sorted so rows that set the same properties in a different order still match. Properties set to null
+		// are never applied to the view, so they don't change its structure.
+		KrollDict properties = proxy.getProperties();
+		String[] keys = properties.keySet().toArray(new String[properties.size()]);
+		Arrays.sort(keys);
+		for (String key : keys) {
+			if (properties.get(key) != null) {
+				structure.append(key).append(',');
+			}
+		}
+		for (TiViewProxy child : proxy.getChildren()) {
+			appendStructure(structure, child);
+		}
+		structure.append(')');
+	}
+
 	private Item itemForHeader(int index, TableViewSectionProxy proxy, String headerText, String footerText) {
 		Item newItem = new Item(index);
 		newItem.className = TableViewProxy.CLASSNAME_HEADER;
@@ -108,15 +173,22 @@ public class TableViewModel
 	{
 		if (dirty) {
 			viewModel = new ArrayList<Item>();
+			sectionRanges = new ArrayList<SectionRange>();
 			int sectionIndex = 0;
 			int indexInSection = 0;
 			int index = 0;
 			ArrayList<TableViewSectionProxy> sections = proxy.getSectionsArray();
 			if (sections != null) {
 				for (TableViewSectionProxy section : sections) {
+					SectionRange range = new SectionRange();
+					range.section = section;
+					range.start = viewModel.size();
+					range.firstRowIndex = index;
+
 					String headerTitle = TiConvert.toString(section.getProperty(TiC.PROPERTY_HEADER_TITLE));
 					if (headerTitle != null) {
 						viewModel.add(itemForHeader(index, section, headerTitle, null));
+						range.hasHeaderTitle = true;
 					}
 					if (section.hasProperty(TiC.PROPERTY_HEADER_VIEW)) {
 						Object headerView = section.getProperty(TiC.PROPERTY_HEADER_VIEW);
@@ -129,24 +201,22 @@ public class TableViewModel
 							Log.e(TAG, "HeaderView must be of type TiViewProxy");
 						}
 					}
+					range.headerItems = viewModel.size() - range.start;
+
 					for (TableViewRowProxy row : section.getRows()) {
-						Item item = new Item(index);
-						item.sectionIndex = sectionIndex;
-						item.indexInSection = indexInSection;
-						item.proxy = row;
-						item.rowData = row.getProperties().get(TiC.PROPERTY_ROW_DATA);
-						item.className = classNameForRow(row);
-
-						viewModel.add(item);
+						viewModel.add(itemForRow(index, sectionIndex, indexInSection, row));
 						index++;
 						indexInSection++;
 					}
+					range.rowCount = indexInSection;
 
 					String footerTitle = TiConvert.toString(section.getProperty(TiC.PROPERTY_FOOTER_TITLE));
 					if (footerTitle != null) {
 						viewModel.add(itemForHeader(index, section, null, footerTitle));
+						range.hasFooterTitle = true;
 					}
 
+					sectionRanges.add(range);
 					sectionIndex++;
 					indexInSection = 0;
 				}
@@ -156,6 +226,120 @@ public class TableViewModel
 		return viewModel;
 	}
 
+	private Item itemForRow(int index, int sectionIndex, int indexInSection, TableViewRowProxy row) {
+		Item item = new Item(index);
+		item.sectionIndex = sectionIndex;
+		item.indexInSection = indexInSection;
+		item.proxy = row;
+		item.rowData = row.getProperties().get(TiC.PROPERTY_ROW_DATA);
+		item.className = classNameForRow(row);
+		return item;
+	}
+
+	/**
+	 * Adds a row that was inserted into a section to the model, without rebuilding the rest of it.
+	 * @param section the section the row was inserted into.
+	 * @param indexInSection the index of the row in the section.
+	 */
+	public void insertRow(TableViewSectionProxy section, int indexInSection) {
+		SectionRange range = rangeForSection(section, 1);
+		if (range == null || indexInSection < 0 || indexInSection > range.rowCount) {
+			dirty = true;
+			return;
+		}
+
+		int position = range.start + range.headerItems + indexInSection;
+		viewModel.add(position, itemForRow(range.firstRowIndex + indexInSection, range.sectionIndex, indexInSection,
+			section.rowAtIndex(indexInSection)));
+		range.rowCount++;
+		shiftItems(position + 1, range, 1);
+	}
+
+	/**
+	 * Removes a row that was removed from a section from the model, without rebuilding the rest of it.
+	 * @param section the section the row was removed from.
+	 * @param indexInSection the index the row had in the section.
+	 */
+	public void removeRow(TableViewSectionProxy section, int indexInSection) {
+		SectionRange range = rangeForSection(section, -1);
+		if (range == null || indexInSection < 0 || indexInSection >= range.rowCount) {
+			dirty = true;
+			return;
+		}
+
+		int position = range.start + range.headerItems + indexInSection;
+		viewModel.remove(position);
+		range.rowCount--;
+		shiftItems(position, range, -1);
+	}
+
+	/**
+	 * Replaces the item of a row that was replaced in a section, without rebuilding the rest of the model.
+	 * @param section the section of the row.
+	 * @param indexInSection the index of the row in the section.
+	 */
+	public void updateRow(TableViewSectionProxy section, int indexInSection) {
+		SectionRange range = rangeForSection(section, 0);
+		if (range == null || indexInSection < 0 || indexInSection >= range.rowCount) {
+			dirty = true;
+			return;
+		}
+
+		int position = range.start + range.headerItems + indexInSection;
+		viewModel.set(position, itemForRow(range.firstRowIndex + indexInSection, range.sectionIndex, indexInSection,
+			section.rowAtIndex(indexInSection)));
+	}
+
+	// Returns the range of a section if the model can be patched for a change of rowDelta rows in it, or null if it
+	// has to be rebuilt: because it already is dirty, or because the section changed in a way the model didn't see
+	private SectionRange rangeForSection(TableViewSectionProxy section, int rowDelta) {
+		if (dirty || viewModel == null || sectionRanges == null) {
+			return null;
+		}
+		ArrayList<TableViewSectionProxy> sections = proxy.getSectionsArray();
+		if (sections.size() != sectionRanges.size()) {
+			return null;
+		}
+		for (int i = 0; i < sectionRanges.size(); i++) {
+			SectionRange range = sectionRanges.get(i);
+			if (range.section != sections.get(i)) {
+				return null;
+			}
+			if (range.section == section) {
+				boolean hasHeaderTitle = section.getProperty(TiC.PROPERTY_HEADER_TITLE) != null;
+				boolean hasFooterTitle = section.getProperty(TiC.PROPERTY_FOOTER_TITLE) != null;
+				int headerItems = hasHeaderTitle ? 1 : 0;
+				if (section.getProperty(TiC.PROPERTY_HEADER_VIEW) instanceof TiViewProxy) {
+					headerItems++;
+				}
+				if (section.getRowCount() != range.rowCount + rowDelta || headerItems != range.headerItems
+					|| hasHeaderTitle != range.hasHeaderTitle || hasFooterTitle != range.hasFooterTitle) {
+					return null;
+				}
+				range.sectionIndex = i;
+				return range;
+			}
+		}
+		return null;
+	}
+
+	// Moves the items from position on, and the sections after range, by delta rows
+	private void shiftItems(int position, SectionRange range, int delta) {
+		int sectionEnd = range.start + range.headerItems + range.rowCount;
+		for (int i = position; i < viewModel.size(); i++) {
+			Item item = viewModel.get(i);
+			item.index += delta;
+			if (i < sectionEnd) {
+				item.indexInSection += delta;
+			}
+		}
+		for (int i = range.sectionIndex + 1; i < sectionRanges.size(); i++) {
+			SectionRange next = sectionRanges.get(i);
+			next.start += delta;
+			next.firstRowIndex += delta;
+		}
+	}
+
 	public int getViewIndex(int index) {
 		int position = -1;
 		// the View index can be larger than model index if there are headers.
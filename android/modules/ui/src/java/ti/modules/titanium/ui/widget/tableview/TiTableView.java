@@ -8,6 +8,9 @@ package ti.modules.titanium.ui.widget.tableview;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.appcelerator.kroll.KrollDict;
@@ -26,6 +29,7 @@ import ti.modules.titanium.ui.TableViewRowProxy;
 import ti.modules.titanium.ui.widget.searchbar.TiUISearchBar.OnSearchChangeListener;
 import ti.modules.titanium.ui.widget.tableview.TableViewModel.Item;
 import android.R;
+import android.app.Activity;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
@@ -50,6 +54,12 @@ public class TiTableView extends FrameLayout
 
 	//TODO make this configurable
 	protected static final int MAX_CLASS_NAMES = 32;
+	// Most rows of a class the row pool keeps, see TTVListAdapter.getView()
+	protected static final int MAX_POOLED_ROWS = 8;
+	// Fewest rows to search before filterAsync moves the search off the UI thread
+	protected static final int MIN_ASYNC_FILTER_ROWS = 500;
+
+	private static ExecutorService filterExecutor;
 
 	private TableViewModel viewModel;
 	private ListView listView;
@@ -60,11 +70,21 @@ public class TiTableView extends FrameLayout
 	private HashMap<String, Integer> rowTypes;
 	private AtomicInteger rowTypeCounter;
 
+	// Row views the list view handed back for a row of another class, kept for a later row of their own class
+	private HashMap<String, LinkedList<TiBaseTableViewItem>> rowPool;
+	private int rowsReused;
+	private int rowsFromPool;
+	private int rowsCreated;
+	private int rowsDiscarded;
+
 	private String filterAttribute;
 	private String filterText;
 
 	private TableViewProxy proxy;
 	private boolean filterCaseInsensitive = true;
+	private boolean filterAsync;
+	// Bumped when the filter attribute or case sensitivity changes, so the filter keys kept on items are recomputed
+	private int filterKeyVersion = 1;
 	private StateListDrawable selector;
 
 	public interface OnItemClickedListener {
@@ -77,71 +97,149 @@ public class TiTableView extends FrameLayout
 
 	class TTVListAdapter extends BaseAdapter {
 		TableViewModel viewModel;
+		// Positions of the items to show, or null to show every item
 		ArrayList<Integer> index;
 		private boolean filtered;
+		// Filter the index was built with, or null, the rows it was built from and the filterKeyVersion it matched
+		private String indexFilter;
+		private ArrayList<Item> indexItems;
+		private int indexFilterKeyVersion;
+		// Bumped whenever the index is rebuilt, so an index built in the background for an older filter is dropped
+		private volatile int indexGeneration;
 
 		TTVListAdapter(TableViewModel viewModel) {
 			this.viewModel = viewModel;
-			this.index = new ArrayList<Integer>(viewModel.getRowCount());
 			reIndexItems();
 		}
 
-		protected void registerClassName(String className) {
-			if (!rowTypes.containsKey(className)) {
+		protected int registerClassName(String className) {
+			Integer type = rowTypes.get(className);
+			if (type == null) {
 				Log.d(TAG, "registering new className " + className, Log.DEBUG_MODE);
-				rowTypes.put(className, rowTypeCounter.incrementAndGet());
+				// Once there are more classes than view types, classes share a type. getView() then gets handed
+				// rows of another class, which go to the row pool instead of being thrown away.
+				type = rowTypeCounter.incrementAndGet() % MAX_CLASS_NAMES;
+				rowTypes.put(className, type);
 			}
+			return type;
 		}
 
 		public void reIndexItems() {
+			reIndexItems(false);
+		}
+
+		// Rebuilds the index of the rows to show. When only the filter text changed, a query containing the one the
+		// current index was built with only searches the rows that matched before, unless the filter attribute or
+		// case sensitivity changed since. Returns false if the index is
+		// being built in the background and will be swapped in once it is done.
+		private boolean reIndexItems(boolean filterOnly) {
 			ArrayList<Item> items = viewModel.getViewModel();
 			int count = items.size();
-			index.clear();
+			indexGeneration++;
 
-			filtered = false;
-			if (filterAttribute != null && filterText != null && filterAttribute.length() > 0 && filterText.length() > 0) {
-				filtered = true;
-				String filter = filterText;
-				if (filterCaseInsensitive) {
-					filter = filterText.toLowerCase();
-				}
-				for(int i = 0; i < count; i++) {
-					boolean keep = true;
-					Item item = items.get(i);
-					registerClassName(item.className);
-					if (item.proxy.hasProperty(filterAttribute)) {
-						String t = TiConvert.toString(item.proxy.getProperty(filterAttribute));
-						if (filterCaseInsensitive) {
-							t = t.toLowerCase();
-						}
-						if(t.indexOf(filter) < 0) {
-							keep = false;
-						}
+			if (filterAttribute == null || filterText == null || filterAttribute.length() == 0 || filterText.length() == 0) {
+				setIndex(null, items, null);
+				return true;
+			}
+
+			final String filter = filterCaseInsensitive ? filterText.toLowerCase() : filterText;
+			ArrayList<Integer> candidates = null;
+			if (filterOnly && indexFilter != null && items == indexItems && indexFilterKeyVersion == filterKeyVersion
+				&& filter.contains(indexFilter)) {
+				candidates = index;
+			}
+
+			// Filter keys are read here, proxy properties must not be read from the filter thread
+			int size = candidates == null ? count : candidates.size();
+			final int[] rows = new int[size];
+			final String[] keys = new String[size];
+			for (int i = 0; i < size; i++) {
+				int row = candidates == null ? i : candidates.get(i);
+				rows[i] = row;
+				keys[i] = filterKeyFor(items.get(row));
+			}
+
+			if (!filterOnly || !filterAsync || size < MIN_ASYNC_FILTER_ROWS) {
+				setIndex(matchFilter(filter, rows, keys), items, filter);
+				return true;
+			}
+
+			final ArrayList<Item> filteredItems = items;
+			final int generation = indexGeneration;
+			getFilterExecutor().execute(new Runnable() {
+				public void run() {
+					if (generation != indexGeneration) {
+						return;
 					}
-					if (keep) {
-						index.add(i);
+					final ArrayList<Integer> matches = matchFilter(filter, rows, keys);
+					Activity activity = proxy.getActivity();
+					if (activity == null) {
+						return;
 					}
+					activity.runOnUiThread(new Runnable() {
+						public void run() {
+							// Drop the result if the data or the filter changed while it was being built
+							if (generation == indexGeneration && adapter == TTVListAdapter.this) {
+								setIndex(matches, filteredItems, filter);
+								TTVListAdapter.super.notifyDataSetChanged();
+							}
+						}
+					});
 				}
-			} else {
-				for(int i = 0; i < count; i++) {
-					Item item = items.get(i);
-					registerClassName(item.className);
-					index.add(i);
+			});
+			return false;
+		}
+
+		private void setIndex(ArrayList<Integer> index, ArrayList<Item> items, String filter) {
+			this.index = index;
+			indexItems = items;
+			indexFilter = filter;
+			indexFilterKeyVersion = filterKeyVersion;
+			filtered = filter != null;
+		}
+
+		// Returns the normalized value of the filter attribute, or null if the row doesn't have the attribute and is
+		// always shown. The key is kept on the item and only recomputed when the attribute's value is replaced.
+		private String filterKeyFor(Item item) {
+			if (!item.proxy.hasProperty(filterAttribute)) {
+				return null;
+			}
+			Object value = item.proxy.getProperty(filterAttribute);
+			if (item.filterKeyVersion != filterKeyVersion || item.filterKeySource != value || item.filterKey == null) {
+				String key = value == null ? "" : TiConvert.toString(value);
+				if (filterCaseInsensitive) {
+					key = key.toLowerCase();
 				}
+				item.filterKey = key;
+				item.filterKeySource = value;
+				item.filterKeyVersion = filterKeyVersion;
+			}
+			return item.filterKey;
+		}
+
+		public void filterChanged() {
+			if (reIndexItems(true)) {
+				super.notifyDataSetChanged();
 			}
 		}
 
 		public int getCount() {
-			//return viewModel.getViewModel().length();
+			if (index == null) {
+				return viewModel.getViewModel().size();
+			}
 			return index.size();
 		}
 
 		public Object getItem(int position) {
-			if (position >= index.size()) {
+			if (position >= getCount()) {
 				return null;
 			}
 
-			return viewModel.getViewModel().get(index.get(position));
+			return viewModel.getViewModel().get(getItemIndex(position));
+		}
+
+		public int getItemIndex(int position) {
+			return index == null ? position : index.get(position);
 		}
 
 		public long getItemId(int position) {
@@ -156,8 +254,7 @@ public class TiTableView extends FrameLayout
 		@Override
 		public int getItemViewType(int position) {
 			Item item = (Item) getItem(position);
-			registerClassName(item.className);
-			return rowTypes.get(item.className);
+			return registerClassName(TableViewModel.refreshClassName(item));
 		}
 
 		/*
@@ -174,31 +271,24 @@ public class TiTableView extends FrameLayout
 		 */
 		public View getView(int position, View convertView, ViewGroup parent) {
 			Item item = (Item) getItem(position);
+			TableViewModel.refreshClassName(item);
 			TiBaseTableViewItem v = null;
 			
 			if (convertView != null) {
 				v = (TiBaseTableViewItem) convertView;
-				// Default creates view for each Item
-				boolean sameView = false;
-				if (item.proxy instanceof TableViewRowProxy) {
-					TableViewRowProxy row = (TableViewRowProxy)item.proxy;
-					if (row.getTableViewRowProxyItem() != null) {
-						sameView = row.getTableViewRowProxyItem().equals(convertView);
-					}
+				if (canReuse(v, item)) {
+					rowsReused++;
+				} else {
+					Log.d(TAG, "Handed a view to convert with className " + v.getClassName() + " expected "
+						+ item.className, Log.DEBUG_MODE);
+					poolRow(v);
+					v = null;
 				}
-				if (!sameView) {
-					if (v.getClassName().equals(TableViewProxy.CLASSNAME_DEFAULT)) {
-						if (v.getRowData() != item) {
-							v = null;
-						}
-					} else {
-						// otherwise compare class names
-						if (!v.getClassName().equals(item.className)) {
-							Log.w(TAG, "Handed a view to convert with className " + v.getClassName() + " expected "
-								+ item.className, Log.DEBUG_MODE);
-							v = null;
-						}
-					}
+			}
+			if (v == null) {
+				v = takePooledRow(item.className);
+				if (v != null) {
+					rowsFromPool++;
 				}
 			}
 			if (v == null) {
@@ -230,11 +320,80 @@ public class TiTableView extends FrameLayout
 				}
 				v.setLayoutParams(new AbsListView.LayoutParams(
 					AbsListView.LayoutParams.FILL_PARENT, AbsListView.LayoutParams.FILL_PARENT));
+				rowsCreated++;
 			}
 			v.setRowData(item);
 			return v;
 		}
 
+		private boolean canReuse(TiBaseTableViewItem v, Item item) {
+			if (isStale(v)) {
+				return false;
+			}
+			if (item.proxy instanceof TableViewRowProxy) {
+				TableViewRowProxy row = (TableViewRowProxy)item.proxy;
+				if (row.getTableViewRowProxyItem() != null && row.getTableViewRowProxyItem().equals(v)) {
+					return true;
+				}
+			}
+			if (v.getClassName().equals(TableViewProxy.CLASSNAME_DEFAULT)) {
+				// Default creates view for each Item
+				return v.getRowData() == item;
+			}
+			// otherwise compare class names
+			return v.getClassName().equals(item.className);
+		}
+
+		private void poolRow(TiBaseTableViewItem v) {
+			String className = v.getClassName();
+			// Custom header views and default rows only ever show the item they were created for. Plain title
+			// headers are rebuilt from their item in setRowData, so they're pooled like any other row.
+			if (className.equals(TableViewProxy.CLASSNAME_HEADERVIEW) || className.equals(TableViewProxy.CLASSNAME_DEFAULT)) {
+				rowsDiscarded++;
+				return;
+			}
+			if (isStale(v)) {
+				rowsDiscarded++;
+				return;
+			}
+			LinkedList<TiBaseTableViewItem> rows = rowPool.get(className);
+			if (rows == null) {
+				rows = new LinkedList<TiBaseTableViewItem>();
+				rowPool.put(className, rows);
+			}
+			if (rows.size() < MAX_POOLED_ROWS) {
+				rows.add(v);
+			} else {
+				rowsDiscarded++;
+			}
+		}
+
+		// A row that gained properties or children while its view showed it applied them to the view, which then has
+		// more set than its class says. Such a view can't be handed to another row of that class.
+		private boolean isStale(TiBaseTableViewItem v) {
+			Item shown = v.getRowData();
+			if (shown == null || !(shown.proxy instanceof TableViewRowProxy)) {
+				return false;
+			}
+			return !v.getClassName().equals(TableViewModel.classNameForRow((TableViewRowProxy) shown.proxy));
+		}
+
+		private TiBaseTableViewItem takePooledRow(String className) {
+			LinkedList<TiBaseTableViewItem> rows = rowPool.get(className);
+			if (rows == null) {
+				return null;
+			}
+			// The row a pooled view last showed can still change it
+			while (!rows.isEmpty()) {
+				TiBaseTableViewItem v = rows.removeFirst();
+				if (!isStale(v)) {
+					return v;
+				}
+				rowsDiscarded++;
+			}
+			return null;
+		}
+
 		@Override
 		public boolean areAllItemsEnabled() {
 			return false;
@@ -276,6 +435,7 @@ public class TiTableView extends FrameLayout
 		rowTypes.put(TableViewProxy.CLASSNAME_HEADER, rowTypeCounter.incrementAndGet());
 		rowTypes.put(TableViewProxy.CLASSNAME_NORMAL, rowTypeCounter.incrementAndGet());
 		rowTypes.put(TableViewProxy.CLASSNAME_DEFAULT, rowTypeCounter.incrementAndGet());
+		rowPool = new HashMap<String, LinkedList<TiBaseTableViewItem>>();
 
 		this.viewModel = new TableViewModel(proxy);
 		this.listView = new ListView(getContext());
@@ -412,7 +572,7 @@ public class TiTableView extends FrameLayout
 	}
 	
 	public Item getItemAtPosition(int position) {
-		return viewModel.getViewModel().get(adapter.index.get(position));
+		return viewModel.getViewModel().get(adapter.getItemIndex(position));
 	}
 
 	public int getIndexFromXY(double x, double y) {
@@ -516,7 +676,9 @@ public class TiTableView extends FrameLayout
 		if (adapter != null) {
 			proxy.getActivity().runOnUiThread(new Runnable() {
 				public void run() {
-					dataSetChanged();
+					if (adapter != null) {
+						adapter.filterChanged();
+					}
 				}
 			});
 		}
@@ -524,13 +686,55 @@ public class TiTableView extends FrameLayout
 
 	public void setFilterAttribute(String filterAttribute) {
 		this.filterAttribute = filterAttribute;
+		filterKeyVersion++;
 	}
 
 	public void setFilterCaseInsensitive(boolean filterCaseInsensitive) {
 		this.filterCaseInsensitive  = filterCaseInsensitive;
+		filterKeyVersion++;
+	}
+
+	public void setFilterAsync(boolean filterAsync) {
+		this.filterAsync = filterAsync;
+	}
+
+	private static ArrayList<Integer> matchFilter(String filter, int[] rows, String[] keys) {
+		ArrayList<Integer> matches = new ArrayList<Integer>(rows.length);
+		for (int i = 0; i < rows.length; i++) {
+			if (keys[i] == null || keys[i].indexOf(filter) >= 0) {
+				matches.add(rows[i]);
+			}
+		}
+		return matches;
+	}
+
+	private static synchronized ExecutorService getFilterExecutor() {
+		if (filterExecutor == null) {
+			filterExecutor = Executors.newSingleThreadExecutor();
+		}
+		return filterExecutor;
+	}
+
+	/**
+	 * @return how many rows were shown by reusing the view the list view handed back, by taking a view from the row
+	 * pool, and by creating a new view, and how many views were thrown away because the pool for their class was full.
+	 */
+	public KrollDict getRowPoolStats() {
+		KrollDict stats = new KrollDict();
+		stats.put("reused", rowsReused);
+		stats.put("pooled", rowsFromPool);
+		stats.put("created", rowsCreated);
+		stats.put("discarded", rowsDiscarded);
+		return stats;
 	}
 
 	public void release() {
+		for (LinkedList<TiBaseTableViewItem> rows : rowPool.values()) {
+			for (TiBaseTableViewItem row : rows) {
+				row.release();
+			}
+		}
+		rowPool.clear();
 		adapter = null;
 		if (listView != null) {
 			listView.setAdapter(null);
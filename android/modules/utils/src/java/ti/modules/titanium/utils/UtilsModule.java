@@ -6,25 +6,49 @@
  */
 package ti.modules.titanium.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.appcelerator.kroll.KrollDict;
+import org.appcelerator.kroll.KrollFunction;
 import org.appcelerator.kroll.KrollModule;
 import org.appcelerator.kroll.annotations.Kroll;
 import org.appcelerator.kroll.common.Log;
 import org.appcelerator.titanium.TiBlob;
 import org.appcelerator.titanium.TiContext;
+import org.appcelerator.titanium.TiFileProxy;
+import org.appcelerator.titanium.io.TiStream;
+import org.appcelerator.titanium.util.TiStreamHelper;
+
+import ti.modules.titanium.codec.CodecModule;
+import android.util.Base64InputStream;
+import android.util.Base64OutputStream;
 
 @Kroll.module
 public class UtilsModule extends KrollModule
 {
 	private static final String TAG = "UtilsModule";
+	private static final int DIGEST_BUFFER_SIZE = 8192;
+	private static final int MAX_ASYNC_THREADS = 2;
+
+	// Runs the asynchronous digest and base64 operations on strings, blobs and files off the runtime thread.
+	private static ExecutorService executor;
+	// Streams can block until their peer sends, so they get their own pool instead of holding up the others.
+	private static ExecutorService streamExecutor;
 
 	public UtilsModule()
 	{
@@ -78,9 +102,77 @@ public class UtilsModule extends KrollModule
 		return null;
 	}
 
+	/**
+	 * Hashes a blob or file by streaming its content, so files are never loaded into memory.
+	 */
+	private String streamingHexDigest(String algorithm, Object obj)
+	{
+		try {
+			return hexDigest(algorithm, obj);
+		} catch (NoSuchAlgorithmException e) {
+			Log.e(TAG, algorithm + " is not a supported algorithm");
+		} catch (IOException e) {
+			Log.e(TAG, "Unable to read input: " + e.getMessage(), e);
+		}
+		return null;
+	}
+
+	private static String hexDigest(String algorithm, Object obj) throws IOException, NoSuchAlgorithmException
+	{
+		if (obj instanceof TiBlob) {
+			TiBlob blob = (TiBlob) obj;
+			// Digest files on disk through a mapping and in-memory blobs in place. Packaged resources have
+			// no file to map and would be read whole, so they are streamed.
+			if (blob.getType() != TiBlob.TYPE_FILE || blob.getNativeFile() != null) {
+				MessageDigest digest = MessageDigest.getInstance(algorithm);
+				digest.update(blob.getByteBuffer());
+				return toHex(digest.digest());
+			}
+		}
+
+		InputStream stream = openInputStream(obj);
+		try {
+			return streamHexDigest(algorithm, stream);
+		} finally {
+			closeQuietly(stream);
+		}
+	}
+
+	private static String streamHexDigest(String algorithm, InputStream stream) throws IOException, NoSuchAlgorithmException
+	{
+		MessageDigest digest = MessageDigest.getInstance(algorithm);
+		byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+		int count;
+		while ((count = stream.read(buffer)) != -1) {
+			digest.update(buffer, 0, count);
+		}
+		return toHex(digest.digest());
+	}
+
+	private static void closeQuietly(Closeable closeable)
+	{
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			Log.w(TAG, e.getMessage(), e);
+		}
+	}
+
+	private static String toHex(byte[] bytes)
+	{
+		StringBuilder result = new StringBuilder(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			result.append(Integer.toString((bytes[i] & 0xff) + 0x100, 16).substring(1));
+		}
+		return result.toString();
+	}
+
 	@Kroll.method
 	public String md5HexDigest(Object obj)
 	{
+		if (obj instanceof TiBlob || obj instanceof TiFileProxy) {
+			return streamingHexDigest("MD5", obj);
+		}
 		String data = convertToString(obj);
 		if (data != null) {
 			return DigestUtils.md5Hex(data);
@@ -91,6 +183,9 @@ public class UtilsModule extends KrollModule
 	@Kroll.method
 	public String sha1(Object obj)
 	{
+		if (obj instanceof TiBlob || obj instanceof TiFileProxy) {
+			return streamingHexDigest("SHA-1", obj);
+		}
 		String data = convertToString(obj);
 		if (data != null) {
 			return DigestUtils.shaHex(data);
@@ -107,6 +202,9 @@ public class UtilsModule extends KrollModule
 	@Kroll.method
 	public String sha256(Object obj)
 	{
+		if (obj instanceof TiBlob || obj instanceof TiFileProxy) {
+			return streamingHexDigest("SHA-256", obj);
+		}
 		String data = convertToString(obj);
 		// NOTE: DigestUtils with the version before 1.4 doesn't have the function sha256Hex,
 		// so we deal with it ourselves
@@ -115,12 +213,7 @@ public class UtilsModule extends KrollModule
 			MessageDigest algorithm = MessageDigest.getInstance("SHA-256");
 			algorithm.reset();
 			algorithm.update(b);
-			byte messageDigest[] = algorithm.digest();
-			StringBuilder result = new StringBuilder();
-			for (int i = 0; i < messageDigest.length; i++) {
-				result.append(Integer.toString((messageDigest[i] & 0xff) + 0x100, 16).substring(1));
-			}
-			return result.toString();
+			return toHex(algorithm.digest());
 		} catch (NoSuchAlgorithmException e) {
 			Log.e(TAG, "SHA256 is not a supported algorithm");
 		}
@@ -130,27 +223,182 @@ public class UtilsModule extends KrollModule
 	public String transcodeString(String orig, String inEncoding, String outEncoding)
 	{
 		try {
-			
 			Charset charsetOut = Charset.forName(outEncoding);
 			Charset charsetIn = Charset.forName(inEncoding);
 
-			ByteBuffer bufferIn = ByteBuffer.wrap(orig.getBytes(charsetIn.name()) );
-			CharBuffer dataIn = charsetIn.decode(bufferIn);
-			bufferIn.clear();
-			bufferIn = null;
-
-			ByteBuffer bufferOut = charsetOut.encode(dataIn);
-			dataIn.clear();
-			dataIn = null;
-			byte[] dataOut = bufferOut.array();
-			bufferOut.clear();
-			bufferOut = null;
-			
-			return new String(dataOut, charsetOut.name());
-			
+			CharBuffer dataIn = CodecModule.getDecoder(charsetIn.name()).decode(ByteBuffer.wrap(orig.getBytes(charsetIn.name())));
+			ByteBuffer bufferOut = CodecModule.getEncoder(charsetOut.name()).encode(dataIn);
+
+			// The encoder's array is usually bigger than its output
+			return new String(bufferOut.array(), bufferOut.arrayOffset(), bufferOut.limit(), charsetOut.name());
+
 		} catch (UnsupportedEncodingException e) {
 			Log.e(TAG, "Unsupported encoding: " + e.getMessage(), e);
+		} catch (CharacterCodingException e) {
+			Log.e(TAG, "Unable to transcode string: " + e.getMessage(), e);
 		}
 		return null;
 	}
+
+	@Kroll.method
+	public void md5HexDigestAsync(Object obj, KrollFunction callback)
+	{
+		digestAsync("MD5", obj, callback);
+	}
+
+	@Kroll.method
+	public void sha1Async(Object obj, KrollFunction callback)
+	{
+		digestAsync("SHA-1", obj, callback);
+	}
+
+	@Kroll.method
+	public void sha256Async(Object obj, KrollFunction callback)
+	{
+		digestAsync("SHA-256", obj, callback);
+	}
+
+	@Kroll.method
+	public void base64encodeToFile(Object obj, TiFileProxy file, @Kroll.argument(optional = true) KrollFunction callback)
+	{
+		base64ToFileAsync(obj, file, callback, true);
+	}
+
+	@Kroll.method
+	public void base64decodeToFile(Object obj, TiFileProxy file, @Kroll.argument(optional = true) KrollFunction callback)
+	{
+		base64ToFileAsync(obj, file, callback, false);
+	}
+
+	private static synchronized ExecutorService getExecutor(Object source)
+	{
+		if (source instanceof TiStream) {
+			if (streamExecutor == null) {
+				streamExecutor = Executors.newCachedThreadPool();
+			}
+			return streamExecutor;
+		}
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(MAX_ASYNC_THREADS);
+		}
+		return executor;
+	}
+
+	/**
+	 * Opens a stream over a String, TiBlob, TiFileProxy or TiStream argument.
+	 * The returned stream must be closed by the caller. Closing it leaves a TiStream argument open.
+	 */
+	private static InputStream openInputStream(Object obj) throws IOException
+	{
+		if (obj instanceof TiBlob) {
+			InputStream stream = ((TiBlob) obj).getInputStream();
+			if (stream == null) {
+				throw new IOException("Unable to read blob");
+			}
+			return stream;
+		} else if (obj instanceof TiFileProxy) {
+			return ((TiFileProxy) obj).getInputStream();
+		} else if (obj instanceof TiStream) {
+			return TiStreamHelper.toInputStream((TiStream) obj, DIGEST_BUFFER_SIZE);
+		} else if (obj instanceof String) {
+			return new ByteArrayInputStream(((String) obj).getBytes("UTF-8"));
+		}
+		throw new IllegalArgumentException("Invalid type for argument");
+	}
+
+	private void digestAsync(final String algorithm, final Object obj, final KrollFunction callback)
+	{
+		if (callback == null) {
+			throw new IllegalArgumentException("A callback is required");
+		}
+		// Validate the argument type on the calling thread so bad input still throws into JS.
+		if (!(obj instanceof String || obj instanceof TiBlob || obj instanceof TiFileProxy || obj instanceof TiStream)) {
+			throw new IllegalArgumentException("Invalid type for argument");
+		}
+
+		getExecutor(obj).execute(new Runnable() {
+			public void run()
+			{
+				String result = null;
+				int errorState = 0;
+				String errorDescription = "";
+
+				try {
+					result = hexDigest(algorithm, obj);
+				} catch (NoSuchAlgorithmException e) {
+					errorState = 1;
+					errorDescription = algorithm + " is not a supported algorithm";
+				} catch (IOException e) {
+					errorState = 1;
+					errorDescription = e.getMessage();
+				}
+
+				callback.callAsync(getKrollObject(), buildCallbackArgs(result, errorState, errorDescription));
+			}
+		});
+	}
+
+	private void base64ToFileAsync(final Object obj, final TiFileProxy file, final KrollFunction callback, final boolean encode)
+	{
+		if (file == null) {
+			throw new IllegalArgumentException("A destination file is required");
+		}
+		if (!(obj instanceof String || obj instanceof TiBlob || obj instanceof TiFileProxy || obj instanceof TiStream)) {
+			throw new IllegalArgumentException("Invalid type for argument");
+		}
+
+		getExecutor(obj).execute(new Runnable() {
+			public void run()
+			{
+				int errorState = 0;
+				String errorDescription = "";
+
+				InputStream in = null;
+				OutputStream out = null;
+				try {
+					in = openInputStream(obj);
+					out = file.getBaseFile().getOutputStream();
+					if (encode) {
+						// NO_WRAP matches the unchunked output of base64encode
+						out = new Base64OutputStream(out, android.util.Base64.NO_WRAP);
+					} else {
+						in = new Base64InputStream(in, android.util.Base64.DEFAULT);
+					}
+					byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+					int count;
+					while ((count = in.read(buffer)) != -1) {
+						out.write(buffer, 0, count);
+					}
+				} catch (IOException e) {
+					errorState = 1;
+					errorDescription = e.getMessage();
+				} catch (IllegalArgumentException e) {
+					// Thrown by Base64InputStream for malformed input
+					errorState = 1;
+					errorDescription = e.getMessage();
+				} finally {
+					if (in != null) {
+						closeQuietly(in);
+					}
+					if (out != null) {
+						closeQuietly(out);
+					}
+				}
+
+				if (callback != null) {
+					callback.callAsync(getKrollObject(), buildCallbackArgs(file, errorState, errorDescription));
+				}
+			}
+		});
+	}
+
+	private KrollDict buildCallbackArgs(Object result, int errorState, String errorDescription)
+	{
+		KrollDict callbackArgs = new KrollDict();
+		callbackArgs.put("result", result);
+		callbackArgs.put("errorState", errorState);
+		callbackArgs.put("errorDescription", errorDescription);
+
+		return callbackArgs;
+	}
 }
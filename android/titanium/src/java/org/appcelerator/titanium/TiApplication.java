@@ -363,6 +363,7 @@ public abstract class TiApplication extends Application implements Handler.Callb
 	{
 		stopExternalStorageMonitor();
 		accessibilityManager = null;
+		appProperties.commit();
 		super.onTerminate();
 	}
 
@@ -429,8 +430,7 @@ public abstract class TiApplication extends Application implements Handler.Callb
 
 		if (collectAnalytics()) {
 			analyticsIntent = new Intent(this, TiAnalyticsService.class);
-			analyticsModel = new TiAnalyticsModel(this);
-			needsEnrollEvent = analyticsModel.needsEnrollEvent();
+			needsEnrollEvent = getAnalyticsModel().needsEnrollEvent();
 
 			if (needsEnrollEvent()) {
 				String deployType = systemProperties.getString("ti.deploytype", "unknown");
@@ -547,6 +547,18 @@ public abstract class TiApplication extends Application implements Handler.Callb
 		return systemProperties;
 	}
 
+	/**
+	 * @return the analytics event store. The app and the analytics service share it, so the database has one
+	 * connection.
+	 */
+	public synchronized TiAnalyticsModel getAnalyticsModel()
+	{
+		if (analyticsModel == null) {
+			analyticsModel = new TiAnalyticsModel(this);
+		}
+		return analyticsModel;
+	}
+
 	public ITiAppInfo getAppInfo()
 	{
 		return appInfo;
@@ -647,6 +659,8 @@ public abstract class TiApplication extends Application implements Handler.Callb
 		} else if (event.getEventType() == TiAnalyticsEventFactory.EVENT_APP_END) {
 			needsStartEvent = true;
 			analyticsModel.addEvent(event);
+			// The process may not live long after the app ends, so don't leave the event buffered.
+			analyticsModel.flush();
 			sendAnalytics();
 
 		} else {
@@ -662,9 +676,16 @@ public abstract class TiApplication extends Application implements Handler.Callb
 	public boolean handleMessage(Message msg)
 	{
 		if (msg.what == MSG_SEND_ANALYTICS) {
-			if (startService(analyticsIntent) == null) {
-				Log.w(TAG, "Analytics service not found.");
-			}
+			// Make sure buffered events are on disk before the service reads them.
+			analyticsModel.flush(new Runnable()
+			{
+				public void run()
+				{
+					if (startService(analyticsIntent) == null) {
+						Log.w(TAG, "Analytics service not found.");
+					}
+				}
+			});
 			return true;
 		}
 		return false;
@@ -855,6 +876,7 @@ public abstract class TiApplication extends Application implements Handler.Callb
 	{
 		TiActivityWindows.dispose();
 		TiFileHelper.getInstance().destroyTempFiles();
+		appProperties.commit();
 	}
 
 	public void cancelTimers()
@@ -11,8 +11,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.HashMap;
 
@@ -259,7 +263,16 @@ public class TiBlob extends KrollProxy
 				//TODO deal with mimetypes.
 				bytes = (byte[]) data;
 				break;
-			case TYPE_FILE:	
+			case TYPE_FILE:
+				File nativeFile = getNativeFile();
+				if (nativeFile != null) {
+					// Read straight into an exactly sized array instead of growing a copy.
+					bytes = new byte[getLength()];
+					if (bytes.length > 0 && read(0, bytes, 0, bytes.length) != bytes.length) {
+						Log.w(TAG, "Unable to read the entire file " + nativeFile.getAbsolutePath());
+					}
+					break;
+				}
 				InputStream stream = getInputStream();
 				if (stream != null) {
 					try {
@@ -295,12 +308,205 @@ public class TiBlob extends KrollProxy
 			case TYPE_DATA:
 			case TYPE_IMAGE:
 				return ((byte[])data).length;
+			case TYPE_STRING:
+				return utf8Length((String) data);
 			default:
-				// this is probably overly expensive.. is there a better way?
 				return getBytes().length;
 		}
 	}
 
+	// Counts the bytes getBytes() would produce without encoding the string.
+	private static int utf8Length(String string)
+	{
+		int length = 0;
+		int count = string.length();
+		for (int i = 0; i < count; i++) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(string.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * @return the file backing this blob if it is a TYPE_FILE blob stored on the file system, null otherwise.
+	 * Blobs backed by packaged resources or other non-file sources return null.
+	 * @module.api
+	 */
+	public File getNativeFile()
+	{
+		if (type != TYPE_FILE || !(data instanceof TiBaseFile)) {
+			return null;
+		}
+		File file = ((TiBaseFile) data).getNativeFile();
+		if (file != null && file.isFile()) {
+			return file;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads a range of the blob into the given array without loading the rest of the content.
+	 * File blobs are read directly from disk at the requested position.
+	 * @param position the offset in the blob to start reading at.
+	 * @param buffer the array to read into.
+	 * @param offset the offset in buffer to start writing at.
+	 * @param length the maximum number of bytes to read.
+	 * @return the number of bytes read, or -1 if position is past the end of the blob.
+	 * @module.api
+	 */
+	public int read(long position, byte[] buffer, int offset, int length)
+	{
+		File nativeFile = getNativeFile();
+		if (nativeFile == null) {
+			byte[] bytes = type == TYPE_FILE ? null : getBytes();
+			if (bytes != null) {
+				if (position >= bytes.length) {
+					return -1;
+				}
+				int count = (int) Math.min(length, bytes.length - position);
+				System.arraycopy(bytes, (int) position, buffer, offset, count);
+				return count;
+			}
+
+			// Non file-system files (i.e. resources) can only be read sequentially.
+			InputStream stream = getInputStream();
+			if (stream == null) {
+				return -1;
+			}
+			try {
+				long skipped = 0;
+				while (skipped < position) {
+					long n = stream.skip(position - skipped);
+					if (n <= 0) {
+						return -1;
+					}
+					skipped += n;
+				}
+				return readFully(stream, buffer, offset, length);
+			} catch (IOException e) {
+				Log.e(TAG, "Unable to read blob: " + e.getMessage(), e);
+				return -1;
+			} finally {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					Log.w(TAG, e.getMessage(), e);
+				}
+			}
+		}
+
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(nativeFile, "r");
+			if (position >= file.length()) {
+				return -1;
+			}
+			file.seek(position);
+			int total = 0;
+			while (total < length) {
+				int count = file.read(buffer, offset + total, length - total);
+				if (count == -1) {
+					break;
+				}
+				total += count;
+			}
+			return total;
+		} catch (IOException e) {
+			Log.e(TAG, "Unable to read file blob: " + e.getMessage(), e);
+			return -1;
+		} finally {
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException e) {
+					Log.w(TAG, e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	private static int readFully(InputStream stream, byte[] buffer, int offset, int length) throws IOException
+	{
+		int total = 0;
+		while (total < length) {
+			int count = stream.read(buffer, offset + total, length - total);
+			if (count == -1) {
+				break;
+			}
+			total += count;
+		}
+		return total == 0 && length > 0 ? -1 : total;
+	}
+
+	/**
+	 * Returns the blob's content as a read-only buffer. File blobs stored on the file system are
+	 * memory mapped rather than copied into the heap, other blobs wrap their existing data.
+	 * @return a read-only ByteBuffer with the content of this blob.
+	 * @module.api
+	 */
+	public ByteBuffer getByteBuffer()
+	{
+		File nativeFile = getNativeFile();
+		if (nativeFile != null) {
+			RandomAccessFile file = null;
+			try {
+				file = new RandomAccessFile(nativeFile, "r");
+				FileChannel channel = file.getChannel();
+				// The mapping stays valid after the channel is closed.
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to map file blob, reading it instead: " + e.getMessage());
+			} finally {
+				if (file != null) {
+					try {
+						file.close();
+					} catch (IOException e) {
+						Log.w(TAG, e.getMessage(), e);
+					}
+				}
+			}
+		}
+		return ByteBuffer.wrap(getBytes()).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Copies the content of this blob to the given stream in chunks, without loading file blobs into memory.
+	 * The output stream is not closed.
+	 * @param out the stream to write to.
+	 * @throws IOException if reading the blob or writing the stream fails.
+	 * @module.api
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		if (type != TYPE_FILE) {
+			out.write(getBytes());
+			return;
+		}
+
+		InputStream stream = getInputStream();
+		if (stream == null) {
+			throw new IOException("Unable to open blob for reading");
+		}
+		try {
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, count);
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
 	/**
 	 * @return An InputStream for reading the data of this blob.
 	 * @module.api
@@ -933,6 +933,11 @@ public class TiC
 	 */
 	public static final String PROPERTY_DEST_POSITION = "destPosition";
 
+	/**
+	 * @module.api
+	 */
+	public static final String PROPERTY_DIRECT = "direct";
+
 	/**
 	 * @module.api
 	 */
@@ -1013,6 +1018,11 @@ public class TiC
 	 */
 	public static final String PROPERTY_FILE = "file";
 
+	/**
+	 * @module.api
+	 */
+	public static final String PROPERTY_FILTER_ASYNC = "filterAsync";
+
 	/**
 	 * @module.api
 	 */
@@ -1854,6 +1864,11 @@ public class TiC
 	 */
 	public static final String PROPERTY_STREET1 = "street1";
 
+	/**
+	 * @module.api
+	 */
+	public static final String PROPERTY_STRIDE = "stride";
+
 	/**
 	 * @module.api
 	 */
@@ -2063,6 +2078,11 @@ public class TiC
 	 */
 	public static final String PROPERTY_VIEWS = "views";
 
+	/**
+	 * @module.api
+	 */
+	public static final String PROPERTY_VIRTUALIZE_CHILDREN = "virtualizeChildren";
+
 	/**
 	 * @module.api
 	 */
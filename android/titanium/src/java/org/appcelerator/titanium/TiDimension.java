@@ -6,7 +6,8 @@
  */
 package org.appcelerator.titanium;
 
-import java.util.regex.Matcher;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.appcelerator.kroll.common.Log;
@@ -72,6 +73,37 @@ public class TiDimension
 	public static Pattern DIMENSION_PATTERN = Pattern.compile("(-?[0-9]*\\.?[0-9]+)\\s*(system|px|dp|dip|sp|sip|mm|cm|pt|in|%)?");
 	protected static DisplayMetrics metrics = null;
 
+	// Units of a parsed string without a unit, resolved to the application's default unit when used
+	private static final int UNITS_DEFAULT = -1;
+	private static final int UNITS_UNKNOWN = -2;
+
+	private static final ParsedDimension UNPARSED = new ParsedDimension(0, TypedValue.COMPLEX_UNIT_PX);
+	private static final ParsedDimension AUTO = new ParsedDimension(Integer.MIN_VALUE, COMPLEX_UNIT_AUTO);
+
+	// Apps use the same few dimension strings over and over, so the most recently used ones are kept parsed
+	private static final int MAX_PARSED_DIMENSIONS = 256;
+	private static final LinkedHashMap<String, ParsedDimension> parsedDimensions =
+		new LinkedHashMap<String, ParsedDimension>(64, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ParsedDimension> eldest)
+		{
+			return size() > MAX_PARSED_DIMENSIONS;
+		}
+	};
+
+	private static class ParsedDimension
+	{
+		final double value;
+		final int units;
+
+		ParsedDimension(double value, int units)
+		{
+			this.value = value;
+			this.units = units;
+		}
+	}
+
 	protected double value;
 	protected int units, valueType;
 
@@ -101,45 +133,130 @@ public class TiDimension
 		this.valueType = valueType;
 		this.units = TypedValue.COMPLEX_UNIT_PX;
 		if (svalue != null) {
-			Matcher m = DIMENSION_PATTERN.matcher(svalue.trim());
-			if (m.matches()) {
-				value = Float.parseFloat(m.group(1));
-
-				if (m.groupCount() == 2) {
-					String unit = m.group(2);
-					// if there is no unit, then use the default one
-					if (unit == null) {
-						unit = TiApplication.getInstance().getDefaultUnit();
-					}
-					if (UNIT_PX.equals(unit) || UNIT_SYSTEM.equals(unit)) {
-						this.units = TypedValue.COMPLEX_UNIT_PX;
-					} else if (UNIT_PT.equals(unit)) {
-						this.units = TypedValue.COMPLEX_UNIT_PT;
-					} else if (UNIT_DP.equals(unit) || UNIT_DIP.equals(unit)) {
-						this.units = TypedValue.COMPLEX_UNIT_DIP;
-					} else if (UNIT_SP.equals(unit) || UNIT_SIP.equals(unit)) {
-						this.units = TypedValue.COMPLEX_UNIT_SP;
-					} else if (UNIT_PERCENT.equals(unit)) {
-						this.units = COMPLEX_UNIT_PERCENT;
-					} else if (UNIT_MM.equals(unit)) {
-						this.units = TypedValue.COMPLEX_UNIT_MM;
-					} else if (UNIT_CM.equals(unit)) {
-						this.units = COMPLEX_UNIT_CM;
-					} else if (UNIT_IN.equals(unit)) {
-						this.units = TypedValue.COMPLEX_UNIT_IN;
-					} else {
-						if (unit != null) {
-							Log.w(TAG, "Unknown unit: " + unit, Log.DEBUG_MODE);
-						}
-					}
+			ParsedDimension parsed = parse(svalue);
+			this.value = parsed.value;
+			if (parsed.units == UNITS_DEFAULT) {
+				// if there is no unit, then use the default one
+				String unit = TiApplication.getInstance().getDefaultUnit();
+				int units = getUnits(unit, 0, unit.length());
+				if (units != UNITS_UNKNOWN) {
+					this.units = units;
+				} else {
+					Log.w(TAG, "Unknown unit: " + unit, Log.DEBUG_MODE);
 				}
-			} else if (svalue.trim().equals(UNIT_AUTO)) {
-				this.value = Integer.MIN_VALUE;
-				this.units = COMPLEX_UNIT_AUTO;
+			} else {
+				this.units = parsed.units;
 			}
 		}
 	}
 
+	// Returns the value and units of a dimension string, parsing it only the first time it is seen
+	private static ParsedDimension parse(String svalue)
+	{
+		ParsedDimension parsed;
+		synchronized (parsedDimensions) {
+			parsed = parsedDimensions.get(svalue);
+		}
+		if (parsed == null) {
+			parsed = scan(svalue);
+			synchronized (parsedDimensions) {
+				parsedDimensions.put(svalue, parsed);
+			}
+		}
+		return parsed;
+	}
+
+	// Hand-written equivalent of matching DIMENSION_PATTERN against the trimmed string, which avoids allocating a
+	// Matcher and the group strings for every dimension
+	private static ParsedDimension scan(String svalue)
+	{
+		int start = 0;
+		int end = svalue.length();
+		// Trim the same characters as String.trim()
+		while (start < end && svalue.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && svalue.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		int i = start;
+		if (i < end && svalue.charAt(i) == '-') {
+			i++;
+		}
+		int integerDigits = 0;
+		while (i < end && isDigit(svalue.charAt(i))) {
+			i++;
+			integerDigits++;
+		}
+		if (i < end && svalue.charAt(i) == '.') {
+			i++;
+			int fractionDigits = 0;
+			while (i < end && isDigit(svalue.charAt(i))) {
+				i++;
+				fractionDigits++;
+			}
+			if (fractionDigits == 0) {
+				return UNPARSED;
+			}
+		} else if (integerDigits == 0) {
+			return isUnit(svalue, start, end, UNIT_AUTO) ? AUTO : UNPARSED;
+		}
+		int numberEnd = i;
+
+		while (i < end && isWhitespace(svalue.charAt(i))) {
+			i++;
+		}
+		int units = UNITS_DEFAULT;
+		if (i < end) {
+			units = getUnits(svalue, i, end);
+			if (units == UNITS_UNKNOWN) {
+				return UNPARSED;
+			}
+		}
+
+		return new ParsedDimension(Float.parseFloat(svalue.substring(start, numberEnd)), units);
+	}
+
+	private static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+	// The characters matched by \s in DIMENSION_PATTERN
+	private static boolean isWhitespace(char c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	// Returns the units named by s between start and end, or UNITS_UNKNOWN
+	private static int getUnits(String s, int start, int end)
+	{
+		if (isUnit(s, start, end, UNIT_PX) || isUnit(s, start, end, UNIT_SYSTEM)) {
+			return TypedValue.COMPLEX_UNIT_PX;
+		} else if (isUnit(s, start, end, UNIT_DP) || isUnit(s, start, end, UNIT_DIP)) {
+			return TypedValue.COMPLEX_UNIT_DIP;
+		} else if (isUnit(s, start, end, UNIT_PERCENT)) {
+			return COMPLEX_UNIT_PERCENT;
+		} else if (isUnit(s, start, end, UNIT_PT)) {
+			return TypedValue.COMPLEX_UNIT_PT;
+		} else if (isUnit(s, start, end, UNIT_SP) || isUnit(s, start, end, UNIT_SIP)) {
+			return TypedValue.COMPLEX_UNIT_SP;
+		} else if (isUnit(s, start, end, UNIT_MM)) {
+			return TypedValue.COMPLEX_UNIT_MM;
+		} else if (isUnit(s, start, end, UNIT_CM)) {
+			return COMPLEX_UNIT_CM;
+		} else if (isUnit(s, start, end, UNIT_IN)) {
+			return TypedValue.COMPLEX_UNIT_IN;
+		}
+		return UNITS_UNKNOWN;
+	}
+
+	private static boolean isUnit(String s, int start, int end, String unit)
+	{
+		return end - start == unit.length() && s.startsWith(unit, start);
+	}
+
 	/**
 	 * @return the TiDimension's value.
 	 */
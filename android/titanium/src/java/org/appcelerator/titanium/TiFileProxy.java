@@ -13,6 +13,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
+import org.appcelerator.kroll.KrollDict;
 import org.appcelerator.kroll.KrollProxy;
 import org.appcelerator.kroll.annotations.Kroll;
 import org.appcelerator.kroll.common.Log;
@@ -321,8 +322,11 @@ public class TiFileProxy extends KrollProxy
 	}
 
 	@Kroll.method
-	public FileStreamProxy open(int mode) throws IOException
+	public FileStreamProxy open(int mode, @Kroll.argument(optional = true) KrollDict options) throws IOException
 	{
+		if (options != null && options.optBoolean("seekable", false)) {
+			return new FileStreamProxy(this, mode, options.optBoolean("mapped", false));
+		}
 		if(!(tbf.isOpen())) {
 			tbf.open(mode, true);
 		}
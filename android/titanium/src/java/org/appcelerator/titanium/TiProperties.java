@@ -1,26 +1,65 @@
 /**
  * Appcelerator Titanium Mobile
- * Copyright (c) 2009-2010 by Appcelerator, Inc. All Rights Reserved.
+ * Copyright (c) 2009-2012 by Appcelerator, Inc. All Rights Reserved.
  * Licensed under the terms of the Apache Public License
  * Please see the LICENSE included with this distribution for details.
  */
 package org.appcelerator.titanium;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.appcelerator.kroll.common.Log;
+
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Base64;
 
 /**
- * API for accessing, storing, and modifying application properties that are 
+ * API for accessing, storing, and modifying application properties that are
  * exposed via Ti.App.Properties.
+ *
+ * Values are read once into an in-memory map. Writes update the map immediately and are
+ * committed to the backing SharedPreferences in batches on a background thread.
  */
 public class TiProperties
 {
 	private static final String TAG = "TiProperties";
 
+	// How long writes are collected before being committed to disk.
+	private static final long COMMIT_DELAY = 100;
+	private static final String LIST_SUFFIX = ".list";
+	// Marks encoded lists, so a user key that happens to end in LIST_SUFFIX is not taken for one.
+	private static final String LIST_MARKER = "ti.list:";
+	private static final String LEGACY_LIST_LENGTH_SUFFIX = ".length";
+
+	private static Handler writerHandler;
+
 	SharedPreferences preferences;
 
+	private final HashMap<String, Object> values;
+	private SharedPreferences.Editor pendingEditor;
+	private boolean commitScheduled;
+	// Held from taking the pending editor until it is committed, so an older editor can't be written over a newer one.
+	// Separate from the values lock, so writes to the map don't wait on the disk.
+	private final Object commitLock = new Object();
+	private final Runnable commitRunnable = new Runnable()
+	{
+		public void run()
+		{
+			commit();
+		}
+	};
+
 	/**
 	 * Instantiates the private SharedPreferences collection with the given name and context.
 	 * This means no other Android application will have access to they keys and values.
@@ -33,6 +72,34 @@ public class TiProperties
 		if (clear) {
 			preferences.edit().clear().commit();
 		}
+		values = new HashMap<String, Object>(preferences.getAll());
+	}
+
+	private static synchronized Handler getWriterHandler()
+	{
+		if (writerHandler == null) {
+			HandlerThread writerThread = new HandlerThread("TiPropertiesWriter", Process.THREAD_PRIORITY_BACKGROUND);
+			writerThread.start();
+			writerHandler = new Handler(writerThread.getLooper());
+		}
+		return writerHandler;
+	}
+
+	private Object getValue(String key)
+	{
+		synchronized (values) {
+			return values.get(key);
+		}
+	}
+
+	/**
+	 * Returns the stored value for key without any conversion, or null if the key does not exist.
+	 * @param key the lookup key.
+	 * @return the raw value of key.
+	 */
+	public Object getPreferenceValue(String key)
+	{
+		return getValue(key);
 	}
 
 	/**
@@ -44,9 +111,7 @@ public class TiProperties
 	 */
 	public String getString(String key, String def)
 	{
-		Log.d(TAG, "getString called with key:" + key + ", def:" + def, Log.DEBUG_MODE);
-
-		Object value = preferences.getAll().get(key);
+		Object value = getValue(key);
 		if (value != null) {
 			return value.toString();
 		} else {
@@ -54,11 +119,15 @@ public class TiProperties
 		}
 	}
 
+	/**
+	 * @return the backing preferences. Writes made through this class may not have been committed yet,
+	 * call {@link #commit()} first when reading them directly.
+	 */
 	public SharedPreferences getPreference()
 	{
 		return preferences;
 	}
-	
+
 	/**
 	 * Maps the specified key with a String value. If value is null, existing key will be removed from preferences.
 	 * Otherwise, its value will be overwritten.
@@ -68,14 +137,16 @@ public class TiProperties
 	 */
 	public void setString(String key, String value)
 	{
-		Log.d(TAG,"setString called with key:"+key+", value:"+value, Log.DEBUG_MODE);
-		SharedPreferences.Editor editor = preferences.edit();
-		if (value==null) {
-			editor.remove(key);
-		} else {
-			editor.putString(key,value);
+		synchronized (values) {
+			if (value == null) {
+				values.remove(key);
+				edit().remove(key);
+			} else {
+				values.put(key, value);
+				edit().putString(key, value);
+			}
 		}
-		editor.commit();
+		scheduleCommit();
 	}
 
 	/**
@@ -87,20 +158,21 @@ public class TiProperties
 	 */
 	public int getInt(String key, int def)
 	{
-		Log.d(TAG, "getInt called with key:" + key + ", def:" + def, Log.DEBUG_MODE);
+		Object value = getValue(key);
+		if (value == null) {
+			return def;
+		}
+		if (value instanceof Integer) {
+			return (Integer) value;
+		}
+		//Value stored as something other than int. Try and convert to int
 		try {
-			return preferences.getInt(key,def);
-		} catch(ClassCastException cce) {
-			//Value stored as something other than int. Try and convert to int
-			String val = getString(key,"");
-			try {
-				return Integer.parseInt(val);
-			} catch (NumberFormatException nfe) {
-				return def;
-			}
+			return Integer.parseInt(value.toString());
+		} catch (NumberFormatException nfe) {
+			return def;
 		}
 	}
-	
+
 	/**
 	 * Maps the specified key with an int value. If key exists, its value will be overwritten.
 	 * @param key the key to set.
@@ -109,13 +181,13 @@ public class TiProperties
 	 */
 	public void setInt(String key, int value)
 	{
-		Log.d(TAG, "setInt called with key:" + key + ", value:" + value, Log.DEBUG_MODE);
-
-		SharedPreferences.Editor editor = preferences.edit();
-		editor.putInt(key,value);
-		editor.commit();
+		synchronized (values) {
+			values.put(key, value);
+			edit().putInt(key, value);
+		}
+		scheduleCommit();
 	}
-	
+
 	/**
 	 * Returns the mapping of a specified key as a Double. If key does not exist, returns the default value.
 	 * @param key the lookup key.
@@ -125,15 +197,12 @@ public class TiProperties
 	 */
 	public double getDouble(String key, double def)
 	{
-		Log.d(TAG, "getDouble called with key:" + key + ", def:" + def, Log.DEBUG_MODE);
-		String stringValue = null;
-		Object string = preferences.getAll().get(key);
-		if (string == null) {
+		Object value = getValue(key);
+		if (value == null) {
 			return def;
 		}
-		stringValue = string.toString();
 		try {
-			return Double.parseDouble(stringValue);
+			return Double.parseDouble(value.toString());
 		} catch (NumberFormatException e) {
 			return def;
 		}
@@ -148,13 +217,15 @@ public class TiProperties
 	 */
 	public void setDouble(String key, double value)
 	{
-		Log.d(TAG, "setDouble called with key:" + key + ", value:" + value, Log.DEBUG_MODE);
-		
-		SharedPreferences.Editor editor = preferences.edit();
-		editor.putString(key,value + "");
-		editor.commit();
+		// There is no double type in SharedPreferences, so doubles are stored as strings.
+		String stringValue = String.valueOf(value);
+		synchronized (values) {
+			values.put(key, stringValue);
+			edit().putString(key, stringValue);
+		}
+		scheduleCommit();
 	}
-	
+
 	/**
 	 * Returns the mapping of a specified key, as a Boolean. If key does not exist, returns the default value.
 	 * @param key the lookup key.
@@ -164,20 +235,17 @@ public class TiProperties
 	 */
 	public boolean getBool(String key, boolean def)
 	{
-		Log.d(TAG, "getBool called with key:" + key + ", def:" + def, Log.DEBUG_MODE);
-		try {
-			return preferences.getBoolean(key,def);
-		} catch(ClassCastException cce) {
-			//Value stored as something other than boolean. Try and convert to boolean
-			String val = getString(key,"");
-			try {
-				return Boolean.valueOf(val).booleanValue();
-			} catch (Exception e) {
-				return def;
-			}
+		Object value = getValue(key);
+		if (value == null) {
+			return def;
+		}
+		if (value instanceof Boolean) {
+			return (Boolean) value;
 		}
+		//Value stored as something other than boolean. Try and convert to boolean
+		return Boolean.valueOf(value.toString()).booleanValue();
 	}
-	
+
 	/**
 	 * Maps the specified key with a boolean value. If key exists, its value will be
 	 * overwritten.
@@ -187,11 +255,11 @@ public class TiProperties
 	 */
 	public void setBool(String key, boolean value)
 	{
-		Log.d(TAG, "setBool called with key:" + key + ", value:" + value, Log.DEBUG_MODE);
-
-		SharedPreferences.Editor editor = preferences.edit();
-		editor.putBoolean(key,value);
-		editor.commit();
+		synchronized (values) {
+			values.put(key, value);
+			edit().putBoolean(key, value);
+		}
+		scheduleCommit();
 	}
 
 	/**
@@ -203,22 +271,28 @@ public class TiProperties
 	 */
 	public String[] getList(String key, String def[])
 	{
-		Log.d(TAG, "getList called with key:" + key + ", def:" + def, Log.DEBUG_MODE);
+		Object encoded = getValue(key + LIST_SUFFIX);
+		if (isEncodedList(encoded)) {
+			String[] list = decodeList(encoded.toString());
+			return list != null ? list : def;
+		}
 
-		int length = preferences.getInt(key+".length", -1);
+		// Lists written by older versions are stored as one key per item.
+		int length = getInt(key + LEGACY_LIST_LENGTH_SUFFIX, -1);
 		if (length == -1) {
 			return def;
 		}
 
 		String list[] = new String[length];
 		for (int i = 0; i < length; i++) {
-			list[i] = preferences.getString(key+"."+i, "");
+			list[i] = getString(key + "." + i, "");
 		}
 		return list;
 	}
 
 	/**
-	 * Maps the specified key with String[] value. Also maps 'key.length' to 'value.length'.
+	 * Maps the specified key with String[] value. The list is stored as a single encoded entry
+	 * under 'key.list', replacing any per-item entries written by older versions.
 	 * If key exists, its value will be overwritten.
 	 * @param key the key to set.
 	 * @param value the value to set.
@@ -226,17 +300,76 @@ public class TiProperties
 	 */
 	public void setList(String key, String[] value)
 	{
-		Log.d(TAG, "setList called with key:" + key + ", value:" + value, Log.DEBUG_MODE);
+		String encoded = encodeList(value);
+		synchronized (values) {
+			removeLegacyList(key);
+			values.put(key + LIST_SUFFIX, encoded);
+			edit().putString(key + LIST_SUFFIX, encoded);
+		}
+		scheduleCommit();
+	}
 
-		SharedPreferences.Editor editor = preferences.edit();
-		for (int i = 0; i < value.length; i++)
-		{
-			editor.putString(key+"."+i, value[i]);
+	private void removeLegacyList(String key)
+	{
+		Object length = values.remove(key + LEGACY_LIST_LENGTH_SUFFIX);
+		if (length == null) {
+			return;
+		}
+		SharedPreferences.Editor editor = edit();
+		editor.remove(key + LEGACY_LIST_LENGTH_SUFFIX);
+		int count = length instanceof Integer ? (Integer) length : 0;
+		for (int i = 0; i < count; i++) {
+			values.remove(key + "." + i);
+			editor.remove(key + "." + i);
 		}
-		editor.putInt(key+".length", value.length);
+	}
 
-		editor.commit();
+	private static boolean isEncodedList(Object value)
+	{
+		return value instanceof String && ((String) value).startsWith(LIST_MARKER);
+	}
 
+	/**
+	 * Encodes a list as LIST_MARKER followed by base64 of [item count][utf-8 length, utf-8 bytes]...
+	 * so it fits in one string entry.
+	 */
+	private static String encodeList(String[] list)
+	{
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * (list.length + 1));
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(list.length);
+			for (String item : list) {
+				byte[] utf8 = (item == null ? "" : item).getBytes("UTF-8");
+				out.writeInt(utf8.length);
+				out.write(utf8);
+			}
+			out.close();
+			return LIST_MARKER + Base64.encodeToString(bytes.toByteArray(), Base64.NO_WRAP);
+		} catch (IOException e) {
+			// Not expected when writing to memory
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String[] decodeList(String encoded)
+	{
+		try {
+			byte[] data = Base64.decode(encoded.substring(LIST_MARKER.length()), Base64.NO_WRAP);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+			String[] list = new String[in.readInt()];
+			for (int i = 0; i < list.length; i++) {
+				byte[] utf8 = new byte[in.readInt()];
+				in.readFully(utf8);
+				list[i] = new String(utf8, "UTF-8");
+			}
+			return list;
+		} catch (IOException e) {
+			Log.e(TAG, "Unable to decode list property: " + e.getMessage());
+		} catch (IllegalArgumentException e) {
+			Log.e(TAG, "Unable to decode list property: " + e.getMessage());
+		}
+		return null;
 	}
 
 	/**
@@ -245,9 +378,9 @@ public class TiProperties
 	 * @module.api
 	 */
 	public boolean hasListProperty(String key) {
-		return hasProperty(key+".0");
+		return isEncodedList(getValue(key + LIST_SUFFIX)) || hasProperty(key+".0");
 	}
-	
+
 	/**
 	 * Returns whether key exists in preferences.
 	 * @param key the lookup key.
@@ -256,7 +389,9 @@ public class TiProperties
 	 */
 	public boolean hasProperty(String key)
 	{
-		return preferences.contains(key);
+		synchronized (values) {
+			return values.containsKey(key);
+		}
 	}
 
 	/**
@@ -267,16 +402,22 @@ public class TiProperties
 	public String[] listProperties()
 	{
 		ArrayList<String> properties = new ArrayList<String>();
-		for (String key : preferences.getAll().keySet())
-		{
-			if (key.endsWith(".length")) {
-				properties.add(key.substring(0, key.length()-7));
-			}
-			else if (key.matches(".+\\.\\d+$")) {
+		synchronized (values) {
+			for (Map.Entry<String, Object> entry : values.entrySet())
+			{
+				String key = entry.getKey();
+				if (key.endsWith(LIST_SUFFIX) && isEncodedList(entry.getValue())) {
+					properties.add(key.substring(0, key.length() - LIST_SUFFIX.length()));
+				}
+				else if (key.endsWith(LEGACY_LIST_LENGTH_SUFFIX)) {
+					properties.add(key.substring(0, key.length() - LEGACY_LIST_LENGTH_SUFFIX.length()));
+				}
+				else if (key.matches(".+\\.\\d+$")) {
 
-			}
-			else {
-				properties.add(key);
+				}
+				else {
+					properties.add(key);
+				}
 			}
 		}
 		return properties.toArray(new String[properties.size()]);
@@ -289,10 +430,116 @@ public class TiProperties
 	 */
 	public void removeProperty(String key)
 	{
-		if (preferences.contains(key)) {
-			SharedPreferences.Editor editor = preferences.edit();
-			editor.remove(key);
-			editor.commit();
+		synchronized (values) {
+			if (values.containsKey(key)) {
+				values.remove(key);
+				edit().remove(key);
+			} else {
+				return;
+			}
+		}
+		scheduleCommit();
+	}
+
+	/**
+	 * Sets several properties with a single commit. Booleans and strings keep their type, whole numbers
+	 * are stored as ints (JavaScript hands every number over as a double), other numbers as doubles,
+	 * arrays as lists and null values remove the key. Values that are already stored are left alone.
+	 * @param properties the keys and values to set.
+	 * @return true if any property was changed.
+	 */
+	public boolean setProperties(Map<String, Object> properties)
+	{
+		boolean changed = false;
+		synchronized (values) {
+			for (Map.Entry<String, Object> entry : properties.entrySet()) {
+				String key = entry.getKey();
+				Object value = entry.getValue();
+				if (value == null) {
+					if (values.containsKey(key)) {
+						removeProperty(key);
+						changed = true;
+					}
+				} else if (value instanceof Object[]) {
+					Object[] items = (Object[]) value;
+					String[] list = new String[items.length];
+					for (int i = 0; i < items.length; i++) {
+						list[i] = items[i] == null ? null : items[i].toString();
+					}
+					if (!encodeList(list).equals(values.get(key + LIST_SUFFIX))
+						|| values.containsKey(key + LEGACY_LIST_LENGTH_SUFFIX)) {
+						setList(key, list);
+						changed = true;
+					}
+				} else {
+					Object stored = toStoredValue(value);
+					if (!stored.equals(values.get(key))) {
+						if (stored instanceof Boolean) {
+							setBool(key, (Boolean) stored);
+						} else if (stored instanceof Integer) {
+							setInt(key, (Integer) stored);
+						} else {
+							setString(key, (String) stored);
+						}
+						changed = true;
+					}
+				}
+			}
+		}
+		return changed;
+	}
+
+	// Returns value in the form the setters keep it in the map: Boolean, Integer or String.
+	private static Object toStoredValue(Object value)
+	{
+		if (value instanceof Boolean || value instanceof Integer) {
+			return value;
+		}
+		if (value instanceof Number) {
+			double number = ((Number) value).doubleValue();
+			if (number == Math.rint(number) && number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+				return (int) number;
+			}
+			return String.valueOf(number);
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Writes any pending changes to disk on the calling thread.
+	 */
+	public void commit()
+	{
+		synchronized (commitLock) {
+			SharedPreferences.Editor editor;
+			synchronized (values) {
+				editor = pendingEditor;
+				pendingEditor = null;
+				commitScheduled = false;
+			}
+			if (editor != null && !editor.commit()) {
+				Log.w(TAG, "Unable to commit properties");
+			}
+		}
+	}
+
+	// Callers must hold the values lock.
+	private SharedPreferences.Editor edit()
+	{
+		if (pendingEditor == null) {
+			pendingEditor = preferences.edit();
+		}
+		return pendingEditor;
+	}
+
+	private void scheduleCommit()
+	{
+		synchronized (values) {
+			if (commitScheduled) {
+				return;
+			}
+			commitScheduled = true;
 		}
+		getWriterHandler().postDelayed(commitRunnable, COMMIT_DELAY);
 	}
 }
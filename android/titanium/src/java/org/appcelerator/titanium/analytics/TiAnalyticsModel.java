@@ -7,6 +7,7 @@
 package org.appcelerator.titanium.analytics;
 
 import java.util.HashMap;
+import java.util.LinkedList;
 
 import org.appcelerator.kroll.common.Log;
 import org.appcelerator.titanium.util.TiPlatformHelper;
@@ -18,6 +19,11 @@ import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
 
 public class TiAnalyticsModel extends SQLiteOpenHelper{
 
@@ -26,6 +32,24 @@ public class TiAnalyticsModel extends SQLiteOpenHelper{
 	private static final String DB_NAME = "tianalytics.db";
 	private static final int DB_VERSION = 4;
 
+	private static final int MAX_PENDING_EVENTS = 64;
+	private static final int FLUSH_COUNT = 20;
+	private static final long FLUSH_DELAY = 5000;
+	private static final int MSG_FLUSH = 100;
+	private static final int MSG_WRITE = 101;
+
+	// Ring buffer of events waiting to be written, guarded by itself.
+	private final TiAnalyticsEvent[] pendingEvents = new TiAnalyticsEvent[MAX_PENDING_EVENTS];
+	private int pendingHead;
+	private int pendingCount;
+	// Batches taken from the ring buffer when it was full, waiting for the writer thread. Guarded by pendingEvents.
+	private final LinkedList<TiAnalyticsEvent[]> fullBatches = new LinkedList<TiAnalyticsEvent[]>();
+	private Handler writerHandler;
+
+	private SQLiteDatabase database;
+	private SQLiteStatement insertStatement;
+	private SQLiteStatement deleteStatement;
+
 	public TiAnalyticsModel(Context context)
 	{
 		super(context, DB_NAME, null, DB_VERSION);
@@ -139,68 +163,236 @@ public class TiAnalyticsModel extends SQLiteOpenHelper{
 		db.execSQL(sql);
 	}
 
+	/**
+	 * Queues an event for insertion. Events are buffered in memory and written in a single
+	 * transaction on the writer thread once {@link #FLUSH_COUNT} events are pending or
+	 * {@link #FLUSH_DELAY} milliseconds have passed since the first buffered event.
+	 * @param event the event to store.
+	 */
 	public void addEvent(final TiAnalyticsEvent event)
 	{
-		SQLiteDatabase db = null;
-		try {
-			db = getWritableDatabase();
-			String sql =
-				"insert into Events(EventId, Type, Event, Timestamp, MID, SID, AppGUID, isJSON, Payload) values(?,?,?,?,?,?,?,?,?)"
-				;
-			Object[] args = {
-				TiPlatformHelper.createEventId(),
-				event.getEventType(),
-				event.getEventEvent(),
-				event.getEventTimestamp(),
-				event.getEventMid(),
-				event.getEventSid(),
-				event.getEventAppGuid(),
-				event.mustExpandPayload() ? 1 : 0,
-				event.getEventPayload()
-			};
-			db.execSQL(sql, args);
-		} catch (SQLException e) {
-			Log.e(TAG, "Error adding event: " + e);
-		} finally {
-			if (db != null) {
-				db.close();
+		synchronized (pendingEvents) {
+			if (pendingCount == pendingEvents.length) {
+				// Buffer is full, hand the whole batch to the writer thread rather than dropping the event.
+				fullBatches.add(takePendingEvents());
+				getWriterHandler().sendEmptyMessage(MSG_WRITE);
+			}
+			pendingEvents[(pendingHead + pendingCount) % pendingEvents.length] = event;
+			pendingCount++;
+			if (pendingCount >= FLUSH_COUNT) {
+				getWriterHandler().removeMessages(MSG_FLUSH);
+				getWriterHandler().sendEmptyMessage(MSG_FLUSH);
+
+			} else if (pendingCount == 1) {
+				getWriterHandler().sendEmptyMessageDelayed(MSG_FLUSH, FLUSH_DELAY);
 			}
 		}
 	}
 
-	public void deleteEvents(int records[])
+	/**
+	 * Asks the writer thread to write all buffered events immediately.
+	 */
+	public void flush()
 	{
-		if (records.length > 0) {
+		flush(null);
+	}
+
+	/**
+	 * Asks the writer thread to write all buffered events immediately.
+	 * @param onFlushed run on the writer thread once the buffered events have been written, may be null.
+	 */
+	public void flush(Runnable onFlushed)
+	{
+		Handler handler = getWriterHandler();
+		handler.removeMessages(MSG_FLUSH);
+		handler.sendMessage(handler.obtainMessage(MSG_FLUSH, onFlushed));
+	}
+
+	private Handler getWriterHandler()
+	{
+		synchronized (pendingEvents) {
+			if (writerHandler == null) {
+				HandlerThread writerThread = new HandlerThread("TiAnalyticsWriter", Process.THREAD_PRIORITY_BACKGROUND);
+				writerThread.start();
+				writerHandler = new Handler(writerThread.getLooper(), new Handler.Callback()
+				{
+					public boolean handleMessage(Message msg)
+					{
+						if (msg.what == MSG_FLUSH) {
+							flushPendingEvents();
+							if (msg.obj instanceof Runnable) {
+								((Runnable) msg.obj).run();
+							}
+							return true;
+
+						} else if (msg.what == MSG_WRITE) {
+							writeFullBatches();
+							return true;
+						}
+						return false;
+					}
+				});
+			}
+			return writerHandler;
+		}
+	}
+
+	private void flushPendingEvents()
+	{
+		// Batches taken from a full buffer hold older events, write them first.
+		writeFullBatches();
+		TiAnalyticsEvent[] events;
+		synchronized (pendingEvents) {
+			if (pendingCount == 0) {
+				return;
+			}
+			events = takePendingEvents();
+		}
+		writeEvents(events);
+	}
+
+	private void writeFullBatches()
+	{
+		while (true) {
+			TiAnalyticsEvent[] events;
+			synchronized (pendingEvents) {
+				if (fullBatches.isEmpty()) {
+					return;
+				}
+				events = fullBatches.removeFirst();
+			}
+			writeEvents(events);
+		}
+	}
+
+	// Empties the ring buffer, must hold the pendingEvents lock.
+	private TiAnalyticsEvent[] takePendingEvents()
+	{
+		TiAnalyticsEvent[] events = new TiAnalyticsEvent[pendingCount];
+		for (int i = 0; i < pendingCount; i++) {
+			int index = (pendingHead + i) % pendingEvents.length;
+			events[i] = pendingEvents[index];
+			pendingEvents[index] = null;
+		}
+		pendingHead = (pendingHead + pendingCount) % pendingEvents.length;
+		pendingCount = 0;
+		return events;
+	}
+
+	private void writeEvents(TiAnalyticsEvent[] events)
+	{
+		synchronized (this) {
 			SQLiteDatabase db = null;
 			try {
-				db = getWritableDatabase();
-				StringBuilder sb = new StringBuilder(256);
-				sb.append("delete from Events where _id in (");
-				for (int i = 0; i < records.length; i++) {
-					if (i > 0) {
-						sb.append(",");
+				db = getDatabase();
+				if (insertStatement == null) {
+					insertStatement = db.compileStatement(
+						"insert into Events(EventId, Type, Event, Timestamp, MID, SID, AppGUID, isJSON, Payload) values(?,?,?,?,?,?,?,?,?)");
+				}
+				db.beginTransaction();
+				try {
+					for (TiAnalyticsEvent event : events) {
+						insertStatement.clearBindings();
+						bindString(insertStatement, 1, TiPlatformHelper.createEventId());
+						bindString(insertStatement, 2, event.getEventType());
+						bindString(insertStatement, 3, event.getEventEvent());
+						bindString(insertStatement, 4, event.getEventTimestamp());
+						bindString(insertStatement, 5, event.getEventMid());
+						bindString(insertStatement, 6, event.getEventSid());
+						bindString(insertStatement, 7, event.getEventAppGuid());
+						insertStatement.bindLong(8, event.mustExpandPayload() ? 1 : 0);
+						bindString(insertStatement, 9, event.getEventPayload());
+						insertStatement.executeInsert();
 					}
-					sb.append(records[i]);
+					db.setTransactionSuccessful();
+				} finally {
+					db.endTransaction();
 				}
-				sb.append(")");
-				db.execSQL(sb.toString());
+				Log.d(TAG, "Wrote " + events.length + " analytics events", Log.DEBUG_MODE);
 			} catch (SQLException e) {
-				Log.e(TAG, "Error deleting events :" + e);
-			} finally {
-				if (db != null) {
-					db.close();
+				Log.e(TAG, "Error adding events: " + e);
+			}
+		}
+	}
+
+	private static void bindString(SQLiteStatement statement, int index, String value)
+	{
+		if (value == null) {
+			statement.bindNull(index);
+		} else {
+			statement.bindString(index, value);
+		}
+	}
+
+	/**
+	 * @return the connection shared by all operations on this model. It stays open until {@link #close()}.
+	 */
+	private synchronized SQLiteDatabase getDatabase()
+	{
+		if (database == null || !database.isOpen()) {
+			database = getWritableDatabase();
+			insertStatement = null;
+			deleteStatement = null;
+		}
+		return database;
+	}
+
+	public void deleteEvents(int records[])
+	{
+		if (records.length > 0) {
+			synchronized (this) {
+				SQLiteDatabase db = null;
+				try {
+					db = getDatabase();
+					if (deleteStatement == null) {
+						deleteStatement = db.compileStatement("delete from Events where _id = ?");
+					}
+					db.beginTransaction();
+					try {
+						for (int i = 0; i < records.length; i++) {
+							deleteStatement.bindLong(1, records[i]);
+							deleteStatement.execute();
+						}
+						db.setTransactionSuccessful();
+					} finally {
+						db.endTransaction();
+					}
+				} catch (SQLException e) {
+					Log.e(TAG, "Error deleting events :" + e);
 				}
 			}
 		}
 	}
 
+	@Override
+	public synchronized void close()
+	{
+		flushPendingEvents();
+		synchronized (pendingEvents) {
+			if (writerHandler != null) {
+				writerHandler.getLooper().quit();
+				writerHandler = null;
+			}
+		}
+		if (insertStatement != null) {
+			insertStatement.close();
+			insertStatement = null;
+		}
+		if (deleteStatement != null) {
+			deleteStatement.close();
+			deleteStatement = null;
+		}
+		database = null;
+		super.close();
+	}
+
 	public boolean hasEvents() {
 		boolean result = false;
 
 		SQLiteDatabase db = null;
 		Cursor c = null;
 		try {
-			db = getReadableDatabase();
+			db = getDatabase();
 
 			String sql =
 				"select exists(select _id from Events)"
@@ -217,8 +409,25 @@ public class TiAnalyticsModel extends SQLiteOpenHelper{
 			if (c != null) {
 				c.close();
 			}
-			if (db != null) {
-				db.close();
+		}
+
+		return result;
+	}
+
+	public int getEventCount() {
+		int result = 0;
+
+		Cursor c = null;
+		try {
+			c = getDatabase().rawQuery("select count(*) from Events", null);
+			if (c.moveToNext()) {
+				result = c.getInt(0);
+			}
+		} catch (SQLException e) {
+			Log.e(TAG, "Error counting events: ", e);
+		} finally {
+			if (c != null) {
+				c.close();
 			}
 		}
 
@@ -231,7 +440,7 @@ public class TiAnalyticsModel extends SQLiteOpenHelper{
 		SQLiteDatabase db = null;
 		Cursor c = null;
 		try {
-			db = getReadableDatabase();
+			db = getDatabase();
 
 			String sql =
 				"select _id, EventId, Type, Event, Timestamp, MID, SID, AppGUID, isJSON, Payload from Events " +
@@ -270,9 +479,6 @@ public class TiAnalyticsModel extends SQLiteOpenHelper{
 			if (c != null) {
 				c.close();
 			}
-			if (db != null) {
-				db.close();
-			}
 		}
 
 		return result;
@@ -284,7 +490,7 @@ public class TiAnalyticsModel extends SQLiteOpenHelper{
 		SQLiteDatabase db = null;
 		Cursor c = null;
 		try {
-			db = getReadableDatabase();
+			db = getDatabase();
 
 			String sql =
 				"select Value from Props where Name = 'Enrolled'"
@@ -301,29 +507,30 @@ public class TiAnalyticsModel extends SQLiteOpenHelper{
 			if (c != null) {
 				c.close();
 			}
-			if (db != null) {
-				db.close();
-			}
 		}
 
 		return result;
 	}
 
 	public void markEnrolled() {
-		String sql =
-			"update Props set Value = '1' where Name = 'Enrolled'"
-			;
-
-		SQLiteDatabase db = null;
-		try {
-			db = getWritableDatabase();
-			db.execSQL(sql);
-		} catch (SQLException e) {
-			Log.e(TAG, "Error marking enrolled :" + e);
-		} finally {
-			if (db != null) {
-				db.close();
+		// Run behind any buffered events so the enroll event is stored before the flag flips.
+		getWriterHandler().post(new Runnable()
+		{
+			public void run()
+			{
+				flushPendingEvents();
+				String sql =
+					"update Props set Value = '1' where Name = 'Enrolled'"
+					;
+
+				synchronized (TiAnalyticsModel.this) {
+					try {
+						getDatabase().execSQL(sql);
+					} catch (SQLException e) {
+						Log.e(TAG, "Error marking enrolled :" + e);
+					}
+				}
 			}
-		}
+		});
 	}
 }
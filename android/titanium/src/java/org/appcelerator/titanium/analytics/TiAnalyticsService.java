@@ -6,48 +6,75 @@
  */
 package org.appcelerator.titanium.analytics;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.http.HttpVersion;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
 import org.appcelerator.kroll.common.Log;
-import org.json.JSONArray;
+import org.appcelerator.titanium.TiApplication;
 import org.json.JSONObject;
 
+import android.app.AlarmManager;
+import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Process;
+import android.os.SystemClock;
 
 public class TiAnalyticsService extends Service
 {
 	private final static String TAG = "TiAnalyticsSvc";
 
-	private final static int BUCKET_SIZE_FAST_NETWORK = 10;
-	@SuppressWarnings("unused")
-	private final static int BUCKET_SIZE_SLOW_NETWORK = 5;
+	// Upper bound on records read from the database per batch, the byte budget usually stops sooner.
+	private final static int MAX_RECORDS_PER_BATCH = 100;
+	private final static int MAX_BATCH_BYTES = 32 * 1024;
+	// Send over metered networks only once this many events are waiting.
+	private final static int METERED_BACKLOG_THRESHOLD = 50;
+
+	private final static long INITIAL_BACKOFF = 30000;
+	private final static long MAX_BACKOFF = 3600000;
+	// How long to wait before checking again when sending was deferred for a metered network.
+	private final static long METERED_RETRY_DELAY = 900000;
 
 	private final static String ANALYTICS_URL = "https://api.appcelerator.net/p/v2/mobile-track";
 
-	private static AtomicBoolean sending;
+	private static AtomicBoolean sending = new AtomicBoolean(false);
+	private static HttpClient httpClient;
+	private static int failureCount = 0;
+	private static long nextAttemptTime = 0;
+	// Set only by test harnesses, see setTestEndpoint()
+	private static volatile String testEndpoint;
 
 	private ConnectivityManager connectivityManager;
-	public TiAnalyticsService() {
-		if (sending == null) {
-			this.sending = new AtomicBoolean(false);
-		}
-	}
+	private HandlerThread senderThread;
+	private Handler senderHandler;
+	private TiAnalyticsModel model;
 
 	@Override
 	public void onCreate()
@@ -55,12 +82,23 @@ public class TiAnalyticsService extends Service
 		super.onCreate();
 
 		connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+		// Share the app's model, a second helper would open a second connection to the same database.
+		model = TiApplication.getInstance().getAnalyticsModel();
+		senderThread = new HandlerThread("TiAnalyticsSender", Process.THREAD_PRIORITY_LOWEST);
+		senderThread.start();
+		senderHandler = new Handler(senderThread.getLooper());
 	}
 
 	@Override
 	public void onDestroy() {
 		super.onDestroy();
 
+		senderHandler.post(new Runnable() {
+			public void run()
+			{
+				senderThread.quit();
+			}
+		});
 		connectivityManager = null;
 	}
 
@@ -70,11 +108,12 @@ public class TiAnalyticsService extends Service
 
 		if (!sending.compareAndSet(false, true)) {
 			Log.i(TAG, "Send already in progress, skipping intent");
+			stopSelf(startId);
+			return;
 		}
 
-		final TiAnalyticsService self = this;
-
-		Thread t = new Thread(new Runnable(){
+		// Send once the events the app has buffered are in the database.
+		final Runnable send = new Runnable(){
 
 			public void run() {
 				Log.i(TAG, "Analytics Service Started");
@@ -82,99 +121,187 @@ public class TiAnalyticsService extends Service
 
 					if (connectivityManager == null) {
 						Log.w(TAG, "Connectivity manager not available.");
-						stopSelf(startId);
 						return;
 					}
-					TiAnalyticsModel model = new TiAnalyticsModel(self);
-					if (!model.hasEvents()) {
+					if (SystemClock.elapsedRealtime() < nextAttemptTime) {
+						Log.d(TAG, "Backing off after " + failureCount + " failed sends.", Log.DEBUG_MODE);
+						return;
+					}
+					int backlog = model.getEventCount();
+					if (backlog == 0) {
 						Log.d(TAG, "No events to send.", Log.DEBUG_MODE);
-						stopSelf(startId);
 						return;
 					}
 
-					while(model.hasEvents()) {
-						if(canSend())
-						{
-							HashMap<Integer,JSONObject> events = model.getEventsAsJSON(BUCKET_SIZE_FAST_NETWORK);
-
-							int len = events.size();
-							int[] eventIds = new int[len];
-							Iterator<Integer> keys = events.keySet().iterator();
-
-							JSONArray records = new JSONArray();
-							// build up data to send and records to delete on success
-							for(int i = 0; i < len; i++) {
-								int id = keys.next();
-								// ids are kept even on error JSON to prevent unrestrained growth
-								// and a queue blocked by bad records.
-								eventIds[i] = id;
-								records.put(events.get(id));
-							}
-							boolean deleteEvents = true;
-							if (records.length() > 0) {
-								String jsonData = records.toString() + "\n";
-
-								Log.d(TAG, "Sending " + records.length() + " analytics events.", Log.DEBUG_MODE);
-						   		try {
-							   		HttpPost httpPost = new HttpPost(ANALYTICS_URL);
-							   		StringEntity entity = new StringEntity(jsonData);
-							   		entity.setContentType("text/json");
-							   		httpPost.setEntity(entity);
-
-							   		HttpParams httpParams = new BasicHttpParams();
-							   		HttpConnectionParams.setConnectionTimeout(httpParams, 5000); //TODO use property
-							   		//HttpConnectionParams.setSoTimeout(httpParams, 15000); //TODO use property
-							   		HttpClient client = new DefaultHttpClient(httpParams);
-
-							   		ResponseHandler<String> responseHandler = new BasicResponseHandler();
-							   		client.getParams().setBooleanParameter("http.protocol.expect-continue", false);
-
-						   			@SuppressWarnings("unused")
-									String response = client.execute(httpPost, responseHandler);
-						   		} catch (Throwable t) {
-									Log.e(TAG, "Error posting events: " + t.getMessage(), t);
-						   			deleteEvents = false;
-						   			records = null;
-						   			break;
-						   		}
-							}
-
-							records = null;
-
-							if (deleteEvents) {
-								model.deleteEvents(eventIds);
-							}
-
-							events.clear();
-						} else {
-							Log.w(TAG, "Network unavailable, can't send analytics");
-							//TODO reset alarm?
+					while(backlog > 0) {
+						if (!canSend(backlog)) {
+							Log.w(TAG, "Network unavailable or metered, deferring analytics");
+							scheduleAlarm(METERED_RETRY_DELAY);
+							break;
+						}
+
+						int sent = sendBatch();
+						if (sent < 0) {
+							scheduleRetry();
+							break;
+						} else if (sent == 0) {
 							break;
 						}
+						backlog -= sent;
+						if (backlog <= 0) {
+							backlog = model.getEventCount();
+						}
 					}
 
 					Log.i(TAG, "Stopping Analytics Service");
-					stopSelf(startId);
 				} catch (Throwable t) {
 					Log.e(TAG, "Unhandled exception in analytics thread: ", t);
-					stopSelf(startId);
 				} finally {
 					if (!sending.compareAndSet(true, false)) {
 						Log.w(TAG, "Expected to be in a sending state. Sending was already false.", Log.DEBUG_MODE);
 					}
+					stopSelf(startId);
 				}
 			}
+		};
+		model.flush(new Runnable()
+		{
+			public void run()
+			{
+				senderHandler.post(send);
+			}
 		});
-		t.setPriority(Thread.MIN_PRIORITY);
-		t.start();
 	}
 
-	private boolean canSend() {
-		boolean result = false;
+	/**
+	 * Sends the oldest events, as many as fit in {@link #MAX_BATCH_BYTES} of uncompressed UTF-8 JSON.
+	 * @return the number of records removed from the queue, or -1 if the send failed.
+	 */
+	private int sendBatch() throws IOException
+	{
+		HashMap<Integer,JSONObject> events = model.getEventsAsJSON(MAX_RECORDS_PER_BATCH);
+		Integer[] seqs = events.keySet().toArray(new Integer[events.size()]);
+		Arrays.sort(seqs);
+
+		ByteArrayOutputStream jsonData = new ByteArrayOutputStream(MAX_BATCH_BYTES);
+		jsonData.write('[');
+		int count = 0;
+		for (Integer seq : seqs) {
+			byte[] record = events.get(seq).toString().getBytes("UTF-8");
+			// Always send at least one record so an oversized event can't block the queue.
+			if (count > 0 && jsonData.size() + record.length + 2 > MAX_BATCH_BYTES) {
+				break;
+			}
+			if (count > 0) {
+				jsonData.write(',');
+			}
+			jsonData.write(record);
+			count++;
+		}
+		jsonData.write(']');
+		jsonData.write('\n');
+
+		// ids are kept even on error JSON to prevent unrestrained growth
+		// and a queue blocked by bad records.
+		int[] eventIds = new int[count];
+		for (int i = 0; i < count; i++) {
+			eventIds[i] = seqs[i];
+		}
+
+		if (count > 0) {
+			try {
+				byte[] payload = gzip(jsonData.toByteArray());
+				Log.d(TAG, "Sending " + count + " analytics events, " + jsonData.size() + " bytes compressed to "
+					+ payload.length + ".", Log.DEBUG_MODE);
+
+				String endpoint = testEndpoint;
+				HttpPost httpPost = new HttpPost(endpoint != null ? endpoint : ANALYTICS_URL);
+				ByteArrayEntity entity = new ByteArrayEntity(payload);
+				entity.setContentType("text/json");
+				entity.setContentEncoding("gzip");
+				httpPost.setEntity(entity);
+
+				ResponseHandler<String> responseHandler = new BasicResponseHandler();
+				@SuppressWarnings("unused")
+				String response = getHttpClient().execute(httpPost, responseHandler);
+			} catch (Throwable t) {
+				Log.e(TAG, "Error posting events: " + t.getMessage(), t);
+				return -1;
+			}
+		}
+
+		failureCount = 0;
+		nextAttemptTime = 0;
+		model.deleteEvents(eventIds);
+		return count;
+	}
 
-		//int type = netInfo.getType();
-		//int subType = netInfo.getSubType();
-		// TODO change defaults based on implied speed of network
+	protected static byte[] gzip(byte[] data) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+		GZIPOutputStream out = new GZIPOutputStream(bytes);
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Sends events to a stand-in server instead of the analytics server, whatever the state of the network.
+	 * Only for test harnesses, which call it before the application starts. Applications have no way to set it.
+	 * @param url the endpoint to post events to, or null to go back to the analytics server.
+	 */
+	public static void setTestEndpoint(String url)
+	{
+		testEndpoint = url;
+	}
+
+	private void scheduleRetry()
+	{
+		failureCount++;
+		long delay = INITIAL_BACKOFF << Math.min(failureCount - 1, 16);
+		if (delay > MAX_BACKOFF) {
+			delay = MAX_BACKOFF;
+		}
+		nextAttemptTime = SystemClock.elapsedRealtime() + delay;
+		Log.w(TAG, "Analytics send failed " + failureCount + " times, retrying in " + delay + "ms");
+		scheduleAlarm(delay);
+	}
+
+	// Starts the service again after delay milliseconds, replacing any start scheduled before.
+	private void scheduleAlarm(long delay)
+	{
+		AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+		PendingIntent retry = PendingIntent.getService(this, 0, new Intent(this, TiAnalyticsService.class),
+			PendingIntent.FLAG_UPDATE_CURRENT);
+		alarmManager.set(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + delay, retry);
+	}
+
+	private static synchronized HttpClient getHttpClient()
+	{
+		if (httpClient == null) {
+			SchemeRegistry registry = new SchemeRegistry();
+			registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+			registry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+			HttpParams params = new BasicHttpParams();
+			ConnManagerParams.setMaxTotalConnections(params, 1);
+			HttpConnectionParams.setConnectionTimeout(params, 5000); //TODO use property
+			HttpProtocolParams.setUseExpectContinue(params, false);
+			HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+
+			httpClient = new DefaultHttpClient(new ThreadSafeClientConnManager(params, registry), params);
+		}
+		return httpClient;
+	}
+
+	private boolean canSend(int backlog) {
+		if (testEndpoint != null) {
+			return true;
+		}
+		boolean result = false;
 
 		NetworkInfo netInfo = null;
 		try {
@@ -183,11 +310,13 @@ public class TiAnalyticsService extends Service
 			Log.w(TAG, "Connectivity permissions have been removed from AndroidManifest.xml: " + e.getMessage());
 		}
 		if (netInfo != null && netInfo.isConnected() && !netInfo.isRoaming()) {
-			result = true;
+			// Wait for wifi unless enough events have piled up to be worth the radio time.
+			result = netInfo.getType() == ConnectivityManager.TYPE_WIFI || backlog >= METERED_BACKLOG_THRESHOLD;
 		}
 
 		return result;
 	}
+
 	@Override
 	public IBinder onBind(Intent intent) {
 		return null; // Not handling
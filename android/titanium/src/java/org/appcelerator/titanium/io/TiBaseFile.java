@@ -17,6 +17,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 
 import org.appcelerator.kroll.common.Log;
@@ -440,7 +441,7 @@ public abstract class TiBaseFile
 	protected void copyStream(Reader r, Writer w) throws IOException {
 		char[] buf = new char[8096];
 		int count = 0;
-		while((count = r.read(buf, 0, count)) != -1) {
+		while((count = r.read(buf, 0, buf.length)) != -1) {
 			w.write(buf, 0, count);
 		}
 	}
@@ -455,6 +456,28 @@ public abstract class TiBaseFile
 		return outstream;
 	}
 
+	/**
+	 * Returns a channel positioned where the next read from {@link #getExistingInputStream()} would start.
+	 * Any data buffered by the stream is discarded, so after using the channel reads continue from the
+	 * channel's position.
+	 * @return the channel, or null if this file is not open for binary reads or has no channel.
+	 * @throws IOException on error.
+	 */
+	public FileChannel getExistingInputChannel() throws IOException
+	{
+		return null;
+	}
+
+	/**
+	 * Returns a channel positioned after everything written to {@link #getExistingOutputStream()} so far.
+	 * @return the channel, or null if this file is not open for binary writes or has no channel.
+	 * @throws IOException on error.
+	 */
+	public FileChannel getExistingOutputChannel() throws IOException
+	{
+		return null;
+	}
+
 	/**
 	 * Implementing subclasses should return an InputStream that can be used to retrieve
 	 * the contents of the file.
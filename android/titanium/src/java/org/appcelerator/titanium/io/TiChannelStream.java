@@ -0,0 +1,40 @@
+/**
+ * Appcelerator Titanium Mobile
+ * Copyright (c) 2012 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Apache Public License
+ * Please see the LICENSE included with this distribution for details.
+ */
+package org.appcelerator.titanium.io;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A TiStream that can expose its underlying NIO channel, so bulk transfers between streams
+ * can move data channel to channel instead of through a BufferProxy.
+ */
+public interface TiChannelStream extends TiStream
+{
+	/**
+	 * @return the channel to read from at the stream's current position, or null if the stream cannot read
+	 * through a channel right now. The channel may be non-blocking, see {@link #awaitChannelReady(boolean)}.
+	 * @throws IOException on error.
+	 */
+	ReadableByteChannel getReadableChannel() throws IOException;
+
+	/**
+	 * @return the channel to write to at the stream's current position, or null if the stream cannot write
+	 * through a channel right now. The channel may be non-blocking, see {@link #awaitChannelReady(boolean)}.
+	 * @throws IOException on error.
+	 */
+	WritableByteChannel getWritableChannel() throws IOException;
+
+	/**
+	 * Blocks until a non-blocking channel returned by this stream can make progress.
+	 * Streams with blocking channels return immediately.
+	 * @param forWrite whether to wait for the writable channel rather than the readable one.
+	 * @throws IOException if the stream was closed while waiting.
+	 */
+	void awaitChannelReady(boolean forWrite) throws IOException;
+}
@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,6 +40,8 @@ public class TiFile extends TiBaseFile
 
 	private final File file;
 	private final String path;
+	private FileInputStream rawInstream;
+	private FileOutputStream rawOutstream;
 
 	
 	public TiFile(File file, String path, boolean stream)
@@ -276,6 +279,41 @@ public class TiFile extends TiBaseFile
 		return file;
 	}
 
+	@Override
+	public FileChannel getExistingInputChannel() throws IOException
+	{
+		if (rawInstream == null || instream == null) {
+			return null;
+		}
+		FileChannel channel = rawInstream.getChannel();
+		// Drop whatever the buffered stream has read ahead and rewind the channel to the logical position.
+		int buffered = instream.available() - rawInstream.available();
+		if (buffered > 0) {
+			long position = channel.position() - buffered;
+			instream.skip(buffered);
+			channel.position(position);
+		}
+		return channel;
+	}
+
+	@Override
+	public FileChannel getExistingOutputChannel() throws IOException
+	{
+		if (rawOutstream == null || outstream == null) {
+			return null;
+		}
+		outstream.flush();
+		return rawOutstream.getChannel();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		rawInstream = null;
+		rawOutstream = null;
+		super.close();
+	}
+
 	@Override
 	public List<String> getDirectoryListing() {
 		File dir = getNativeFile();
@@ -327,13 +365,15 @@ public class TiFile extends TiBaseFile
 				throw new FileNotFoundException(file.getAbsolutePath());
 			}
 			if (binary) {
-				instream = new BufferedInputStream(getInputStream());
+				rawInstream = new FileInputStream(file);
+				instream = new BufferedInputStream(rawInstream);
 			} else {
 				inreader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "utf-8"));
 			}
 		} else {
 			OutputStream os = getOutputStream(mode);
 			if (binary) {
+				rawOutstream = (os instanceof FileOutputStream) ? (FileOutputStream) os : null;
 				outstream = new BufferedOutputStream(os);
 			} else {
 				outwriter = new BufferedWriter(new OutputStreamWriter(os));
@@ -379,7 +419,7 @@ public class TiFile extends TiBaseFile
 			if (!stream) {
 				try {
 					open(append ? MODE_APPEND : MODE_WRITE, true);
-					copyStream(blob.getInputStream(), outstream);
+					blob.writeTo(outstream);
 				} finally {
 					close();
 				}
@@ -390,9 +430,17 @@ public class TiFile extends TiBaseFile
 				}
 
 				if (binary) {
-					copyStream(blob.getInputStream(), outstream);
+					blob.writeTo(outstream);
 				} else {
-					outwriter.write(new String(blob.getBytes(),"UTF-8"));
+					InputStream is = blob.getInputStream();
+					if (is == null) {
+						throw new IOException("Unable to read blob");
+					}
+					try {
+						copyStream(new InputStreamReader(is, "UTF-8"), outwriter);
+					} finally {
+						is.close();
+					}
 				}
 			}
 		}
@@ -30,6 +30,7 @@ import org.appcelerator.titanium.util.TiAnimationBuilder;
 import org.appcelerator.titanium.util.TiConvert;
 import org.appcelerator.titanium.util.TiUrl;
 import org.appcelerator.titanium.view.TiAnimation;
+import org.appcelerator.titanium.view.TiCompositeLayout;
 import org.appcelerator.titanium.view.TiUIView;
 
 import android.app.Activity;
@@ -69,8 +70,6 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 	private static final int MSG_FIRST_ID = KrollProxy.MSG_LAST_ID + 1;
 
 	private static final int MSG_GETVIEW = MSG_FIRST_ID + 100;
-	private static final int MSG_ADD_CHILD = MSG_FIRST_ID + 102;
-	private static final int MSG_REMOVE_CHILD = MSG_FIRST_ID + 103;
 	private static final int MSG_BLUR = MSG_FIRST_ID + 104;
 	private static final int MSG_FOCUS = MSG_FIRST_ID + 105;
 	private static final int MSG_SHOW = MSG_FIRST_ID + 106;
@@ -84,6 +83,71 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 
 	protected static final int MSG_LAST_ID = MSG_FIRST_ID + 999;
 
+	private static class ChildOperation
+	{
+		final TiViewProxy parent;
+		final TiViewProxy child;
+		final boolean add;
+
+		ChildOperation(TiViewProxy parent, TiViewProxy child, boolean add)
+		{
+			this.parent = parent;
+			this.child = child;
+			this.add = add;
+		}
+	}
+
+	// Adds and removes made off the UI thread, or during batchUpdates(), while the parent view exists. They are
+	// applied together, in order, by a single pass on the UI thread. All of the state below, and changes to any
+	// proxy's children list, are guarded by pendingChildOperations.
+	private static final ArrayList<ChildOperation> pendingChildOperations = new ArrayList<ChildOperation>();
+	private static boolean childFlushScheduled = false;
+	// Number of batchUpdates() calls in progress, the flush is held back until it is 0
+	private static int batchDepth = 0;
+
+	private static final Runnable flushChildOperations = new Runnable() {
+		public void run()
+		{
+			flushChildOperations();
+		}
+	};
+
+	/**
+	 * Bounds of a view as of its last layout pass, in pixels and in the default unit. Instances are never
+	 * modified, so the runtime thread can read the latest one without a round trip to the UI thread.
+	 */
+	private static class LayoutGeometry
+	{
+		final int left, top, width, height, nativeWidth, nativeHeight;
+		final double x, y, defaultWidth, defaultHeight, defaultNativeWidth, defaultNativeHeight;
+
+		LayoutGeometry(View parent, int left, int top, int width, int height, int nativeWidth, int nativeHeight)
+		{
+			this.left = left;
+			this.top = top;
+			this.width = width;
+			this.height = height;
+			this.nativeWidth = nativeWidth;
+			this.nativeHeight = nativeHeight;
+
+			x = new TiDimension(left, TiDimension.TYPE_LEFT).getAsDefault(parent);
+			y = new TiDimension(top, TiDimension.TYPE_TOP).getAsDefault(parent);
+			defaultWidth = new TiDimension(width, TiDimension.TYPE_WIDTH).getAsDefault(parent);
+			defaultHeight = new TiDimension(height, TiDimension.TYPE_HEIGHT).getAsDefault(parent);
+			defaultNativeWidth = new TiDimension(nativeWidth, TiDimension.TYPE_WIDTH).getAsDefault(parent);
+			defaultNativeHeight = new TiDimension(nativeHeight, TiDimension.TYPE_HEIGHT).getAsDefault(parent);
+		}
+
+		boolean matches(int left, int top, int width, int height, int nativeWidth, int nativeHeight)
+		{
+			return this.left == left && this.top == top && this.width == width && this.height == height
+				&& this.nativeWidth == nativeWidth && this.nativeHeight == nativeHeight;
+		}
+	}
+
+	// Replaced, never modified, by the UI thread each time the parent layout moves or resizes this view
+	private volatile LayoutGeometry geometry;
+
 	protected ArrayList<TiViewProxy> children;
 	protected WeakReference<TiViewProxy> parent;
 
@@ -203,18 +267,6 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 				result.setResult(handleGetView());
 				return true;
 			}
-			case MSG_ADD_CHILD : {
-				AsyncResult result = (AsyncResult) msg.obj;
-				handleAdd((TiViewProxy) result.getArg());
-				result.setResult(null); //Signal added.
-				return true;
-			}
-			case MSG_REMOVE_CHILD : {
-				AsyncResult result = (AsyncResult) msg.obj;
-				handleRemove((TiViewProxy) result.getArg());
-				result.setResult(null); //Signal removed.
-				return true;
-			}
 			case MSG_BLUR : {
 				handleBlur();
 				return true;
@@ -317,18 +369,124 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 	}
 	*/
 
+	/**
+	 * @return the position and size of the view as of its last layout pass. Views that have not been
+	 * laid out by a Titanium layout yet are measured on the UI thread instead.
+	 */
 	@Kroll.getProperty @Kroll.method
 	public KrollDict getRect()
 	{
-		return (KrollDict) TiMessenger.sendBlockingMainMessage(getMainHandler().obtainMessage(MSG_GETRECT), getActivity());
+		LayoutGeometry geometry = this.geometry;
+		if (geometry == null) {
+			return measureRect();
+		}
+
+		KrollDict d = new KrollDict();
+		d.put(TiC.PROPERTY_WIDTH, geometry.defaultWidth);
+		d.put(TiC.PROPERTY_HEIGHT, geometry.defaultHeight);
+		d.put(TiC.PROPERTY_X, geometry.x);
+		d.put(TiC.PROPERTY_Y, geometry.y);
+		return d;
 	}
 
+	/**
+	 * @return the size of the view as of its last layout pass. Views that have not been laid out by a
+	 * Titanium layout yet are measured on the UI thread instead.
+	 */
 	@Kroll.getProperty @Kroll.method
 	public KrollDict getSize()
+	{
+		LayoutGeometry geometry = this.geometry;
+		if (geometry == null) {
+			return measureSize();
+		}
+
+		KrollDict d = new KrollDict();
+		d.put(TiC.PROPERTY_X, 0);
+		d.put(TiC.PROPERTY_Y, 0);
+		d.put(TiC.PROPERTY_WIDTH, geometry.defaultNativeWidth);
+		d.put(TiC.PROPERTY_HEIGHT, geometry.defaultNativeHeight);
+		return d;
+	}
+
+	/**
+	 * Reads the position and size of the native view on the UI thread, blocking until it is done.
+	 * @return the same dictionary as {@link #getRect()}.
+	 */
+	@Kroll.method
+	public KrollDict measureRect()
+	{
+		return (KrollDict) TiMessenger.sendBlockingMainMessage(getMainHandler().obtainMessage(MSG_GETRECT), getActivity());
+	}
+
+	/**
+	 * Reads the size of the native view on the UI thread, blocking until it is done.
+	 * @return the same dictionary as {@link #getSize()}.
+	 */
+	@Kroll.method
+	public KrollDict measureSize()
 	{
 		return (KrollDict) TiMessenger.sendBlockingMainMessage(getMainHandler().obtainMessage(MSG_GETSIZE), getActivity());
 	}
 
+	/**
+	 * Records the bounds of this proxy's view for {@link #getRect()} and {@link #getSize()}. Must be called
+	 * on the UI thread once the view has been laid out.
+	 * @param parent the view this proxy's view was laid out in.
+	 */
+	public void updateGeometry(View parent)
+	{
+		if (view == null) {
+			return;
+		}
+		View outerView = view.getOuterView();
+		View nativeView = view.getNativeView();
+		if (outerView == null || nativeView == null) {
+			return;
+		}
+
+		int left = outerView.getLeft();
+		int top = outerView.getTop();
+		int width = outerView.getWidth();
+		int height = outerView.getHeight();
+		int nativeWidth = nativeView.getWidth();
+		int nativeHeight = nativeView.getHeight();
+
+		// Most layout passes leave a view where it was, so only changes allocate a new snapshot
+		LayoutGeometry current = geometry;
+		if (current == null || !current.matches(left, top, width, height, nativeWidth, nativeHeight)) {
+			geometry = new LayoutGeometry(parent, left, top, width, height, nativeWidth, nativeHeight);
+		}
+	}
+
+	/**
+	 * Returns the measure and layout pass counters of this view's layout. The counters are only written on the UI
+	 * thread and are meant for profiling, so a read from another thread may be slightly out of date.
+	 * @return the dictionary from {@link TiCompositeLayout#getLayoutStats()}, or an empty dictionary if the view
+	 * does not use a TiCompositeLayout.
+	 */
+	@Kroll.method
+	public KrollDict getLayoutStats()
+	{
+		TiCompositeLayout layout = getCompositeLayout();
+		return (layout == null ? new KrollDict() : layout.getLayoutStats());
+	}
+
+	@Kroll.method
+	public void resetLayoutStats()
+	{
+		TiCompositeLayout layout = getCompositeLayout();
+		if (layout != null) {
+			layout.resetLayoutStats();
+		}
+	}
+
+	private TiCompositeLayout getCompositeLayout()
+	{
+		View nativeView = (view == null ? null : view.getNativeView());
+		return (nativeView instanceof TiCompositeLayout ? (TiCompositeLayout) nativeView : null);
+	}
+
 	@Kroll.getProperty @Kroll.method
 	public Object getWidth()
 	{
@@ -474,8 +632,7 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 		if (children != null) {
 			try {
 				for (TiViewProxy p : children) {
-					TiUIView cv = p.getOrCreateView();
-					view.add(cv);
+					realizeChildView(view, p);
 				}
 			} catch (ConcurrentModificationException e) {
 				Log.e(TAG, e.getMessage(), e);
@@ -494,6 +651,18 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 		realizeViews(view, true);
 	}
 
+	/**
+	 * Creates the view of a child and adds it to this proxy's view. Subclasses can override this to defer creating
+	 * the child's view, as long as they add it to the view once it is created.
+	 * @param view this proxy's view.
+	 * @param child the child proxy.
+	 */
+	protected void realizeChildView(TiUIView view, TiViewProxy child)
+	{
+		TiUIView cv = child.getOrCreateView();
+		view.add(cv);
+	}
+
 	public void releaseViews()
 	{
 		if (view != null) {
@@ -505,6 +674,7 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 			view.release();
 			view = null;
 		}
+		geometry = null;
 		setModelListener(null);
 		KrollRuntime.suggestGC();
 	}
@@ -518,7 +688,9 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 	public abstract TiUIView createView(Activity activity);
 
 	/**
-	 * Adds a child to this view proxy.
+	 * Adds a child to this view proxy. When called off the UI thread, or during {@link #batchUpdates(KrollFunction)},
+	 * after this proxy's view has been created, the child's view is created and attached asynchronously,
+	 * together with any other pending adds and removes.
 	 * @param child The child view proxy to add.
 	 * @module.api
 	 */
@@ -535,15 +707,20 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 		}
 
 		if (peekView() != null) {
-			if (TiApplication.isUIThread()) {
+			if (canApplyChildOperation()) {
+				// Earlier changes must land first so children stay in order
+				flushChildOperations();
 				handleAdd(child);
 				return;
 			}
 
-			TiMessenger.sendBlockingMainMessage(getMainHandler().obtainMessage(MSG_ADD_CHILD), child);
+			child.parent = new WeakReference<TiViewProxy>(this);
+			queueChildOperation(new ChildOperation(this, child, true));
 
 		} else {
-			children.add(child);
+			synchronized (pendingChildOperations) {
+				children.add(child);
+			}
 			child.parent = new WeakReference<TiViewProxy>(this);
 		}
 		//TODO zOrder
@@ -551,21 +728,22 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 
 	public void handleAdd(TiViewProxy child)
 	{
-		children.add(child);
+		synchronized (pendingChildOperations) {
+			children.add(child);
+		}
 		child.parent = new WeakReference<TiViewProxy>(this);
 		if (view != null) {
 			child.setActivity(getActivity());
 			if (this instanceof DecorViewProxy) {
 				child.isDecorView = true;
 			}
-			TiUIView cv = child.getOrCreateView();
-
-			view.add(cv);
+			realizeChildView(view, child);
 		}
 	}
 
 	/**
-	 * Removes a view from this view proxy, releasing the underlying native view if it exists.
+	 * Removes a view from this view proxy, releasing the underlying native view if it exists. Like
+	 * {@link #add(TiViewProxy)}, the native view is removed asynchronously when called off the UI thread.
 	 * @param child The child to remove.
 	 * @module.api
 	 */
@@ -578,16 +756,19 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 		}
 
 		if (peekView() != null) {
-			if (TiApplication.isUIThread()) {
+			if (canApplyChildOperation()) {
+				flushChildOperations();
 				handleRemove(child);
 				return;
 			}
 
-			TiMessenger.sendBlockingMainMessage(getMainHandler().obtainMessage(MSG_REMOVE_CHILD), child);
+			queueChildOperation(new ChildOperation(this, child, false));
 
 		} else {
 			if (children != null) {
-				children.remove(child);
+				synchronized (pendingChildOperations) {
+					children.remove(child);
+				}
 				if (child.parent != null && child.parent.get() == this) {
 					child.parent = null;
 				}
@@ -603,20 +784,103 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 	public void removeAllChildren()
 	{
 		if (children != null) {
-			//children might be altered while we loop through it (threading)
-			//so we first copy children as it was when asked to remove all children
-			ArrayList<TiViewProxy> childViews = new ArrayList<TiViewProxy>();
-			childViews.addAll(children);
-			for (TiViewProxy child : childViews) {
+			// Take the children as they are when asked, including pending adds. Off the UI thread
+			// the removes are queued, so they are all applied in one pass.
+			for (TiViewProxy child : getChildren()) {
 				remove(child);
 			}
 		}
 	}
 
+	/**
+	 * Calls a function and holds back the native changes from any add or remove it makes, on any view,
+	 * until it returns. They are then applied in a single pass on the UI thread, so views are created
+	 * and laid out once for the whole batch. Calls can be nested, the changes are applied when the
+	 * outermost call returns. This holds on the UI thread as well, where adds and removes are otherwise
+	 * applied immediately.
+	 * @param updates the function making the changes.
+	 */
+	@Kroll.method
+	public void batchUpdates(KrollFunction updates)
+	{
+		synchronized (pendingChildOperations) {
+			batchDepth++;
+		}
+		try {
+			updates.call(getKrollObject(), new Object[0]);
+
+		} finally {
+			boolean flush = false;
+			synchronized (pendingChildOperations) {
+				batchDepth--;
+				if (batchDepth == 0 && !childFlushScheduled && !pendingChildOperations.isEmpty()) {
+					childFlushScheduled = true;
+					flush = true;
+				}
+			}
+			if (flush) {
+				TiMessenger.postOnMain(flushChildOperations);
+			}
+		}
+	}
+
+	// Whether an add or remove can be applied right away, instead of being queued: on the UI thread,
+	// outside of batchUpdates().
+	private static boolean canApplyChildOperation()
+	{
+		if (!TiApplication.isUIThread()) {
+			return false;
+		}
+		synchronized (pendingChildOperations) {
+			return batchDepth == 0;
+		}
+	}
+
+	private static void queueChildOperation(ChildOperation operation)
+	{
+		synchronized (pendingChildOperations) {
+			pendingChildOperations.add(operation);
+			if (batchDepth > 0 || childFlushScheduled) {
+				return;
+			}
+			childFlushScheduled = true;
+		}
+		TiMessenger.postOnMain(flushChildOperations);
+	}
+
+	// Called on the UI thread.
+	private static void flushChildOperations()
+	{
+		ArrayList<ChildOperation> operations;
+		synchronized (pendingChildOperations) {
+			if (batchDepth > 0) {
+				// A flush posted before batchUpdates() started. The batch posts a new one when it ends.
+				childFlushScheduled = false;
+				return;
+			}
+			if (pendingChildOperations.isEmpty()) {
+				return;
+			}
+			operations = new ArrayList<ChildOperation>(pendingChildOperations);
+			pendingChildOperations.clear();
+			childFlushScheduled = false;
+		}
+
+		for (ChildOperation operation : operations) {
+			if (operation.add) {
+				operation.parent.handleAdd(operation.child);
+			} else {
+				operation.parent.handleRemove(operation.child);
+			}
+		}
+	}
+
 	public void handleRemove(TiViewProxy child)
 	{
 		if (children != null) {
-			children.remove(child);
+			synchronized (pendingChildOperations) {
+				children.remove(child);
+			}
 			if (view != null) {
 				view.remove(child.peekView());
 			}
@@ -859,7 +1123,24 @@ public abstract class TiViewProxy extends KrollProxy implements Handler.Callback
 	public TiViewProxy[] getChildren()
 	{
 		if (children == null) return new TiViewProxy[0];
-		return children.toArray(new TiViewProxy[children.size()]);
+
+		ArrayList<TiViewProxy> current;
+		// Include adds and removes that have not reached the UI thread yet. Copying under the lock keeps
+		// the UI thread from changing children part way through.
+		synchronized (pendingChildOperations) {
+			current = new ArrayList<TiViewProxy>(children);
+			for (ChildOperation operation : pendingChildOperations) {
+				if (operation.parent != this) {
+					continue;
+				}
+				if (operation.add) {
+					current.add(operation.child);
+				} else {
+					current.remove(operation.child);
+				}
+			}
+		}
+		return current.toArray(new TiViewProxy[current.size()]);
 	}
 
 	@Override
@@ -7,8 +7,7 @@
 package org.appcelerator.titanium.util;
 
 import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.appcelerator.kroll.common.Log;
 
@@ -19,66 +18,166 @@ import android.graphics.Color;
  */
 public class TiColorHelper
 {
-	static Pattern shortHexPattern = Pattern.compile("#([0-9a-f])([0-9a-f])([0-9a-f])([0-9a-f]?)");
-	static Pattern rgbPattern = Pattern.compile("rgb\\(([0-9]{1,3}),([0-9]{1,3}),([0-9]{1,3})\\)");
-	static Pattern argbPattern = Pattern.compile("rgba\\(([0-9]{1,3}),([0-9]{1,3}),([0-9]{1,3}),([0-9]{1,3})\\)");
-
 	private static final String TAG = "TiColorHelper";
 	private static HashMap<String, Integer> colorTable;
 
+	// Themes and table rows apply the same few colors over and over, so parsed colors are kept by their string
+	private static final int MAX_CACHED_COLORS = 512;
+	private static final ConcurrentHashMap<String, Integer> colorCache = new ConcurrentHashMap<String, Integer>();
+
+	// Returned by scanColor() for strings it doesn't handle
+	private static final long NO_COLOR = -1L;
+
 	/**
 	 * Convert string representations of colors, like "red" into the corresponding RGB/RGBA representation.
 	 * @param value the color value to convert. For example, "red".
 	 * @return the RGB/RGBA representation (int) of the color.
 	 */
 	public static int parseColor(String value) {
-		int color = Color.YELLOW; // Something noticeable
-		if (value != null) {
-			String lowval = value.trim().toLowerCase();
+		if (value == null) {
+			return Color.YELLOW; // Something noticeable
+		}
 
-			Matcher m = null;
-			if ((m = shortHexPattern.matcher(lowval)).matches()) {
-				StringBuilder sb = new StringBuilder();
-				sb.append("#");
-				for(int i = 1; i <= m.groupCount(); i++) {
-					String s = m.group(i);
-					sb.append(s).append(s);
+		Integer cached = colorCache.get(value);
+		if (cached != null) {
+			return cached;
+		}
+
+		int color;
+		long scanned = scanColor(value);
+		if (scanned != NO_COLOR) {
+			color = (int) scanned;
+		} else {
+			String lowval = value.trim().toLowerCase();
+			// Try the parser, will throw illegalArgument if it can't parse it.
+			try {
+				color = Color.parseColor(lowval);
+			} catch (IllegalArgumentException e) {
+				if (colorTable == null) {
+					buildColorTable();
 				}
-				String newColor = sb.toString();
-				color = Color.parseColor(newColor);
-			} else if ((m = rgbPattern.matcher(lowval)).matches()) {
-				color = Color.rgb(
-					Integer.valueOf(m.group(1)),
-					Integer.valueOf(m.group(2)),
-					Integer.valueOf(m.group(3))
-					);
-			} else if ((m = argbPattern.matcher(lowval)).matches()) {
-				color = Color.argb(
-						Integer.valueOf(m.group(4)),
-						Integer.valueOf(m.group(1)),
-						Integer.valueOf(m.group(2)),
-						Integer.valueOf(m.group(3))
-						);
-			} else {
-				// Try the parser, will throw illegalArgument if it can't parse it.
-				try {
-					color = Color.parseColor(lowval);
-				} catch (IllegalArgumentException e) {
-					if (colorTable == null) {
-						buildColorTable();
-					}
-
-					if (colorTable.containsKey(lowval)) {
-						color = colorTable.get(lowval);
-					} else {
-						Log.w(TAG, "Unknown color: " + value);
-					}
+
+				if (colorTable.containsKey(lowval)) {
+					color = colorTable.get(lowval);
+				} else {
+					Log.w(TAG, "Unknown color: " + value);
+					return Color.YELLOW;
 				}
 			}
 		}
+
+		if (colorCache.size() >= MAX_CACHED_COLORS) {
+			colorCache.clear();
+		}
+		colorCache.put(value, color);
 		return color;
 	}
 
+	// Parses the "#rgb", "#argb", "#rrggbb", "#aarrggbb", "rgb(r,g,b)" and "rgba(r,g,b,a)" forms in a single pass,
+	// ignoring case and surrounding whitespace. Returns the color as an unsigned int, or NO_COLOR for anything else,
+	// such as color names.
+	private static long scanColor(String value)
+	{
+		int start = 0;
+		int end = value.length();
+		while (start < end && value.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && value.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			return NO_COLOR;
+		}
+
+		if (value.charAt(start) == '#') {
+			int digits = end - start - 1;
+			if (digits != 3 && digits != 4 && digits != 6 && digits != 8) {
+				return NO_COLOR;
+			}
+			long color = 0;
+			for (int i = start + 1; i < end; i++) {
+				int digit = hexDigit(value.charAt(i));
+				if (digit == -1) {
+					return NO_COLOR;
+				}
+				if (digits <= 4) {
+					// Each digit of the short form is doubled, so "#f80" is "#ff8800"
+					color = (color << 8) | (digit << 4) | digit;
+				} else {
+					color = (color << 4) | digit;
+				}
+			}
+			if (digits == 3 || digits == 6) {
+				color |= 0xff000000L;
+			}
+			return color;
+		}
+
+		int components;
+		int i;
+		if (value.regionMatches(true, start, "rgba(", 0, 5)) {
+			components = 4;
+			i = start + 5;
+		} else if (value.regionMatches(true, start, "rgb(", 0, 4)) {
+			components = 3;
+			i = start + 4;
+		} else {
+			return NO_COLOR;
+		}
+
+		// Components are at most three digits, so they are packed ten bits apiece
+		long packed = 0;
+		for (int c = 0; c < components; c++) {
+			int number = 0;
+			int digits = 0;
+			while (i < end && digits < 4) {
+				char ch = value.charAt(i);
+				if (ch < '0' || ch > '9') {
+					break;
+				}
+				number = number * 10 + (ch - '0');
+				digits++;
+				i++;
+			}
+			if (digits == 0 || digits > 3 || i == end) {
+				return NO_COLOR;
+			}
+			char separator = value.charAt(i++);
+			if (separator != (c == components - 1 ? ')' : ',')) {
+				return NO_COLOR;
+			}
+			packed = (packed << 10) | number;
+		}
+		if (i != end) {
+			return NO_COLOR;
+		}
+
+		if (components == 3) {
+			return Color.rgb(component(packed, 2), component(packed, 1), component(packed, 0)) & 0xffffffffL;
+		}
+		return Color.argb(component(packed, 0), component(packed, 3), component(packed, 2), component(packed, 1))
+			& 0xffffffffL;
+	}
+
+	// Returns the component that was packed index components from the last one
+	private static int component(long packed, int index)
+	{
+		return (int) (packed >> (index * 10)) & 0x3ff;
+	}
+
+	private static int hexDigit(char c)
+	{
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		} else if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		} else if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+		return -1;
+	}
+
 	private static void buildColorTable() {
 		synchronized(TiColorHelper.class) {
 			colorTable = new HashMap<String, Integer>(16);
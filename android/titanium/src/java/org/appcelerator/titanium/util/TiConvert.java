@@ -283,6 +283,7 @@ public class TiConvert
 			layoutParams.optionTransform = (Ti2DMatrix) hashMap.get(TiC.PROPERTY_TRANSFORM);
 		}
 
+		layoutParams.invalidateMeasure();
 		return dirty;
 	}
 
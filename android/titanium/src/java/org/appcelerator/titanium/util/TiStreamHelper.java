@@ -10,6 +10,9 @@ package org.appcelerator.titanium.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.appcelerator.titanium.io.TiStream;
 
 import ti.modules.titanium.BufferProxy;
 
@@ -18,27 +21,83 @@ public class TiStreamHelper
 
 	public static int read(InputStream inputStream, BufferProxy bufferProxy, int offset, int length) throws IOException
 	{
-		byte[] buffer = bufferProxy.getBuffer();
+		ByteBuffer buffer = bufferProxy.getByteBuffer();
+
+		if ((offset + length) > buffer.limit()) {
+			length = buffer.limit() - offset;
+		}
 
-		if ((offset + length) > buffer.length) {
-			length = buffer.length - offset;
+		if (buffer.hasArray()) {
+			return inputStream.read(buffer.array(), buffer.arrayOffset() + offset, length);
 		}
 
-		return inputStream.read(buffer, offset, length);
+		// Direct buffers are read through a heap array so they stay direct
+		byte[] bytes = new byte[Math.max(length, 0)];
+		int count = inputStream.read(bytes, 0, length);
+		if (count > 0) {
+			buffer.position(offset);
+			buffer.put(bytes, 0, count);
+		}
+		return count;
 	}
 
 	public static int write(OutputStream outputStream, BufferProxy bufferProxy, int offset, int length) throws IOException
 	{
-		byte[] buffer = bufferProxy.getBuffer();
+		ByteBuffer buffer = bufferProxy.getByteBuffer();
 
-		if ((offset + length) > buffer.length) {
-			length = buffer.length - offset;
+		if ((offset + length) > buffer.limit()) {
+			length = buffer.limit() - offset;
 		}
 
-		outputStream.write(buffer, offset, length);
+		if (buffer.hasArray()) {
+			outputStream.write(buffer.array(), buffer.arrayOffset() + offset, length);
+		} else {
+			byte[] bytes = new byte[length];
+			buffer.position(offset);
+			buffer.get(bytes);
+			outputStream.write(bytes);
+		}
 		outputStream.flush();
 
 		return length;
 	}
 
+	/**
+	 * Adapts a TiStream to a java.io.InputStream so it can be handed to APIs that consume streams.
+	 * Data is read from the TiStream in chunks of at most chunkSize bytes.
+	 * @param stream the stream to read from.
+	 * @param chunkSize the largest read issued against stream.
+	 * @return an InputStream reading from stream. Closing it leaves stream open.
+	 */
+	public static InputStream toInputStream(final TiStream stream, final int chunkSize)
+	{
+		return new InputStream()
+		{
+			private final BufferProxy chunk = new BufferProxy(chunkSize);
+
+			@Override
+			public int read() throws IOException
+			{
+				int count = stream.read(new Object[] { chunk, 0, 1 });
+				if (count <= 0) {
+					return -1;
+				}
+				return chunk.getByteBuffer().get(0) & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException
+			{
+				if (len == 0) {
+					return 0;
+				}
+				int count = stream.read(new Object[] { chunk, 0, Math.min(len, chunkSize) });
+				if (count <= 0) {
+					return -1;
+				}
+				chunk.getByteBuffer().get(b, off, count);
+				return count;
+			}
+		};
+	}
 }
@@ -8,9 +8,8 @@ package org.appcelerator.titanium.view;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
-import java.util.Comparator;
-import java.util.TreeSet;
 
+import org.appcelerator.kroll.KrollDict;
 import org.appcelerator.kroll.common.Log;
 import org.appcelerator.titanium.TiApplication;
 import org.appcelerator.titanium.TiC;
@@ -58,7 +57,6 @@ public class TiCompositeLayout extends ViewGroup
 
 	public static final int NOT_SET = Integer.MIN_VALUE;
 
-	private TreeSet<View> viewSorter;
 	private boolean needsSort;
 	protected LayoutArrangement arrangement;
 	
@@ -77,6 +75,13 @@ public class TiCompositeLayout extends ViewGroup
 	private static final int HAS_SIZE_FILL_CONFLICT = 1;
 	private static final int NO_SIZE_FILL_CONFLICT = 2;
 
+	// Profiling counters, see getLayoutStats()
+	private int layoutCount = 0;
+	private long layoutNanos = 0;
+	private int measureCount = 0;
+	private long measureNanos = 0;
+	private int measureCacheHits = 0;
+
 	// We need these two constructors for backwards compatibility with modules
 
 	/**
@@ -120,52 +125,6 @@ public class TiCompositeLayout extends ViewGroup
 	{
 		super(context);
 		this.arrangement = arrangement;
-		this.viewSorter = new TreeSet<View>(new Comparator<View>()
-		{
-
-			public int compare(View o1, View o2)
-			{
-				TiCompositeLayout.LayoutParams p1 = (TiCompositeLayout.LayoutParams) o1.getLayoutParams();
-				TiCompositeLayout.LayoutParams p2 = (TiCompositeLayout.LayoutParams) o2.getLayoutParams();
-
-				int result = 0;
-
-				if (p1.optionZIndex != NOT_SET && p2.optionZIndex != NOT_SET) {
-					if (p1.optionZIndex < p2.optionZIndex) {
-						result = -1;
-					} else if (p1.optionZIndex > p2.optionZIndex) {
-						result = 1;
-					}
-				} else if (p1.optionZIndex != NOT_SET) {
-					if (p1.optionZIndex < 0) {
-						result = -1;
-					}
-					if (p1.optionZIndex > 0) {
-						result = 1;
-					}
-				} else if (p2.optionZIndex != NOT_SET) {
-					if (p2.optionZIndex < 0) {
-						result = 1;
-					}
-					if (p2.optionZIndex > 0) {
-						result = -1;
-					}
-				}
-
-				if (result == 0) {
-					if (p1.index < p2.index) {
-						result = -1;
-					} else if (p1.index > p2.index) {
-						result = 1;
-					} else {
-						throw new IllegalStateException("Ambiguous Z-Order");
-					}
-				}
-
-				return result;
-			}
-		});
-
 		needsSort = true;
 		setOnHierarchyChangeListener(this);
 		this.proxy = new WeakReference<TiViewProxy>(proxy);
@@ -183,17 +142,72 @@ public class TiCompositeLayout extends ViewGroup
 	}
 
 	public void onChildViewAdded(View parent, View child) {
-		needsSort = true;
+		// Children are kept in z-order, so only sort again if the new child breaks it
+		if (!needsSort && !isInZOrder(child)) {
+			needsSort = true;
+		}
 		if (parent != null && child != null) {
 			Log.d(TAG, "Attaching: " + viewToString(child) + " to " + viewToString(parent), Log.DEBUG_MODE);
 		}
 	}
 
 	public void onChildViewRemoved(View parent, View child) {
-		needsSort = true;
+		// Removing a child leaves the others in z-order
 		Log.d(TAG, "Removing: " + viewToString(child) + " from " + viewToString(parent), Log.DEBUG_MODE);
 	}
 
+	private static int getZIndex(View child)
+	{
+		int zIndex = ((LayoutParams) child.getLayoutParams()).optionZIndex;
+		return (zIndex == NOT_SET ? 0 : zIndex);
+	}
+
+	private boolean isInZOrder(View child)
+	{
+		int index = indexOfChild(child);
+		int zIndex = getZIndex(child);
+		if (index > 0 && getZIndex(getChildAt(index - 1)) > zIndex) {
+			return false;
+		}
+		if (index < getChildCount() - 1 && getZIndex(getChildAt(index + 1)) < zIndex) {
+			return false;
+		}
+		return true;
+	}
+
+	// Stable insertion sort by z-index. The children are almost always sorted already, so this is usually a
+	// single pass, and they are only detached and attached again if one of them actually moves.
+	private void sortChildren(int count)
+	{
+		View[] children = new View[count];
+		for (int i = 0; i < count; i++) {
+			children[i] = getChildAt(i);
+			((LayoutParams) children[i].getLayoutParams()).index = i;
+		}
+
+		boolean moved = false;
+		for (int i = 1; i < count; i++) {
+			View child = children[i];
+			int zIndex = getZIndex(child);
+			int j = i - 1;
+			while (j >= 0 && getZIndex(children[j]) > zIndex) {
+				children[j + 1] = children[j];
+				j--;
+			}
+			if (j + 1 != i) {
+				children[j + 1] = child;
+				moved = true;
+			}
+		}
+
+		if (moved) {
+			detachAllViewsFromParent();
+			for (int i = 0; i < count; i++) {
+				attachViewToParent(children[i], i, children[i].getLayoutParams());
+			}
+		}
+	}
+
 	@Override
 	protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
 		return p instanceof TiCompositeLayout.LayoutParams;
@@ -267,6 +281,7 @@ public class TiCompositeLayout extends ViewGroup
 	@Override
 	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
 	{
+		long start = System.nanoTime();
 		int childCount = getChildCount();
 		int wFromSpec = MeasureSpec.getSize(widthMeasureSpec);
 		int hFromSpec = MeasureSpec.getSize(heightMeasureSpec);
@@ -286,7 +301,7 @@ public class TiCompositeLayout extends ViewGroup
 
 		for(int i = 0; i < childCount; i++) {
 			View child = getChildAt(i);
-			if (child.getVisibility() != View.GONE) {
+			if (child.getVisibility() != View.GONE && !measureFromCache(child, w, wMode, h, hMode)) {
 				constrainChild(child, w, wMode, h, hMode);
 			}
 
@@ -348,6 +363,27 @@ public class TiCompositeLayout extends ViewGroup
 		int measuredWidth = getMeasuredWidth(maxWidth, widthMeasureSpec);
 		int measuredHeight = getMeasuredHeight(maxHeight,heightMeasureSpec);
 		setMeasuredDimension(measuredWidth, measuredHeight);
+
+		measureCount++;
+		measureNanos += System.nanoTime() - start;
+	}
+
+	// Measures the child with the specs computed by constrainChild() the last time, if nothing they depend on has
+	// changed since. Any change to the child or its descendants requests a layout, and any change to its layout
+	// params bumps their version.
+	private boolean measureFromCache(View child, int width, int wMode, int height, int hMode)
+	{
+		LayoutParams p = (LayoutParams) child.getLayoutParams();
+		if (child.isLayoutRequested() || p.measuredVersion != p.version || p.measuredParentWidth != width
+			|| p.measuredParentWidthMode != wMode || p.measuredParentHeight != height
+			|| p.measuredParentHeightMode != hMode) {
+			return false;
+		}
+
+		// View.measure() returns right away if the child was last measured with the same specs
+		child.measure(p.measuredWidthSpec, p.measuredHeightSpec);
+		measureCacheHits++;
+		return true;
 	}
 
 	protected void constrainChild(View child, int width, int wMode, int height, int hMode)
@@ -406,6 +442,14 @@ public class TiCompositeLayout extends ViewGroup
 			childDimension);
 
 		child.measure(widthSpec, heightSpec);
+
+		p.measuredVersion = p.version;
+		p.measuredParentWidth = width;
+		p.measuredParentWidthMode = wMode;
+		p.measuredParentHeight = height;
+		p.measuredParentHeightMode = hMode;
+		p.measuredWidthSpec = widthSpec;
+		p.measuredHeightSpec = heightSpec;
 		// Useful for debugging.
 		// int childWidth = child.getMeasuredWidth();
 		// int childHeight = child.getMeasuredHeight();
@@ -480,6 +524,7 @@ public class TiCompositeLayout extends ViewGroup
 	@Override
 	protected void onLayout(boolean changed, int l, int t, int r, int b)
 	{
+		long start = System.nanoTime();
 		int count = getChildCount();
 
 		int left = 0;
@@ -488,27 +533,11 @@ public class TiCompositeLayout extends ViewGroup
 		int bottom = b - t;
 
 		if (needsSort) {
-			viewSorter.clear();
 			if (count > 1) { // No need to sort one item.
-				for(int i = 0; i < count; i++) {
-					View child = getChildAt(i);
-					TiCompositeLayout.LayoutParams params =
-						(TiCompositeLayout.LayoutParams) child.getLayoutParams();
-					params.index = i;
-					viewSorter.add(child);
-				}
-
-				detachAllViewsFromParent();
-				int i = 0;
-				for (View child : viewSorter) {
-					attachViewToParent(child, i++, child.getLayoutParams());
-				}
+				sortChildren(count);
 			}
 			needsSort = false;
 		}
-		// viewSorter is not needed after this. It's a source of
-		// memory leaks if it retains the views it's holding.
-		viewSorter.clear();
 
 		int[] horizontal = new int[2];
 		int[] vertical = new int[2];
@@ -575,6 +604,7 @@ public class TiCompositeLayout extends ViewGroup
 					if (currentActivity instanceof TiLaunchActivity) {
 						if (!((TiLaunchActivity) currentActivity).isJSActivity()) {
 							Log.w(TAG, "The root activity is no longer available.  Skipping layout pass.", Log.DEBUG_MODE);
+							recordLayoutPass(start);
 							return;
 						}
 					}
@@ -590,8 +620,61 @@ public class TiCompositeLayout extends ViewGroup
 		}
 
 		TiViewProxy viewProxy = (proxy == null ? null : proxy.get());
+		updateChildGeometry(viewProxy);
 		TiUIHelper.firePostLayoutEvent(viewProxy);
+		recordLayoutPass(start);
+	}
+
+	private void recordLayoutPass(long start)
+	{
+		layoutCount++;
+		layoutNanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns the number of measure and layout passes this layout has run and the time spent in them, including the
+	 * time spent measuring and laying out its children. Also returns how many children were measured with specs
+	 * cached from an earlier pass.
+	 * @return a dictionary of counts and times in milliseconds.
+	 */
+	public KrollDict getLayoutStats()
+	{
+		KrollDict stats = new KrollDict();
+		stats.put("layoutCount", layoutCount);
+		stats.put("layoutTime", layoutNanos / 1000000.0);
+		stats.put("measureCount", measureCount);
+		stats.put("measureTime", measureNanos / 1000000.0);
+		stats.put("measureCacheHits", measureCacheHits);
+		return stats;
+	}
 
+	/**
+	 * Sets the counters returned by {@link #getLayoutStats()} back to zero.
+	 */
+	public void resetLayoutStats()
+	{
+		layoutCount = 0;
+		layoutNanos = 0;
+		measureCount = 0;
+		measureNanos = 0;
+		measureCacheHits = 0;
+	}
+
+	// Lets the runtime thread read the bounds of children without waiting for the UI thread
+	private void updateChildGeometry(TiViewProxy viewProxy)
+	{
+		TiUIView view = (viewProxy == null ? null : viewProxy.peekView());
+		if (view == null) {
+			return;
+		}
+		for (TiUIView child : view.getChildren()) {
+			View outerView = child.getOuterView();
+			TiViewProxy childProxy = child.getProxy();
+			// Only children laid out by this layout, some views keep their children in an inner layout
+			if (outerView != null && outerView.getParent() == this && childProxy != null) {
+				childProxy.updateGeometry(this);
+			}
+		}
 	}
 
 	// option0 is left/top, option1 is right/bottom
@@ -883,12 +966,33 @@ public class TiCompositeLayout extends ViewGroup
 		 */
 		public boolean autoFillsHeight = false;
 
+		// Bumped whenever the options above change, see invalidateMeasure()
+		private int version = 0;
+
+		// The parent size and the child specs from the last time constrainChild() measured the view
+		private int measuredVersion = -1;
+		private int measuredParentWidth;
+		private int measuredParentWidthMode;
+		private int measuredParentHeight;
+		private int measuredParentHeightMode;
+		private int measuredWidthSpec;
+		private int measuredHeightSpec;
+
 		public LayoutParams()
 		{
 			super(WRAP_CONTENT, WRAP_CONTENT);
 
 			index = Integer.MIN_VALUE;
 		}
+
+		/**
+		 * Must be called after changing any of the options, so the parent measures the view again instead of
+		 * reusing the specs it measured the view with last time.
+		 */
+		public void invalidateMeasure()
+		{
+			version++;
+		}
 	}
 
 	protected boolean isVerticalArrangement()
@@ -0,0 +1,73 @@
+/**
+ * Appcelerator Titanium Mobile
+ * Copyright (c) 2012 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Apache Public License
+ * Please see the LICENSE included with this distribution for details.
+ */
+package org.appcelerator.titanium.view;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps property names to ids so a view can handle a property change with a switch instead of comparing the key
+ * against every property it knows. Views build one table per class, in a static field.
+ */
+public class TiPropertyTable
+{
+	/**
+	 * Returned by {@link #get(String)} for properties that were not added to the table.
+	 */
+	public static final int UNHANDLED = 0;
+
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private final ArrayList<String> prefixes = new ArrayList<String>();
+	private final ArrayList<Integer> prefixIds = new ArrayList<Integer>();
+
+	/**
+	 * Adds a property.
+	 * @param key the property name.
+	 * @param id the id returned by {@link #get(String)} for this property, must not be {@link #UNHANDLED}.
+	 * @return this table.
+	 */
+	public TiPropertyTable add(String key, int id)
+	{
+		ids.put(key, id);
+		return this;
+	}
+
+	/**
+	 * Adds every property that starts with a prefix and was not added with {@link #add(String, int)}. Prefixes are
+	 * tried in the order they were added.
+	 * @param prefix the start of the property names.
+	 * @param id the id returned by {@link #get(String)} for these properties, must not be {@link #UNHANDLED}.
+	 * @return this table.
+	 */
+	public TiPropertyTable addPrefix(String prefix, int id)
+	{
+		prefixes.add(prefix);
+		prefixIds.add(id);
+		return this;
+	}
+
+	/**
+	 * @param key the property name.
+	 * @return the id of the property, or {@link #UNHANDLED}.
+	 */
+	public int get(String key)
+	{
+		Integer id = ids.get(key);
+		if (id == null) {
+			// Remember how the key was resolved, views only ever see a small set of property names
+			id = UNHANDLED;
+			for (int i = 0; i < prefixes.size(); i++) {
+				if (key.startsWith(prefixes.get(i))) {
+					id = prefixIds.get(i);
+					break;
+				}
+			}
+			ids.put(key, id);
+		}
+		return id;
+	}
+}
@@ -72,6 +72,55 @@ public abstract class TiUIView
 	private static final int LAYER_TYPE_SOFTWARE = 1;
 	private static final String TAG = "TiUIView";
 
+	// Ids of the properties handled by propertyChanged()
+	private static final int PROPERTY_LEFT = 1;
+	private static final int PROPERTY_TOP = 2;
+	private static final int PROPERTY_CENTER = 3;
+	private static final int PROPERTY_RIGHT = 4;
+	private static final int PROPERTY_BOTTOM = 5;
+	private static final int PROPERTY_SIZE = 6;
+	private static final int PROPERTY_HEIGHT = 7;
+	private static final int PROPERTY_HORIZONTAL_WRAP = 8;
+	private static final int PROPERTY_WIDTH = 9;
+	private static final int PROPERTY_ZINDEX = 10;
+	private static final int PROPERTY_FOCUSABLE = 11;
+	private static final int PROPERTY_TOUCH_ENABLED = 12;
+	private static final int PROPERTY_VISIBLE = 13;
+	private static final int PROPERTY_ENABLED = 14;
+	private static final int PROPERTY_BACKGROUND_PADDING = 15;
+	private static final int PROPERTY_BACKGROUND = 16;
+	private static final int PROPERTY_SOFT_KEYBOARD_ON_FOCUS = 17;
+	private static final int PROPERTY_TRANSFORM = 18;
+	private static final int PROPERTY_KEEP_SCREEN_ON = 19;
+	private static final int PROPERTY_ACCESSIBILITY = 20;
+	private static final int PROPERTY_ACCESSIBILITY_HIDDEN = 21;
+
+	private static final TiPropertyTable propertyTable = new TiPropertyTable()
+		.add(TiC.PROPERTY_LEFT, PROPERTY_LEFT)
+		.add(TiC.PROPERTY_TOP, PROPERTY_TOP)
+		.add(TiC.PROPERTY_CENTER, PROPERTY_CENTER)
+		.add(TiC.PROPERTY_RIGHT, PROPERTY_RIGHT)
+		.add(TiC.PROPERTY_BOTTOM, PROPERTY_BOTTOM)
+		.add(TiC.PROPERTY_SIZE, PROPERTY_SIZE)
+		.add(TiC.PROPERTY_HEIGHT, PROPERTY_HEIGHT)
+		.add(TiC.PROPERTY_HORIZONTAL_WRAP, PROPERTY_HORIZONTAL_WRAP)
+		.add(TiC.PROPERTY_WIDTH, PROPERTY_WIDTH)
+		.add(TiC.PROPERTY_ZINDEX, PROPERTY_ZINDEX)
+		.add(TiC.PROPERTY_FOCUSABLE, PROPERTY_FOCUSABLE)
+		.add(TiC.PROPERTY_TOUCH_ENABLED, PROPERTY_TOUCH_ENABLED)
+		.add(TiC.PROPERTY_VISIBLE, PROPERTY_VISIBLE)
+		.add(TiC.PROPERTY_ENABLED, PROPERTY_ENABLED)
+		.add(TiC.PROPERTY_OPACITY, PROPERTY_BACKGROUND)
+		.add(TiC.PROPERTY_SOFT_KEYBOARD_ON_FOCUS, PROPERTY_SOFT_KEYBOARD_ON_FOCUS)
+		.add(TiC.PROPERTY_TRANSFORM, PROPERTY_TRANSFORM)
+		.add(TiC.PROPERTY_KEEP_SCREEN_ON, PROPERTY_KEEP_SCREEN_ON)
+		.add(TiC.PROPERTY_ACCESSIBILITY_HIDDEN, PROPERTY_ACCESSIBILITY_HIDDEN)
+		// backgroundPadding must come before the background prefix
+		.addPrefix(TiC.PROPERTY_BACKGROUND_PADDING, PROPERTY_BACKGROUND_PADDING)
+		.addPrefix(TiC.PROPERTY_BACKGROUND_PREFIX, PROPERTY_BACKGROUND)
+		.addPrefix(TiC.PROPERTY_BORDER_PREFIX, PROPERTY_BACKGROUND)
+		.addPrefix("accessibility", PROPERTY_ACCESSIBILITY);
+
 	private static AtomicInteger idGenerator;
 
 	// When distinguishing twofingertap and pinch events, minimum motion (in pixels) 
@@ -393,6 +442,7 @@ public abstract class TiUIView
 
 	protected void layoutNativeView(boolean informParent)
 	{
+		layoutParams.invalidateMeasure();
 		if (nativeView != null) {
 			Animation a = nativeView.getAnimation();
 			if (a != null && a instanceof TiMatrixAnimation) {
@@ -426,217 +476,238 @@ public abstract class TiUIView
 
 	public void propertyChanged(String key, Object oldValue, Object newValue, KrollProxy proxy)
 	{
-		if (key.equals(TiC.PROPERTY_LEFT)) {
-			resetPostAnimationValues();
-			if (newValue != null) {
-				layoutParams.optionLeft = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_LEFT);
-			} else {
-				layoutParams.optionLeft = null;
-			}
-			layoutNativeView();
-		} else if (key.equals(TiC.PROPERTY_TOP)) {
-			resetPostAnimationValues();
-			if (newValue != null) {
-				layoutParams.optionTop = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_TOP);
-			} else {
-				layoutParams.optionTop = null;
-			}
-			layoutNativeView();
-		} else if (key.equals(TiC.PROPERTY_CENTER)) {
-			resetPostAnimationValues();
-			TiConvert.updateLayoutCenter(newValue, layoutParams);
-			layoutNativeView();
-		} else if (key.equals(TiC.PROPERTY_RIGHT)) {
-			resetPostAnimationValues();
-			if (newValue != null) {
-				layoutParams.optionRight = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_RIGHT);
-			} else {
-				layoutParams.optionRight = null;
-			}
-			layoutNativeView();
-		} else if (key.equals(TiC.PROPERTY_BOTTOM)) {
-			resetPostAnimationValues();
-			if (newValue != null) {
-				layoutParams.optionBottom = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_BOTTOM);
-			} else {
-				layoutParams.optionBottom = null;
-			}
-			layoutNativeView();
-		} else if (key.equals(TiC.PROPERTY_SIZE)) {
-			if (newValue instanceof HashMap) {
-				@SuppressWarnings("unchecked")
-				HashMap<String, Object> d = (HashMap<String, Object>) newValue;
-				propertyChanged(TiC.PROPERTY_WIDTH, oldValue, d.get(TiC.PROPERTY_WIDTH), proxy);
-				propertyChanged(TiC.PROPERTY_HEIGHT, oldValue, d.get(TiC.PROPERTY_HEIGHT), proxy);
-			}else if (newValue != null){
-				Log.w(TAG, "Unsupported property type ("+(newValue.getClass().getSimpleName())+") for key: " + key+". Must be an object/dictionary");
-			}
-		} else if (key.equals(TiC.PROPERTY_HEIGHT)) {
-			resetPostAnimationValues();
-			if (newValue != null) {
-				layoutParams.optionHeight = null;
-				layoutParams.sizeOrFillHeightEnabled = true;
-				if (newValue.equals(TiC.LAYOUT_SIZE)) {
-					layoutParams.autoFillsHeight = false;
-				} else if (newValue.equals(TiC.LAYOUT_FILL)) {
-					layoutParams.autoFillsHeight = true;
-				} else if (!newValue.equals(TiC.SIZE_AUTO)) {
-					layoutParams.optionHeight = TiConvert.toTiDimension(TiConvert.toString(newValue),
-						TiDimension.TYPE_HEIGHT);
-					layoutParams.sizeOrFillHeightEnabled = false;
+		switch (propertyTable.get(key)) {
+			case PROPERTY_LEFT:
+				resetPostAnimationValues();
+				if (newValue != null) {
+					layoutParams.optionLeft = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_LEFT);
+				} else {
+					layoutParams.optionLeft = null;
 				}
-			} else {
-				layoutParams.optionHeight = null;
-			}
-			layoutNativeView();
-		} else if (key.equals(TiC.PROPERTY_HORIZONTAL_WRAP)) {
-			if (nativeView instanceof TiCompositeLayout) {
-				((TiCompositeLayout) nativeView).setEnableHorizontalWrap(TiConvert.toBoolean(newValue));
-			}
-			layoutNativeView();
-		} else if (key.equals(TiC.PROPERTY_WIDTH)) {
-			resetPostAnimationValues();
-			if (newValue != null) {
-				layoutParams.optionWidth = null;
-				layoutParams.sizeOrFillWidthEnabled = true;
-				if (newValue.equals(TiC.LAYOUT_SIZE)) {
-					layoutParams.autoFillsWidth = false;
-				} else if (newValue.equals(TiC.LAYOUT_FILL)) {
-					layoutParams.autoFillsWidth = true;
-				} else if (!newValue.equals(TiC.SIZE_AUTO)) {
-					layoutParams.optionWidth = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_WIDTH);
-					layoutParams.sizeOrFillWidthEnabled = false;
+				layoutNativeView();
+				break;
+			case PROPERTY_TOP:
+				resetPostAnimationValues();
+				if (newValue != null) {
+					layoutParams.optionTop = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_TOP);
+				} else {
+					layoutParams.optionTop = null;
 				}
-			} else {
-				layoutParams.optionWidth = null;
-			}
-			layoutNativeView();
-		} else if (key.equals(TiC.PROPERTY_ZINDEX)) {
-			if (newValue != null) {
-				layoutParams.optionZIndex = TiConvert.toInt(newValue);
-			} else {
-				layoutParams.optionZIndex = 0;
-			}
-			if (!this.proxy.isLayoutStarted()) {
-				layoutNativeView(true);
-			} else {
-				setzIndexChanged(true);
-			}
-		} else if (key.equals(TiC.PROPERTY_FOCUSABLE) && newValue != null) {
-			registerForKeyPress(nativeView, TiConvert.toBoolean(newValue));
-		} else if (key.equals(TiC.PROPERTY_TOUCH_ENABLED)) {
-			doSetClickable(TiConvert.toBoolean(newValue));
-		} else if (key.equals(TiC.PROPERTY_VISIBLE)) {
-			this.setVisibility(TiConvert.toBoolean(newValue) ? View.VISIBLE : View.INVISIBLE);
-		} else if (key.equals(TiC.PROPERTY_ENABLED)) {
-			nativeView.setEnabled(TiConvert.toBoolean(newValue));
-		} else if (key.startsWith(TiC.PROPERTY_BACKGROUND_PADDING)) {
-			Log.i(TAG, key + " not yet implemented.");
-		} else if (key.equals(TiC.PROPERTY_OPACITY)
-			|| key.startsWith(TiC.PROPERTY_BACKGROUND_PREFIX)
-			|| key.startsWith(TiC.PROPERTY_BORDER_PREFIX)) {
-			// Update first before querying.
-			proxy.setProperty(key, newValue);
-
-			KrollDict d = proxy.getProperties();
-
-			boolean hasImage = hasImage(d);
-			boolean hasRepeat = hasRepeat(d);
-			boolean hasColorState = hasColorState(d);
-			boolean hasBorder = hasBorder(d);
-			boolean hasGradient = hasGradient(d);
-			boolean nativeViewNull = (nativeView == null);
-
-			boolean requiresCustomBackground = hasImage || hasRepeat || hasColorState || hasBorder || hasGradient;
-
-			if (!requiresCustomBackground) {
-				if (background != null) {
-					background.releaseDelegate();
-					background.setCallback(null);
-					background = null;
+				layoutNativeView();
+				break;
+			case PROPERTY_CENTER:
+				resetPostAnimationValues();
+				TiConvert.updateLayoutCenter(newValue, layoutParams);
+				layoutNativeView();
+				break;
+			case PROPERTY_RIGHT:
+				resetPostAnimationValues();
+				if (newValue != null) {
+					layoutParams.optionRight = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_RIGHT);
+				} else {
+					layoutParams.optionRight = null;
 				}
-
-				if (d.containsKeyAndNotNull(TiC.PROPERTY_BACKGROUND_COLOR)) {
-					Integer bgColor = TiConvert.toColor(d, TiC.PROPERTY_BACKGROUND_COLOR);
-					if (!nativeViewNull) {
-						nativeView.setBackgroundColor(bgColor);
-						nativeView.postInvalidate();
-					}
+				layoutNativeView();
+				break;
+			case PROPERTY_BOTTOM:
+				resetPostAnimationValues();
+				if (newValue != null) {
+					layoutParams.optionBottom = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_BOTTOM);
 				} else {
-					if (key.equals(TiC.PROPERTY_OPACITY)) {
-						setOpacity(TiConvert.toFloat(newValue, 1f));
+					layoutParams.optionBottom = null;
+				}
+				layoutNativeView();
+				break;
+			case PROPERTY_SIZE:
+				if (newValue instanceof HashMap) {
+					@SuppressWarnings("unchecked")
+					HashMap<String, Object> d = (HashMap<String, Object>) newValue;
+					propertyChanged(TiC.PROPERTY_WIDTH, oldValue, d.get(TiC.PROPERTY_WIDTH), proxy);
+					propertyChanged(TiC.PROPERTY_HEIGHT, oldValue, d.get(TiC.PROPERTY_HEIGHT), proxy);
+				}else if (newValue != null){
+					Log.w(TAG, "Unsupported property type ("+(newValue.getClass().getSimpleName())+") for key: " + key+". Must be an object/dictionary");
+				}
+				break;
+			case PROPERTY_HEIGHT:
+				resetPostAnimationValues();
+				if (newValue != null) {
+					layoutParams.optionHeight = null;
+					layoutParams.sizeOrFillHeightEnabled = true;
+					if (newValue.equals(TiC.LAYOUT_SIZE)) {
+						layoutParams.autoFillsHeight = false;
+					} else if (newValue.equals(TiC.LAYOUT_FILL)) {
+						layoutParams.autoFillsHeight = true;
+					} else if (!newValue.equals(TiC.SIZE_AUTO)) {
+						layoutParams.optionHeight = TiConvert.toTiDimension(TiConvert.toString(newValue),
+							TiDimension.TYPE_HEIGHT);
+						layoutParams.sizeOrFillHeightEnabled = false;
 					}
-					if (!nativeViewNull) {
-						nativeView.setBackgroundDrawable(null);
-						nativeView.postInvalidate();
+				} else {
+					layoutParams.optionHeight = null;
+				}
+				layoutNativeView();
+				break;
+			case PROPERTY_HORIZONTAL_WRAP:
+				if (nativeView instanceof TiCompositeLayout) {
+					((TiCompositeLayout) nativeView).setEnableHorizontalWrap(TiConvert.toBoolean(newValue));
+				}
+				layoutNativeView();
+				break;
+			case PROPERTY_WIDTH:
+				resetPostAnimationValues();
+				if (newValue != null) {
+					layoutParams.optionWidth = null;
+					layoutParams.sizeOrFillWidthEnabled = true;
+					if (newValue.equals(TiC.LAYOUT_SIZE)) {
+						layoutParams.autoFillsWidth = false;
+					} else if (newValue.equals(TiC.LAYOUT_FILL)) {
+						layoutParams.autoFillsWidth = true;
+					} else if (!newValue.equals(TiC.SIZE_AUTO)) {
+						layoutParams.optionWidth = TiConvert.toTiDimension(TiConvert.toString(newValue), TiDimension.TYPE_WIDTH);
+						layoutParams.sizeOrFillWidthEnabled = false;
 					}
+				} else {
+					layoutParams.optionWidth = null;
 				}
-			} else {
-				boolean newBackground = background == null;
-				if (newBackground) {
-					background = new TiBackgroundDrawable();
+				layoutNativeView();
+				break;
+			case PROPERTY_ZINDEX:
+				if (newValue != null) {
+					layoutParams.optionZIndex = TiConvert.toInt(newValue);
+				} else {
+					layoutParams.optionZIndex = 0;
 				}
+				if (!this.proxy.isLayoutStarted()) {
+					layoutNativeView(true);
+				} else {
+					setzIndexChanged(true);
+				}
+				break;
+			case PROPERTY_FOCUSABLE:
+				if (newValue != null) {
+					registerForKeyPress(nativeView, TiConvert.toBoolean(newValue));
+				} else {
+					Log.d(TAG, "Unhandled property key: " + key, Log.DEBUG_MODE);
+				}
+				break;
+			case PROPERTY_TOUCH_ENABLED:
+				doSetClickable(TiConvert.toBoolean(newValue));
+				break;
+			case PROPERTY_VISIBLE:
+				this.setVisibility(TiConvert.toBoolean(newValue) ? View.VISIBLE : View.INVISIBLE);
+				break;
+			case PROPERTY_ENABLED:
+				nativeView.setEnabled(TiConvert.toBoolean(newValue));
+				break;
+			case PROPERTY_BACKGROUND_PADDING:
+				Log.i(TAG, key + " not yet implemented.");
+				break;
+			case PROPERTY_BACKGROUND:
+				// Update first before querying.
+				proxy.setProperty(key, newValue);
+
+				KrollDict d = proxy.getProperties();
+
+				boolean hasImage = hasImage(d);
+				boolean hasRepeat = hasRepeat(d);
+				boolean hasColorState = hasColorState(d);
+				boolean hasBorder = hasBorder(d);
+				boolean hasGradient = hasGradient(d);
+				boolean nativeViewNull = (nativeView == null);
+
+				boolean requiresCustomBackground = hasImage || hasRepeat || hasColorState || hasBorder || hasGradient;
+
+				if (!requiresCustomBackground) {
+					if (background != null) {
+						background.releaseDelegate();
+						background.setCallback(null);
+						background = null;
+					}
 
-				Integer bgColor = null;
-
-				if (!hasColorState && !hasGradient) {
-					if (d.get(TiC.PROPERTY_BACKGROUND_COLOR) != null) {
-						bgColor = TiConvert.toColor(d, TiC.PROPERTY_BACKGROUND_COLOR);
-						if (newBackground || (key.equals(TiC.PROPERTY_OPACITY) || key.equals(TiC.PROPERTY_BACKGROUND_COLOR))) {
-							background.setBackgroundColor(bgColor);
+					if (d.containsKeyAndNotNull(TiC.PROPERTY_BACKGROUND_COLOR)) {
+						Integer bgColor = TiConvert.toColor(d, TiC.PROPERTY_BACKGROUND_COLOR);
+						if (!nativeViewNull) {
+							nativeView.setBackgroundColor(bgColor);
+							nativeView.postInvalidate();
+						}
+					} else {
+						if (key.equals(TiC.PROPERTY_OPACITY)) {
+							setOpacity(TiConvert.toFloat(newValue, 1f));
+						}
+						if (!nativeViewNull) {
+							nativeView.setBackgroundDrawable(null);
+							nativeView.postInvalidate();
 						}
 					}
-				}
-
-				if (hasImage || hasRepeat || hasColorState || hasGradient) {
-					if (newBackground || key.equals(TiC.PROPERTY_OPACITY) || key.startsWith(TiC.PROPERTY_BACKGROUND_PREFIX)) {
-						handleBackgroundImage(d);
+				} else {
+					boolean newBackground = background == null;
+					if (newBackground) {
+						background = new TiBackgroundDrawable();
 					}
-				}
 
-				if (hasBorder) {
-					if (borderView == null && parent != null) {
-						// Since we have to create a new border wrapper view, we need to remove this view, and re-add it.
-						// This will ensure the border wrapper view is added correctly.
-						TiUIView parentView = parent.getOrCreateView();
-						parentView.remove(this);
-						initializeBorder(d, bgColor);
-						parentView.add(this);
-					} else if (key.startsWith(TiC.PROPERTY_BORDER_PREFIX)) {
-						handleBorderProperty(key, newValue);
-					}
-				}
+					Integer bgColor = null;
 
-				applyCustomBackground();
+					if (!hasColorState && !hasGradient) {
+						if (d.get(TiC.PROPERTY_BACKGROUND_COLOR) != null) {
+							bgColor = TiConvert.toColor(d, TiC.PROPERTY_BACKGROUND_COLOR);
+							if (newBackground || (key.equals(TiC.PROPERTY_OPACITY) || key.equals(TiC.PROPERTY_BACKGROUND_COLOR))) {
+								background.setBackgroundColor(bgColor);
+							}
+						}
+					}
 
-				if (key.equals(TiC.PROPERTY_OPACITY)) {
-					setOpacity(TiConvert.toFloat(newValue, 1f));
-				}
+					if (hasImage || hasRepeat || hasColorState || hasGradient) {
+						if (newBackground || key.equals(TiC.PROPERTY_OPACITY) || key.startsWith(TiC.PROPERTY_BACKGROUND_PREFIX)) {
+							handleBackgroundImage(d);
+						}
+					}
 
-			}
-			if (!nativeViewNull) {
-				nativeView.postInvalidate();
-			}
-		} else if (key.equals(TiC.PROPERTY_SOFT_KEYBOARD_ON_FOCUS)) {
-			Log.w(TAG, "Focus state changed to " + TiConvert.toString(newValue) + " not honored until next focus event.",
-				Log.DEBUG_MODE);
-		} else if (key.equals(TiC.PROPERTY_TRANSFORM)) {
-			if (nativeView != null) {
-				applyTransform((Ti2DMatrix)newValue);
-			}
-		} else if (key.equals(TiC.PROPERTY_KEEP_SCREEN_ON)) {
-			if (nativeView != null) {
-				nativeView.setKeepScreenOn(TiConvert.toBoolean(newValue));
-			}
+					if (hasBorder) {
+						if (borderView == null && parent != null) {
+							// Since we have to create a new border wrapper view, we need to remove this view, and re-add it.
+							// This will ensure the border wrapper view is added correctly.
+							TiUIView parentView = parent.getOrCreateView();
+							parentView.remove(this);
+							initializeBorder(d, bgColor);
+							parentView.add(this);
+						} else if (key.startsWith(TiC.PROPERTY_BORDER_PREFIX)) {
+							handleBorderProperty(key, newValue);
+						}
+					}
 
-		} else if (key.indexOf("accessibility") == 0 && !key.equals(TiC.PROPERTY_ACCESSIBILITY_HIDDEN)) {
-			applyContentDescription();
+					applyCustomBackground();
 
-		} else if (key.equals(TiC.PROPERTY_ACCESSIBILITY_HIDDEN)) {
-			applyAccessibilityHidden(newValue);
+					if (key.equals(TiC.PROPERTY_OPACITY)) {
+						setOpacity(TiConvert.toFloat(newValue, 1f));
+					}
 
-		} else {
-			Log.d(TAG, "Unhandled property key: " + key, Log.DEBUG_MODE);
+				}
+				if (!nativeViewNull) {
+					nativeView.postInvalidate();
+				}
+				break;
+			case PROPERTY_SOFT_KEYBOARD_ON_FOCUS:
+				Log.w(TAG, "Focus state changed to " + TiConvert.toString(newValue) + " not honored until next focus event.",
+					Log.DEBUG_MODE);
+				break;
+			case PROPERTY_TRANSFORM:
+				if (nativeView != null) {
+					applyTransform((Ti2DMatrix)newValue);
+				}
+				break;
+			case PROPERTY_KEEP_SCREEN_ON:
+				if (nativeView != null) {
+					nativeView.setKeepScreenOn(TiConvert.toBoolean(newValue));
+				}
+				break;
+			case PROPERTY_ACCESSIBILITY:
+				applyContentDescription();
+				break;
+			case PROPERTY_ACCESSIBILITY_HIDDEN:
+				applyAccessibilityHidden(newValue);
+				break;
+			default:
+				Log.d(TAG, "Unhandled property key: " + key, Log.DEBUG_MODE);
 		}
 	}
 
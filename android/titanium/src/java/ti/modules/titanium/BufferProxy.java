@@ -7,6 +7,9 @@
 package ti.modules.titanium;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import org.appcelerator.kroll.KrollDict;
@@ -21,7 +24,9 @@ import org.appcelerator.titanium.util.TiConvert;
 import ti.modules.titanium.codec.CodecModule;
 
 /**
- * A proxy that wraps a primitive byte array buffer
+ * A proxy that wraps a primitive byte array buffer.
+ * The backing storage may be larger than the buffer's length so appends are amortized, and it may be
+ * a direct ByteBuffer (see {@link #getByteBuffer()}) when the buffer was created with direct: true.
  */
 @Kroll.proxy(creatableInModule=TitaniumModule.class, propertyAccessors = {
 	TiC.PROPERTY_BYTE_ORDER,
@@ -32,20 +37,46 @@ public class BufferProxy extends KrollProxy
 {
 	private static final String TAG = "BufferProxy";
 
+	// Inserts are kept as segments until this many have piled up or the data is accessed
+	private static final int MAX_SEGMENTS = 64;
+
+	private static class Segment
+	{
+		final byte[] data;
+		final int offset;
+		final int length;
+
+		Segment(byte[] data, int offset, int length)
+		{
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	// Heap storage, only the first length bytes are in use and the rest is always zero
 	private byte[] buffer;
+	// Direct storage, used instead of buffer for direct buffers
+	private ByteBuffer directBuffer;
+	// While set, the content is the concatenation of these segments and buffer is unused
+	private ArrayList<Segment> segments;
+	private int length;
 
 	public BufferProxy()
 	{
+		buffer = new byte[0];
 	}
 
 	public BufferProxy(int bufferSize)
 	{
 		buffer = new byte[bufferSize];
+		length = bufferSize;
 	}
 
 	public BufferProxy(byte[] existingBuffer)
 	{
 		buffer = existingBuffer;
+		length = existingBuffer.length;
 	}
 
 	@Override
@@ -54,6 +85,7 @@ public class BufferProxy extends KrollProxy
 		// If no arguments are provided in create, allocate an empty buffer.
 		if (args.length == 0) {
 			buffer = new byte[0];
+			length = 0;
 		} else {
 			super.handleCreationArgs(createdInModule, args);
 		}
@@ -77,12 +109,19 @@ public class BufferProxy extends KrollProxy
 		}
 
 		buffer = new byte[length];
+		this.length = length;
 		Object value = dict.get(TiC.PROPERTY_VALUE);
 		if (value instanceof Number) {
 			encodeNumber((Number) value, dict);
 		} else if (value instanceof String) {
 			encodeString((String) value, dict);
 		}
+
+		if (dict.optBoolean(TiC.PROPERTY_DIRECT, false)) {
+			directBuffer = ByteBuffer.allocateDirect(this.length);
+			directBuffer.put(buffer, 0, this.length);
+			buffer = null;
+		}
 	}
 
 	protected void encodeNumber(Number value, KrollDict dict)
@@ -94,6 +133,7 @@ public class BufferProxy extends KrollProxy
 
 		if (buffer.length == 0) {
 			buffer = new byte[CodecModule.getWidth(type)];
+			length = buffer.length;
 		}
 
 		int byteOrder = CodecModule.getByteOrder(dict.get(TiC.PROPERTY_BYTE_ORDER));
@@ -112,6 +152,7 @@ public class BufferProxy extends KrollProxy
 			byte bytes[] = value.getBytes(charset);
 			if (buffer.length == 0) {
 				buffer = bytes;
+				length = bytes.length;
 			} else {
 				System.arraycopy(bytes, 0, buffer, 0, bytes.length);
 			}
@@ -122,17 +163,59 @@ public class BufferProxy extends KrollProxy
 	}
 
 	/**
+	 * Returns the native buffer for this proxy. The returned array is exactly {@link #getLength()} bytes long,
+	 * so this releases any spare capacity, and a direct buffer is moved to the heap for good.
+	 * Prefer {@link #getByteBuffer()} for NIO code.
 	 * @return The native buffer for this proxy
 	 * @module.api
 	 */
 	public byte[] getBuffer()
 	{
+		toHeap();
+		if (buffer.length != length) {
+			buffer = copyOf(buffer, length);
+		}
 		return buffer;
 	}
 
+	/**
+	 * Returns a view of this buffer's content, positioned at 0 with a limit of {@link #getLength()}.
+	 * Writes to the view are written to this buffer, and the view is direct for direct buffers.
+	 * The view is invalidated by any change to this buffer's length.
+	 * @return a big endian ByteBuffer view of this buffer.
+	 * @module.api
+	 */
+	public ByteBuffer getByteBuffer()
+	{
+		flatten();
+		ByteBuffer view;
+		if (directBuffer != null) {
+			view = directBuffer.duplicate();
+			view.clear();
+		} else {
+			view = ByteBuffer.wrap(buffer);
+		}
+		view.limit(length);
+		return view.slice();
+	}
+
+	/**
+	 * @return whether this buffer is backed by a direct ByteBuffer.
+	 * @module.api
+	 */
+	@Kroll.getProperty @Kroll.method
+	public boolean isDirect()
+	{
+		return directBuffer != null;
+	}
+
 	@Override
 	public Object getIndexedProperty(int index)
 	{
+		checkIndex(index, 1);
+		if (directBuffer != null) {
+			return directBuffer.get(index) & 0xFF;
+		}
 		return buffer[index] & 0xFF;
 	}
 
@@ -140,7 +223,12 @@ public class BufferProxy extends KrollProxy
 	public void setIndexedProperty(int index, Object value)
 	{
 		if (value instanceof Number) {
-			buffer[index] = ((Number)value).byteValue();
+			checkIndex(index, 1);
+			if (directBuffer != null) {
+				directBuffer.put(index, ((Number)value).byteValue());
+			} else {
+				buffer[index] = ((Number)value).byteValue();
+			}
 		} else {
 			super.setIndexedProperty(index, value);
 		}
@@ -172,6 +260,131 @@ public class BufferProxy extends KrollProxy
 		}
 	}
 
+	private void checkIndex(int index, int width)
+	{
+		flatten();
+		if (index < 0 || index + width > length) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+	}
+
+	private int capacity()
+	{
+		return directBuffer != null ? directBuffer.capacity() : buffer.length;
+	}
+
+	/**
+	 * Makes room for at least minCapacity bytes, growing by half again so a run of appends
+	 * only copies the data a logarithmic number of times.
+	 */
+	private void ensureCapacity(int minCapacity)
+	{
+		int capacity = capacity();
+		if (minCapacity <= capacity) {
+			return;
+		}
+
+		int newCapacity = Math.max(minCapacity, capacity + (capacity >> 1) + 16);
+		if (directBuffer != null) {
+			ByteBuffer newBuffer = ByteBuffer.allocateDirect(newCapacity);
+			ByteBuffer content = directBuffer.duplicate();
+			content.clear();
+			content.limit(length);
+			newBuffer.put(content);
+			newBuffer.clear();
+			directBuffer = newBuffer;
+		} else {
+			buffer = copyOf(buffer, newCapacity);
+		}
+	}
+
+	/**
+	 * Collapses pending insert segments back into a single array.
+	 */
+	private void flatten()
+	{
+		if (segments == null) {
+			return;
+		}
+
+		byte[] data = new byte[length];
+		int position = 0;
+		for (Segment segment : segments) {
+			System.arraycopy(segment.data, segment.offset, data, position, segment.length);
+			position += segment.length;
+		}
+		buffer = data;
+		segments = null;
+	}
+
+	private void toHeap()
+	{
+		flatten();
+		if (directBuffer != null) {
+			Log.d(TAG, "Moving direct buffer to the heap for array access", Log.DEBUG_MODE);
+			buffer = new byte[directBuffer.capacity()];
+			ByteBuffer content = directBuffer.duplicate();
+			content.clear();
+			content.get(buffer, 0, length);
+			directBuffer = null;
+		}
+	}
+
+	/**
+	 * Copies bytes out of this buffer into a heap array.
+	 */
+	private void getBytes(int position, byte[] dest, int destOffset, int count)
+	{
+		flatten();
+		if (directBuffer != null) {
+			ByteBuffer source = directBuffer.duplicate();
+			source.clear();
+			source.position(position);
+			source.get(dest, destOffset, count);
+		} else {
+			System.arraycopy(buffer, position, dest, destOffset, count);
+		}
+	}
+
+	/**
+	 * Copies bytes from a heap array into this buffer's storage, which must already be large enough.
+	 */
+	private void putBytes(int position, byte[] source, int sourceOffset, int count)
+	{
+		flatten();
+		if (directBuffer != null) {
+			ByteBuffer dest = directBuffer.duplicate();
+			dest.clear();
+			dest.position(position);
+			dest.put(source, sourceOffset, count);
+		} else {
+			System.arraycopy(source, sourceOffset, buffer, position, count);
+		}
+	}
+
+	/**
+	 * Copies bytes between buffers without leaving either one's storage.
+	 */
+	private static void copyBytes(BufferProxy source, int sourceOffset, BufferProxy dest, int destOffset, int count)
+	{
+		source.flatten();
+		dest.flatten();
+		if (source.directBuffer == null && dest.directBuffer == null) {
+			System.arraycopy(source.buffer, sourceOffset, dest.buffer, destOffset, count);
+
+		} else if (source.directBuffer == null) {
+			dest.putBytes(destOffset, source.buffer, sourceOffset, count);
+
+		} else if (dest.directBuffer == null) {
+			source.getBytes(sourceOffset, dest.buffer, destOffset, count);
+
+		} else {
+			byte[] temp = new byte[count];
+			source.getBytes(sourceOffset, temp, 0, count);
+			dest.putBytes(destOffset, temp, 0, count);
+		}
+	}
+
 	/**
 	 * Writes data from sourceBuffer into this.
 	 * @param position the offset position of this buffer.
@@ -183,11 +396,13 @@ public class BufferProxy extends KrollProxy
 	 */
 	public int write(int position, byte[] sourceBuffer, int sourceOffset, int sourceLength)
 	{
-		if ((position + sourceLength) > buffer.length) {
-			buffer = copyOf(buffer, (position + sourceLength));
+		flatten();
+		if ((position + sourceLength) > length) {
+			ensureCapacity(position + sourceLength);
+			length = position + sourceLength;
 		}
 
-		System.arraycopy(sourceBuffer, sourceOffset, buffer, position, sourceLength);
+		putBytes(position, sourceBuffer, sourceOffset, sourceLength);
 
 		return sourceLength;
 	}
@@ -195,24 +410,33 @@ public class BufferProxy extends KrollProxy
 	@Kroll.method
 	public int append(Object[] args)
 	{
-		int destLength = buffer.length;
 		BufferProxy src = (BufferProxy) args[0];
-		byte[] sourceBuffer = src.getBuffer();
+		int sourceBufferLength = src.getLength();
 
 		int offset = 0;
 		if (args.length > 1 && args[1] != null) {
 			offset = TiConvert.toInt(args[1]);
 		}
 
-		int sourceLength = sourceBuffer.length;
+		int sourceLength = sourceBufferLength;
 		if (args.length > 2 && args[2] != null) {
 			sourceLength = TiConvert.toInt(args[2]);
 		}
 
-		validateOffsetAndLength(offset, sourceLength, sourceBuffer.length);
+		validateOffsetAndLength(offset, sourceLength, sourceBufferLength);
+
+		if (segments != null && src != this) {
+			segments.add(new Segment(src.copyBytes(offset, sourceLength), 0, sourceLength));
+			length += sourceLength;
+			return sourceLength;
+		}
 
-		buffer = copyOf(buffer, (destLength + sourceLength));
-		System.arraycopy(sourceBuffer, offset, buffer, destLength, sourceLength);
+		// src may be this buffer with inserts still pending
+		flatten();
+		int destLength = length;
+		ensureCapacity(destLength + sourceLength);
+		copyBytes(src, offset, this, destLength, sourceLength);
+		length = destLength + sourceLength;
 		return sourceLength;
 	}
 
@@ -223,7 +447,7 @@ public class BufferProxy extends KrollProxy
 			throw new IllegalArgumentException("At least 2 arguments required for insert: src, offset");
 		}
 		BufferProxy sourceBufferProxy = (BufferProxy) args[0];
-		byte[] sourceBuffer = sourceBufferProxy.getBuffer();
+		int sourceBufferLength = sourceBufferProxy.getLength();
 		int offset = TiConvert.toInt(args[1]);
 
 		int sourceOffset = 0;
@@ -231,21 +455,57 @@ public class BufferProxy extends KrollProxy
 			sourceOffset = TiConvert.toInt(args[2]);
 		}
 
-		int sourceLength = sourceBuffer.length;
+		int sourceLength = sourceBufferLength;
 		if (args.length > 3 && args[3] != null) {
 			sourceLength = TiConvert.toInt(args[3]);
 		}
 
-		validateOffsetAndLength(sourceOffset, sourceLength, sourceBuffer.length);
+		validateOffsetAndLength(sourceOffset, sourceLength, sourceBufferLength);
+		if (offset < 0 || offset > length) {
+			throw new IllegalArgumentException("offset of " + offset + " is outside of the buffer length: " + length);
+		}
 
-		byte[] preInsertBuffer = copyOf(buffer, offset);
-		byte[] postInsertBuffer = copyOfRange(buffer, offset, buffer.length);
+		byte[] inserted = sourceBufferProxy.copyBytes(sourceOffset, sourceLength);
+
+		if (directBuffer != null) {
+			// Direct storage can't be split into segments, shift the tail within the buffer instead
+			int tailLength = length - offset;
+			byte[] tail = copyBytes(offset, tailLength);
+			ensureCapacity(length + sourceLength);
+			putBytes(offset, inserted, 0, sourceLength);
+			putBytes(offset + sourceLength, tail, 0, tailLength);
+			length += sourceLength;
+			return sourceLength;
+		}
 
-		buffer = new byte[(preInsertBuffer.length + sourceLength + postInsertBuffer.length)];
-		System.arraycopy(preInsertBuffer, 0, buffer, 0, preInsertBuffer.length);
-		System.arraycopy(sourceBuffer, sourceOffset, buffer, preInsertBuffer.length, sourceLength);
-		System.arraycopy(postInsertBuffer, 0, buffer, (preInsertBuffer.length + sourceLength), postInsertBuffer.length);
+		if (segments == null) {
+			segments = new ArrayList<Segment>();
+			if (length > 0) {
+				segments.add(new Segment(buffer, 0, length));
+			}
+			buffer = null;
+		}
 
+		// Split the segment containing offset and put the new data in between
+		int position = 0;
+		int index = 0;
+		while (index < segments.size() && position + segments.get(index).length <= offset) {
+			position += segments.get(index).length;
+			index++;
+		}
+		if (index < segments.size() && position < offset) {
+			Segment segment = segments.get(index);
+			int headLength = offset - position;
+			segments.set(index, new Segment(segment.data, segment.offset, headLength));
+			segments.add(index + 1, new Segment(segment.data, segment.offset + headLength, segment.length - headLength));
+			index++;
+		}
+		segments.add(index, new Segment(inserted, 0, sourceLength));
+		length += sourceLength;
+
+		if (segments.size() > MAX_SEGMENTS) {
+			flatten();
+		}
 		return sourceLength;
 	}
 
@@ -257,7 +517,7 @@ public class BufferProxy extends KrollProxy
 		}
 
 		BufferProxy sourceBufferProxy = (BufferProxy) args[0];
-		byte[] sourceBuffer = sourceBufferProxy.getBuffer();
+		int sourceBufferLength = sourceBufferProxy.getLength();
 
 		int offset = 0;
 		if (args.length > 1 && args[1] != null) {
@@ -269,14 +529,15 @@ public class BufferProxy extends KrollProxy
 			sourceOffset = TiConvert.toInt(args[2]);
 		}
 
-		int sourceLength = sourceBuffer.length;
+		int sourceLength = sourceBufferLength;
 		if (args.length > 3 && args[3] != null) {
 			sourceLength = TiConvert.toInt(args[3]);
 		}
 
-		validateOffsetAndLength(sourceOffset, sourceLength, sourceBuffer.length);
+		validateOffsetAndLength(sourceOffset, sourceLength, sourceBufferLength);
+		checkIndex(offset, sourceLength);
 
-		System.arraycopy(sourceBuffer, sourceOffset, buffer, offset, sourceLength);
+		copyBytes(sourceBufferProxy, sourceOffset, this, offset, sourceLength);
 		return sourceLength;
 	}
 
@@ -288,14 +549,14 @@ public class BufferProxy extends KrollProxy
 			offset = TiConvert.toInt(args[0]);
 		}
 
-		int length = buffer.length;
+		int length = this.length;
 		if (args.length > 1 && args[1] != null) {
 			length = TiConvert.toInt(args[1]);
 		}
 
-		validateOffsetAndLength(offset, length, buffer.length);
+		validateOffsetAndLength(offset, length, this.length);
 
-		return new BufferProxy(copyOfRange(buffer, offset, offset+length));
+		return new BufferProxy(copyBytes(offset, length));
 	}
 
 	@Kroll.method
@@ -311,38 +572,198 @@ public class BufferProxy extends KrollProxy
 			offset = TiConvert.toInt(args[1]);
 		}
 
-		int length = buffer.length;
+		int length = this.length;
 		if (args.length > 2 && args[2] != null) {
 			length = TiConvert.toInt(args[2]);
 		}
 
-		validateOffsetAndLength(offset, length, buffer.length);
+		validateOffsetAndLength(offset, length, this.length);
+		checkIndex(offset, length);
 
-		Arrays.fill(buffer, offset, (offset + length), (byte)fillByte);
+		if (directBuffer != null) {
+			for (int i = offset; i < offset + length; i++) {
+				directBuffer.put(i, (byte)fillByte);
+			}
+		} else {
+			Arrays.fill(buffer, offset, (offset + length), (byte)fillByte);
+		}
 	}
 
 	@Kroll.method
 	public void clear()
 	{
-		Arrays.fill(buffer, (byte)0);
+		flatten();
+		if (directBuffer != null) {
+			putBytes(0, new byte[length], 0, length);
+		} else {
+			Arrays.fill(buffer, 0, length, (byte)0);
+		}
 	}
 
 	@Kroll.method
 	public void release()
 	{
 		buffer = new byte[0];
+		directBuffer = null;
+		segments = null;
+		length = 0;
 	}
 
 	@Kroll.method
 	public String toString()
 	{
-		return new String(buffer);
+		flatten();
+		if (directBuffer != null) {
+			return new String(copyBytes(0, length));
+		}
+		return new String(buffer, 0, length);
 	}
 
 	@Kroll.method
 	public TiBlob toBlob()
 	{
-		return TiBlob.blobFromData(buffer);
+		if (directBuffer != null) {
+			return TiBlob.blobFromData(copyBytes(0, length));
+		}
+		return TiBlob.blobFromData(getBuffer());
+	}
+
+	/**
+	 * @param offset the first byte to copy.
+	 * @param count the number of bytes to copy.
+	 * @return a new array holding a copy of the requested bytes.
+	 */
+	public byte[] copyBytes(int offset, int count)
+	{
+		checkIndex(offset, count);
+		byte[] bytes = new byte[count];
+		getBytes(offset, bytes, 0, count);
+		return bytes;
+	}
+
+	// Typed accessors, these read and write a whole value per call instead of going byte by byte
+	// through indexed properties. The byte order defaults to the buffer's byteOrder.
+
+	private ByteBuffer typedView(Object byteOrder)
+	{
+		ByteBuffer view = getByteBuffer();
+		if (byteOrder == null) {
+			byteOrder = getProperty(TiC.PROPERTY_BYTE_ORDER);
+		}
+		view.order(CodecModule.getByteOrder(byteOrder) == CodecModule.BIG_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+		return view;
+	}
+
+	@Kroll.method
+	public int readInt8(int offset)
+	{
+		checkIndex(offset, 1);
+		return typedView(null).get(offset);
+	}
+
+	@Kroll.method
+	public int readUInt8(int offset)
+	{
+		checkIndex(offset, 1);
+		return typedView(null).get(offset) & 0xFF;
+	}
+
+	@Kroll.method
+	public int readInt16(int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 2);
+		return typedView(byteOrder).getShort(offset);
+	}
+
+	@Kroll.method
+	public int readUInt16(int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 2);
+		return typedView(byteOrder).getShort(offset) & 0xFFFF;
+	}
+
+	@Kroll.method
+	public int readInt32(int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 4);
+		return typedView(byteOrder).getInt(offset);
+	}
+
+	@Kroll.method
+	public long readUInt32(int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 4);
+		return typedView(byteOrder).getInt(offset) & 0xFFFFFFFFL;
+	}
+
+	@Kroll.method
+	public long readInt64(int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 8);
+		return typedView(byteOrder).getLong(offset);
+	}
+
+	@Kroll.method
+	public float readFloat(int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 4);
+		return typedView(byteOrder).getFloat(offset);
+	}
+
+	@Kroll.method
+	public double readDouble(int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 8);
+		return typedView(byteOrder).getDouble(offset);
+	}
+
+	@Kroll.method
+	public int writeInt8(Number value, int offset)
+	{
+		checkIndex(offset, 1);
+		typedView(null).put(offset, value.byteValue());
+		return offset + 1;
+	}
+
+	@Kroll.method
+	public int writeInt16(Number value, int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 2);
+		typedView(byteOrder).putShort(offset, value.shortValue());
+		return offset + 2;
+	}
+
+	@Kroll.method
+	public int writeInt32(Number value, int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 4);
+		// Go through long so unsigned 32-bit values keep their bit pattern
+		typedView(byteOrder).putInt(offset, (int) value.longValue());
+		return offset + 4;
+	}
+
+	@Kroll.method
+	public int writeInt64(Number value, int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 8);
+		typedView(byteOrder).putLong(offset, value.longValue());
+		return offset + 8;
+	}
+
+	@Kroll.method
+	public int writeFloat(Number value, int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 4);
+		typedView(byteOrder).putFloat(offset, value.floatValue());
+		return offset + 4;
+	}
+
+	@Kroll.method
+	public int writeDouble(Number value, int offset, @Kroll.argument(optional = true) Object byteOrder)
+	{
+		checkIndex(offset, 8);
+		typedView(byteOrder).putDouble(offset, value.doubleValue());
+		return offset + 8;
 	}
 
 	/**
@@ -352,7 +773,7 @@ public class BufferProxy extends KrollProxy
 	@Kroll.getProperty @Kroll.method
 	public int getLength()
 	{
-		return buffer.length;
+		return length;
 	}
 
 	/**
@@ -369,7 +790,18 @@ public class BufferProxy extends KrollProxy
 
 	public void resize(int length)
 	{
-		buffer = copyOf(buffer, length);
+		flatten();
+		if (length > capacity()) {
+			if (directBuffer != null) {
+				ensureCapacity(length);
+			} else {
+				buffer = copyOf(buffer, length);
+			}
+
+		} else if (length < this.length) {
+			// Keep the bytes past the end zeroed so growing again reads zeros
+			putBytes(length, new byte[this.length - length], 0, this.length - length);
+		}
+		this.length = length;
 	}
 }
-
@@ -6,8 +6,15 @@
  */
 package ti.modules.titanium.codec;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
 
 import org.appcelerator.kroll.KrollDict;
 import org.appcelerator.kroll.KrollModule;
@@ -41,6 +48,22 @@ public class CodecModule extends KrollModule
 	@Kroll.constant public static final int BIG_ENDIAN = 0;
 	@Kroll.constant public static final int LITTLE_ENDIAN = 1;
 
+	// Charset coders are expensive to look up and create, and not thread safe, so each thread keeps its own
+	private static final ThreadLocal<HashMap<String, CharsetDecoder>> decoders = new ThreadLocal<HashMap<String, CharsetDecoder>>() {
+		@Override
+		protected HashMap<String, CharsetDecoder> initialValue()
+		{
+			return new HashMap<String, CharsetDecoder>();
+		}
+	};
+	private static final ThreadLocal<HashMap<String, CharsetEncoder>> encoders = new ThreadLocal<HashMap<String, CharsetEncoder>>() {
+		@Override
+		protected HashMap<String, CharsetEncoder> initialValue()
+		{
+			return new HashMap<String, CharsetEncoder>();
+		}
+	};
+
 	@Kroll.method
 	public int encodeNumber(KrollDict args)
 	{
@@ -64,8 +87,18 @@ public class CodecModule extends KrollModule
 			position = TiConvert.toInt(args, TiC.PROPERTY_POSITION);
 		}
 
-		byte buffer[] = dest.getBuffer();
-		return encodeNumber(src, type, buffer, position, byteOrder);
+		int width = getWidth(type);
+		if (width == 0) {
+			return position;
+		}
+		// Encode into a scratch array and copy it in, so a direct or oversized buffer keeps its storage
+		ByteBuffer buffer = dest.getByteBuffer();
+		validateNumberRange(position, 1, width, width, buffer.limit());
+		byte bytes[] = new byte[width];
+		encodeNumber(src, type, bytes, 0, byteOrder);
+		buffer.position(position);
+		buffer.put(bytes);
+		return position + width;
 	}
 
 	public static int encodeNumber(Number src, String type, byte dest[], int position, int byteOrder)
@@ -124,7 +157,17 @@ public class CodecModule extends KrollModule
 			position = TiConvert.toInt(args, TiC.PROPERTY_POSITION);
 		}
 
-		byte src[] = buffer.getBuffer();
+		int width = getWidth(type);
+		if (width == 0) {
+			return 0;
+		}
+		ByteBuffer view = buffer.getByteBuffer();
+		validateNumberRange(position, 1, width, width, view.limit());
+		byte src[] = new byte[width];
+		view.position(position);
+		view.get(src);
+		position = 0;
+
 		if (type.equals(TYPE_BYTE)) {
 			return src[position];
 		}
@@ -165,6 +208,157 @@ public class CodecModule extends KrollModule
 		return 0;
 	}
 
+	/**
+	 * Encodes every number of an array with a single call, see {@link #encodeNumber(KrollDict)}.
+	 * Values are written stride bytes apart, stride defaults to the width of type.
+	 * @return the position after the last encoded value.
+	 */
+	@Kroll.method
+	public int encodeNumbers(KrollDict args)
+	{
+		if (!args.containsKey(TiC.PROPERTY_DEST)) {
+			throw new IllegalArgumentException("dest was not specified for encodeNumbers");
+		}
+		if (!(args.get(TiC.PROPERTY_SOURCE) instanceof Object[])) {
+			throw new IllegalArgumentException("src array was not specified for encodeNumbers");
+		}
+		if (!args.containsKey(TiC.PROPERTY_TYPE)) {
+			throw new IllegalArgumentException("type was not specified for encodeNumbers");
+		}
+
+		BufferProxy dest = (BufferProxy) args.get(TiC.PROPERTY_DEST);
+		Object[] src = (Object[]) args.get(TiC.PROPERTY_SOURCE);
+		String type = TiConvert.toString(args, TiC.PROPERTY_TYPE);
+		int width = getWidth(type);
+		if (width == 0) {
+			throw new IllegalArgumentException("invalid type for encodeNumbers: " + type);
+		}
+
+		int position = 0;
+		if (args.containsKey(TiC.PROPERTY_POSITION)) {
+			position = TiConvert.toInt(args, TiC.PROPERTY_POSITION);
+		}
+		int stride = width;
+		if (args.containsKey(TiC.PROPERTY_STRIDE)) {
+			stride = TiConvert.toInt(args, TiC.PROPERTY_STRIDE);
+		}
+
+		ByteBuffer buffer = getNumberView(dest, args);
+		validateNumberRange(position, src.length, width, stride, buffer.limit());
+		// Check every element first so a bad one doesn't leave the buffer partly written
+		for (int i = 0; i < src.length; i++) {
+			if (!(src[i] instanceof Number)) {
+				throw new IllegalArgumentException("src[" + i + "] is not a number for encodeNumbers: " + src[i]);
+			}
+		}
+
+		int index = position;
+		for (int i = 0; i < src.length; i++, index += stride) {
+			Number value = (Number) src[i];
+			if (TYPE_BYTE.equals(type)) {
+				buffer.put(index, value.byteValue());
+			} else if (TYPE_SHORT.equals(type)) {
+				buffer.putShort(index, (short) value.longValue());
+			} else if (TYPE_INT.equals(type)) {
+				buffer.putInt(index, (int) value.longValue());
+			} else if (TYPE_FLOAT.equals(type)) {
+				buffer.putFloat(index, value.floatValue());
+			} else if (TYPE_LONG.equals(type)) {
+				buffer.putLong(index, value.longValue());
+			} else {
+				buffer.putDouble(index, value.doubleValue());
+			}
+		}
+
+		return src.length == 0 ? position : index - stride + width;
+	}
+
+	/**
+	 * Decodes a run of numbers with a single call, see {@link #decodeNumber(KrollDict)}.
+	 * Values are read stride bytes apart, stride defaults to the width of type. Without a count,
+	 * every value that fits between position and the end of the buffer is decoded.
+	 * @return the decoded numbers.
+	 */
+	@Kroll.method
+	public double[] decodeNumbers(KrollDict args)
+	{
+		if (!args.containsKey(TiC.PROPERTY_SOURCE)) {
+			throw new IllegalArgumentException("src was not specified for decodeNumbers");
+		}
+		if (!args.containsKey(TiC.PROPERTY_TYPE)) {
+			throw new IllegalArgumentException("type was not specified for decodeNumbers");
+		}
+
+		BufferProxy src = (BufferProxy) args.get(TiC.PROPERTY_SOURCE);
+		String type = TiConvert.toString(args, TiC.PROPERTY_TYPE);
+		int width = getWidth(type);
+		if (width == 0) {
+			throw new IllegalArgumentException("invalid type for decodeNumbers: " + type);
+		}
+
+		int position = 0;
+		if (args.containsKey(TiC.PROPERTY_POSITION)) {
+			position = TiConvert.toInt(args, TiC.PROPERTY_POSITION);
+		}
+		int stride = width;
+		if (args.containsKey(TiC.PROPERTY_STRIDE)) {
+			stride = TiConvert.toInt(args, TiC.PROPERTY_STRIDE);
+		}
+
+		ByteBuffer buffer = getNumberView(src, args);
+		int count = 0;
+		if (args.containsKey(TiC.PROPERTY_COUNT)) {
+			count = TiConvert.toInt(args, TiC.PROPERTY_COUNT);
+		} else if (buffer.limit() - position >= width) {
+			count = (buffer.limit() - position - width) / stride + 1;
+		}
+		validateNumberRange(position, count, width, stride, buffer.limit());
+
+		// A double[] crosses into JavaScript as one array copy instead of a boxed value per element
+		double[] values = new double[count];
+		int index = position;
+		for (int i = 0; i < count; i++, index += stride) {
+			if (TYPE_BYTE.equals(type)) {
+				values[i] = buffer.get(index);
+			} else if (TYPE_SHORT.equals(type)) {
+				// Unsigned, as with decodeNumber
+				values[i] = buffer.getShort(index) & 0xFFFF;
+			} else if (TYPE_INT.equals(type)) {
+				values[i] = buffer.getInt(index);
+			} else if (TYPE_FLOAT.equals(type)) {
+				values[i] = buffer.getFloat(index);
+			} else if (TYPE_LONG.equals(type)) {
+				values[i] = buffer.getLong(index);
+			} else {
+				values[i] = buffer.getDouble(index);
+			}
+		}
+
+		return values;
+	}
+
+	private static ByteBuffer getNumberView(BufferProxy buffer, KrollDict args)
+	{
+		ByteBuffer view = buffer.getByteBuffer();
+		if (getByteOrder(args.get(TiC.PROPERTY_BYTE_ORDER)) == BIG_ENDIAN) {
+			view.order(ByteOrder.BIG_ENDIAN);
+		} else {
+			view.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return view;
+	}
+
+	protected void validateNumberRange(int position, int count, int width, int stride, int bufferLength)
+	{
+		if (position < 0 || count < 0 || stride < width) {
+			throw new IllegalArgumentException("invalid position " + position + ", count " + count + " or stride " + stride);
+		}
+		if (count > 0 && (long) position + (long) (count - 1) * stride + width > bufferLength) {
+			throw new IllegalArgumentException("position " + position + " and " + count + " values with a stride of " + stride +
+				" is bigger than the buffer length: " + bufferLength);
+		}
+	}
+
 	@Kroll.method
 	public int encodeString(KrollDict args)
 	{
@@ -192,22 +386,19 @@ public class CodecModule extends KrollModule
 		}
 
 		String charset = validateCharset(args);
-		byte destBuffer[] = dest.getBuffer();
 		validatePositionAndLength(srcPosition, srcLength, src.length());
 
-		if (srcPosition != 0 || srcLength != src.length()) {
-			src = src.substring(srcPosition, srcPosition+srcLength);
+		// Encode straight into the destination instead of through an intermediate byte array
+		ByteBuffer destBuffer = dest.getByteBuffer();
+		destBuffer.position(destPosition);
+		CharsetEncoder encoder = getEncoder(charset);
+		encoder.reset();
+		CharBuffer chars = CharBuffer.wrap(src, srcPosition, srcPosition + srcLength);
+		if (encoder.encode(chars, destBuffer, true).isOverflow() || encoder.flush(destBuffer).isOverflow()) {
+			throw new IllegalArgumentException("encoded string is bigger than the space left in dest: " + (dest.getLength() - destPosition));
 		}
 
-		try {
-			byte encoded[] = src.getBytes(charset);
-			System.arraycopy(encoded, 0, destBuffer, destPosition, encoded.length);
-
-			return destPosition + encoded.length;
-		} catch (UnsupportedEncodingException e) {
-			Log.w(TAG, e.getMessage(), e);
-			throw new IllegalArgumentException("Unsupported Encoding: " + charset);
-		}
+		return destBuffer.position();
 	}
 
 	@Kroll.method
@@ -218,25 +409,28 @@ public class CodecModule extends KrollModule
 		}
 
 		BufferProxy src = (BufferProxy) args.get(TiC.PROPERTY_SOURCE);
-		byte buffer[] = src.getBuffer();
+		ByteBuffer buffer = src.getByteBuffer();
 
 		int position = 0;
 		if (args.containsKey(TiC.PROPERTY_POSITION)) {
 			position = TiConvert.toInt(args, TiC.PROPERTY_POSITION);
 		}
-		int length = buffer.length;
+		int length = buffer.limit();
 		if (args.containsKey(TiC.PROPERTY_LENGTH)) {
 			length = TiConvert.toInt(args, TiC.PROPERTY_LENGTH);
 		}
 
-		validatePositionAndLength(position, length, buffer.length);
+		validatePositionAndLength(position, length, buffer.limit());
 		String charset = validateCharset(args);
 
+		buffer.position(position);
+		buffer.limit(position + length);
 		try {
-			return new String(buffer, position, length, charset);
-		} catch (UnsupportedEncodingException e) {
+			return getDecoder(charset).decode(buffer).toString();
+		} catch (CharacterCodingException e) {
+			// Not reached, the cached decoders replace malformed input like new String(bytes, charset) does
 			Log.w(TAG, e.getMessage(), e);
-			throw new IllegalArgumentException("Unsupported Encoding: " + charset);
+			throw new IllegalArgumentException("Unable to decode string as " + charset);
 		}
 	}
 
@@ -252,6 +446,61 @@ public class CodecModule extends KrollModule
 		return ((Number) buffer.get(scope, position)).byteValue();
 	}*/
 
+	/**
+	 * Returns a decoder for charset that is reused by the calling thread. Malformed and unmappable
+	 * input is replaced, matching the String constructors. Callers must reset it before use, or use
+	 * the CharsetDecoder.decode(ByteBuffer) convenience method which does.
+	 * @param charset a Java charset name, see {@link #getCharset(String)}.
+	 * @return the decoder.
+	 */
+	public static CharsetDecoder getDecoder(String charset)
+	{
+		HashMap<String, CharsetDecoder> cache = decoders.get();
+		CharsetDecoder decoder = cache.get(charset);
+		if (decoder == null) {
+			decoder = newDecoder(charset);
+			cache.put(charset, decoder);
+		}
+		return decoder;
+	}
+
+	/**
+	 * @param charset a Java charset name, see {@link #getCharset(String)}.
+	 * @return a new decoder for charset, for callers that keep decoding state across calls.
+	 */
+	public static CharsetDecoder newDecoder(String charset)
+	{
+		try {
+			return Charset.forName(charset).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unsupported Encoding: " + charset);
+		}
+	}
+
+	/**
+	 * Returns an encoder for charset that is reused by the calling thread, see {@link #getDecoder(String)}.
+	 * @param charset a Java charset name, see {@link #getCharset(String)}.
+	 * @return the encoder.
+	 */
+	public static CharsetEncoder getEncoder(String charset)
+	{
+		HashMap<String, CharsetEncoder> cache = encoders.get();
+		CharsetEncoder encoder = cache.get(charset);
+		if (encoder == null) {
+			try {
+				encoder = Charset.forName(charset).newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unsupported Encoding: " + charset);
+			}
+			cache.put(charset, encoder);
+		}
+		return encoder;
+	}
+
 	public static int getWidth(String dataType)
 	{
 		if (TYPE_BYTE.equals(dataType)) {
@@ -0,0 +1,176 @@
+/**
+ * Appcelerator Titanium Mobile
+ * Copyright (c) 2012 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Apache Public License
+ * Please see the LICENSE included with this distribution for details.
+ */
+package ti.modules.titanium.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+
+import org.appcelerator.kroll.KrollDict;
+import org.appcelerator.kroll.KrollProxy;
+import org.appcelerator.kroll.annotations.Kroll;
+import org.appcelerator.titanium.TiC;
+import org.appcelerator.titanium.util.TiConvert;
+
+import ti.modules.titanium.BufferProxy;
+
+/**
+ * Decodes text that arrives in chunks, such as reads from a socket. A multibyte character split
+ * across two chunks is held back until the rest of it arrives, and complete lines can be pulled
+ * out as they are terminated.
+ */
+@Kroll.proxy(creatableInModule=CodecModule.class)
+public class StringDecoderProxy extends KrollProxy
+{
+	private static final int CHAR_BUFFER_SIZE = 1024;
+
+	private CharsetDecoder decoder;
+	// Bytes of a character that has not been completely received yet
+	private final ByteBuffer pendingBytes = ByteBuffer.allocate(16);
+	private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+	private final StringBuilder output = new StringBuilder();
+	// Text after the last line terminator seen by decodeLines
+	private final StringBuilder pendingLine = new StringBuilder();
+
+	public StringDecoderProxy()
+	{
+		decoder = CodecModule.newDecoder("UTF-8");
+	}
+
+	@Override
+	public void handleCreationDict(KrollDict dict)
+	{
+		super.handleCreationDict(dict);
+
+		if (dict.containsKey(TiC.PROPERTY_CHARSET)) {
+			String charset = CodecModule.getCharset(TiConvert.toString(dict, TiC.PROPERTY_CHARSET));
+			if (charset == null) {
+				throw new IllegalArgumentException("could not find a valid charset for " + dict.get(TiC.PROPERTY_CHARSET));
+			}
+			decoder = CodecModule.newDecoder(charset);
+		}
+	}
+
+	/**
+	 * Decodes a chunk of bytes.
+	 * @return the characters completed by this chunk.
+	 */
+	@Kroll.method
+	public String decode(BufferProxy buffer, @Kroll.argument(optional = true) Object offset,
+		@Kroll.argument(optional = true) Object length)
+	{
+		output.setLength(0);
+		decodeChunk(buffer, offset, length);
+		return output.toString();
+	}
+
+	/**
+	 * Decodes a chunk of bytes and splits the text on line feeds. A carriage return before the
+	 * line feed is dropped. Text after the last line feed is kept for the next call.
+	 * @return the lines completed by this chunk, without terminators.
+	 */
+	@Kroll.method
+	public String[] decodeLines(BufferProxy buffer, @Kroll.argument(optional = true) Object offset,
+		@Kroll.argument(optional = true) Object length)
+	{
+		output.setLength(0);
+		decodeChunk(buffer, offset, length);
+
+		ArrayList<String> lines = new ArrayList<String>();
+		int start = 0;
+		int end;
+		while ((end = output.indexOf("\n", start)) != -1) {
+			pendingLine.append(output, start, end);
+			int lineLength = pendingLine.length();
+			if (lineLength > 0 && pendingLine.charAt(lineLength - 1) == '\r') {
+				pendingLine.setLength(lineLength - 1);
+			}
+			lines.add(pendingLine.toString());
+			pendingLine.setLength(0);
+			start = end + 1;
+		}
+		pendingLine.append(output, start, output.length());
+
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	/**
+	 * Ends the input. Bytes of an incomplete character are decoded as a replacement character.
+	 * @return the text decodeLines was still holding, followed by anything left in the decoder.
+	 */
+	@Kroll.method
+	public String end()
+	{
+		output.setLength(0);
+		output.append(pendingLine);
+
+		pendingBytes.flip();
+		decodeInto(pendingBytes, true);
+		chars.clear();
+		decoder.flush(chars);
+		chars.flip();
+		output.append(chars);
+
+		reset();
+		return output.toString();
+	}
+
+	/**
+	 * Discards any partially received character or line.
+	 */
+	@Kroll.method
+	public void reset()
+	{
+		decoder.reset();
+		pendingBytes.clear();
+		pendingLine.setLength(0);
+	}
+
+	private void decodeChunk(BufferProxy buffer, Object offset, Object length)
+	{
+		ByteBuffer in = buffer.getByteBuffer();
+		int start = offset != null ? TiConvert.toInt(offset) : 0;
+		int count = length != null ? TiConvert.toInt(length) : in.limit() - start;
+		if (start < 0 || count < 0 || start + count > in.limit()) {
+			throw new IllegalArgumentException("offset " + start + " and length " + count +
+				" is bigger than the buffer length: " + in.limit());
+		}
+		in.position(start);
+		in.limit(start + count);
+
+		// Complete a character left over from the previous chunk one byte at a time
+		while (pendingBytes.position() > 0 && in.hasRemaining()) {
+			pendingBytes.put(in.get());
+			pendingBytes.flip();
+			decodeInto(pendingBytes, false);
+			pendingBytes.compact();
+		}
+		if (pendingBytes.position() > 0) {
+			return;
+		}
+
+		decodeInto(in, false);
+		if (in.hasRemaining()) {
+			pendingBytes.put(in);
+		}
+	}
+
+	private void decodeInto(ByteBuffer in, boolean endOfInput)
+	{
+		while (true) {
+			chars.clear();
+			CoderResult result = decoder.decode(in, chars, endOfInput);
+			chars.flip();
+			output.append(chars);
+			if (!result.isOverflow()) {
+				break;
+			}
+		}
+	}
+}
@@ -6,14 +6,12 @@
  */
 package ti.modules.titanium.stream;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.appcelerator.kroll.KrollProxy;
 import org.appcelerator.kroll.annotations.Kroll;
-import org.appcelerator.kroll.common.Log;
 import org.appcelerator.titanium.io.TiStream;
-import org.appcelerator.titanium.util.TiStreamHelper;
 
 import ti.modules.titanium.BufferProxy;
 
@@ -102,22 +100,24 @@ public class BufferStreamProxy extends KrollProxy implements TiStream
 			throw new IllegalArgumentException("Invalid number of arguments");
 		}
 
-		ByteArrayInputStream bufferInputStream = new ByteArrayInputStream(buffer.getBuffer(), position, (buffer.getLength() - position));
-		int bytesRead;
-
-		try {
-			bytesRead = TiStreamHelper.read(bufferInputStream, bufferProxy, offset, length);
-
-			if (bytesRead > -1) {
-				position += bytesRead;
-			}
+		// Copy between views so neither buffer gives up spare capacity or direct storage
+		ByteBuffer source = buffer.getByteBuffer();
+		ByteBuffer target = bufferProxy.getByteBuffer();
+		if ((offset + length) > target.limit()) {
+			length = target.limit() - offset;
+		}
+		if (position >= source.limit()) {
+			return -1;
+		}
 
-			return bytesRead;
+		int bytesRead = Math.min(length, source.limit() - position);
+		source.position(position);
+		source.limit(position + bytesRead);
+		target.position(offset);
+		target.put(source);
+		position += bytesRead;
 
-		} catch (IOException e) {
-			Log.e(TAG, "Unable to read from buffer stream, IO error", e);
-			throw new IOException("Unable to read from buffer stream, IO error");
-		}
+		return bytesRead;
 	}
 
 	@Kroll.method
@@ -172,7 +172,15 @@ public class BufferStreamProxy extends KrollProxy implements TiStream
 			throw new IllegalArgumentException("Invalid number of arguments");
 		}
 
-		int bytesWritten = buffer.write(position, bufferProxy.getBuffer(), offset, length);
+		ByteBuffer source = bufferProxy.getByteBuffer();
+		if (offset < 0 || length < 0 || offset + length > source.limit()) {
+			throw new IllegalArgumentException("offset of " + offset + " and length of " + length + " is outside of the buffer length: " + source.limit());
+		}
+		byte[] bytes = new byte[length];
+		source.position(offset);
+		source.get(bytes);
+
+		int bytesWritten = buffer.write(position, bytes, 0, length);
 		position += bytesWritten;
 
 		return bytesWritten;
@@ -6,25 +6,39 @@
  */
 package ti.modules.titanium.stream;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.appcelerator.kroll.KrollProxy;
 import org.appcelerator.kroll.annotations.Kroll;
 import org.appcelerator.kroll.common.Log;
 import org.appcelerator.titanium.TiFileProxy;
-import org.appcelerator.titanium.io.TiStream;
+import org.appcelerator.titanium.io.TiBaseFile;
+import org.appcelerator.titanium.io.TiChannelStream;
 import org.appcelerator.titanium.util.TiStreamHelper;
 
 import ti.modules.titanium.BufferProxy;
 
 @Kroll.proxy(parentModule=StreamModule.class)
-public class FileStreamProxy extends KrollProxy implements TiStream
+public class FileStreamProxy extends KrollProxy implements TiChannelStream
 {
 	private static final String TAG = "FileStream";
 
 	private TiFileProxy fileProxy;
 	private boolean isOpen = false;
 
+	// Only set for seekable streams, which bypass the base file's sequential streams
+	private RandomAccessFile randomAccessFile;
+	private FileChannel channel;
+	private MappedByteBuffer mappedBuffer;
+	private int mode;
+
 
 	public FileStreamProxy(TiFileProxy fileProxy)
 	{
@@ -32,9 +46,48 @@ public class FileStreamProxy extends KrollProxy implements TiStream
 		isOpen = true;
 	}
 
+	/**
+	 * Creates a seekable stream over the file's contents.
+	 * @param fileProxy the file to open, must be on the device's file system.
+	 * @param mode TiBaseFile.MODE_READ, MODE_WRITE or MODE_APPEND. Writable streams start at the beginning
+	 * of the file for MODE_WRITE and at the end for MODE_APPEND, existing content is kept in both cases.
+	 * @param mapped whether to memory map the file, only honored for MODE_READ.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public FileStreamProxy(TiFileProxy fileProxy, int mode, boolean mapped) throws IOException
+	{
+		File file = fileProxy.getBaseFile().getNativeFile();
+		if (file == null) {
+			throw new IOException("Unable to open file for random access");
+		}
+
+		this.fileProxy = fileProxy;
+		this.mode = mode;
+		randomAccessFile = new RandomAccessFile(file, mode == TiBaseFile.MODE_READ ? "r" : "rw");
+		channel = randomAccessFile.getChannel();
+
+		if (mode == TiBaseFile.MODE_APPEND) {
+			channel.position(channel.size());
+
+		} else if (mode == TiBaseFile.MODE_READ && mapped) {
+			long size = channel.size();
+			if (size <= Integer.MAX_VALUE) {
+				mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+			} else {
+				Log.w(TAG, "File is too large to map, reading through the file channel");
+			}
+		}
+		isOpen = true;
+	}
+
 
 	// TiStream interface methods
 	@Kroll.method
+	//public int read(BufferProxy buffer)
+	//public int read(BufferProxy buffer, int position)
+	//public int read(BufferProxy buffer, int offset, int length)
+	//public int read(BufferProxy buffer, int offset, int length, int position)
 	public int read(Object args[]) throws IOException
 	{
 		if (!isOpen) {
@@ -44,45 +97,56 @@ public class FileStreamProxy extends KrollProxy implements TiStream
 		BufferProxy bufferProxy = null;
 		int offset = 0;
 		int length = 0;
+		long position = -1;
 
-		if(args.length == 1 || args.length == 3) {
-			if(args.length > 0) {
-				if(args[0] instanceof BufferProxy) {
-					bufferProxy = (BufferProxy) args[0];
-					length = bufferProxy.getLength();
+		if (args.length >= 1 && args.length <= 4) {
+			if (args[0] instanceof BufferProxy) {
+				bufferProxy = (BufferProxy) args[0];
+				length = bufferProxy.getLength();
 
-				} else {
-					throw new IllegalArgumentException("Invalid buffer argument");
-				}
+			} else {
+				throw new IllegalArgumentException("Invalid buffer argument");
 			}
 
-			if(args.length == 3) {
-				if(args[1] instanceof Integer) {
-					offset = ((Integer)args[1]).intValue();
-
-				} else if(args[1] instanceof Double) {
-					offset = ((Double)args[1]).intValue();
+			if (args.length >= 3) {
+				if (args[1] instanceof Number) {
+					offset = ((Number)args[1]).intValue();
 
 				} else {
 					throw new IllegalArgumentException("Invalid offset argument");
 				}
 
-				if(args[2] instanceof Integer) {
-					length = ((Integer)args[2]).intValue();
-
-				} else if(args[2] instanceof Double) {
-					length = ((Double)args[2]).intValue();
+				if (args[2] instanceof Number) {
+					length = ((Number)args[2]).intValue();
 
 				} else {
 					throw new IllegalArgumentException("Invalid length argument");
 				}
 			}
 
+			if (args.length == 2 || args.length == 4) {
+				if (args[args.length - 1] instanceof Number) {
+					position = ((Number)args[args.length - 1]).longValue();
+
+				} else {
+					throw new IllegalArgumentException("Invalid position argument");
+				}
+				if (position < 0) {
+					throw new IllegalArgumentException("Invalid position argument");
+				}
+				if (!isSeekable()) {
+					throw new IOException("Unable to read from position, file stream is not seekable");
+				}
+			}
+
 		} else {
 			throw new IllegalArgumentException("Invalid number of arguments");
 		}
 
 		try {
+			if (isSeekable()) {
+				return readRandomAccess(bufferProxy, offset, length, position);
+			}
 			return TiStreamHelper.read(fileProxy.getBaseFile().getExistingInputStream(), bufferProxy, offset, length);
 
 		} catch (IOException e) {
@@ -91,6 +155,52 @@ public class FileStreamProxy extends KrollProxy implements TiStream
 		}
 	}
 
+	/**
+	 * Reads from the seekable file. A non-negative position reads from that offset without moving the
+	 * stream position, otherwise the read starts at, and advances, the stream position.
+	 */
+	private int readRandomAccess(BufferProxy bufferProxy, int offset, int length, long position) throws IOException
+	{
+		if (mode != TiBaseFile.MODE_READ) {
+			throw new IOException("Unable to read from file, not open for reading");
+		}
+
+		ByteBuffer target = bufferProxy.getByteBuffer();
+		if ((offset + length) > target.limit()) {
+			length = target.limit() - offset;
+		}
+		if (length == 0) {
+			return 0;
+		}
+		target.position(offset);
+		target.limit(offset + length);
+
+		if (mappedBuffer != null) {
+			ByteBuffer source = mappedBuffer.duplicate();
+			if (position >= 0) {
+				if (position >= mappedBuffer.limit()) {
+					return -1;
+				}
+				source.position((int) position);
+			}
+			if (!source.hasRemaining()) {
+				return -1;
+			}
+			int bytesRead = Math.min(length, source.remaining());
+			source.limit(source.position() + bytesRead);
+			target.put(source);
+			if (position < 0) {
+				mappedBuffer.position(source.position());
+			}
+			return bytesRead;
+		}
+
+		if (position >= 0) {
+			return channel.read(target, position);
+		}
+		return channel.read(target);
+	}
+
 	@Kroll.method
 	public int write(Object args[]) throws IOException
 	{
@@ -140,6 +250,21 @@ public class FileStreamProxy extends KrollProxy implements TiStream
 		}
 
 		try {
+			if (isSeekable()) {
+				if (mode == TiBaseFile.MODE_READ) {
+					throw new IOException("Unable to write to file, not open for writing");
+				}
+				ByteBuffer source = bufferProxy.getByteBuffer();
+				if ((offset + length) > source.limit()) {
+					length = source.limit() - offset;
+				}
+				source.position(offset);
+				source.limit(offset + length);
+				while (source.hasRemaining()) {
+					channel.write(source);
+				}
+				return length;
+			}
 			return TiStreamHelper.write(fileProxy.getBaseFile().getExistingOutputStream(), bufferProxy, offset, length);
 
 		} catch (IOException e) {
@@ -148,23 +273,108 @@ public class FileStreamProxy extends KrollProxy implements TiStream
 		}
 	}
 
+	/**
+	 * Moves the position of a seekable stream. Positions past the end of the file are allowed,
+	 * reads there return -1 and writes extend the file.
+	 * @param position the new position, in bytes from the start of the file.
+	 * @throws IOException if the stream is closed or not seekable.
+	 */
+	@Kroll.method
+	public void seek(long position) throws IOException
+	{
+		if (!isOpen || !isSeekable()) {
+			throw new IOException("Unable to seek, file stream is not open or not seekable");
+		}
+		if (position < 0) {
+			throw new IllegalArgumentException("Invalid position argument");
+		}
+
+		if (mappedBuffer != null) {
+			mappedBuffer.position((int) Math.min(position, mappedBuffer.limit()));
+		} else {
+			channel.position(position);
+		}
+	}
+
+	@Kroll.getProperty @Kroll.method
+	public long getPosition() throws IOException
+	{
+		if (!isOpen || !isSeekable()) {
+			throw new IOException("Unable to get position, file stream is not open or not seekable");
+		}
+		return mappedBuffer != null ? mappedBuffer.position() : channel.position();
+	}
+
+	@Kroll.getProperty @Kroll.method
+	public long getSize() throws IOException
+	{
+		if (!isOpen || !isSeekable()) {
+			throw new IOException("Unable to get size, file stream is not open or not seekable");
+		}
+		return channel.size();
+	}
+
+	@Kroll.getProperty @Kroll.method
+	public boolean isSeekable()
+	{
+		return channel != null;
+	}
+
+	public ReadableByteChannel getReadableChannel() throws IOException
+	{
+		if (!isOpen) {
+			return null;
+		}
+		if (isSeekable()) {
+			// Mapped streams track their position in the mapping, not the channel
+			return (mode == TiBaseFile.MODE_READ && mappedBuffer == null) ? channel : null;
+		}
+		return fileProxy.getBaseFile().getExistingInputChannel();
+	}
+
+	public WritableByteChannel getWritableChannel() throws IOException
+	{
+		if (!isOpen) {
+			return null;
+		}
+		if (isSeekable()) {
+			return mode != TiBaseFile.MODE_READ ? channel : null;
+		}
+		return fileProxy.getBaseFile().getExistingOutputChannel();
+	}
+
+	public void awaitChannelReady(boolean forWrite)
+	{
+		// File channels always block
+	}
+
 	@Kroll.method
 	public boolean isWritable()
 	{
+		if (isSeekable()) {
+			return isOpen && mode != TiBaseFile.MODE_READ;
+		}
 		return (fileProxy.getBaseFile().isOpen() && fileProxy.getBaseFile().isWriteable());
 	}
 
 	@Kroll.method
 	public boolean isReadable()
 	{
+		if (isSeekable()) {
+			return isOpen && mode == TiBaseFile.MODE_READ;
+		}
 		return fileProxy.getBaseFile().isOpen();
 	}
 
 	@Kroll.method
 	public void close() throws IOException
 	{
-		fileProxy.getBaseFile().close();
+		if (isSeekable()) {
+			mappedBuffer = null;
+			randomAccessFile.close();
+		} else {
+			fileProxy.getBaseFile().close();
+		}
 		isOpen = false;
 	}
 }
-
@@ -0,0 +1,222 @@
+/**
+ * Appcelerator Titanium Mobile
+ * Copyright (c) 2012 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Apache Public License
+ * Please see the LICENSE included with this distribution for details.
+ */
+package ti.modules.titanium.stream;
+
+import java.io.IOException;
+
+import org.appcelerator.titanium.io.TiStream;
+
+import ti.modules.titanium.BufferProxy;
+import ti.modules.titanium.codec.CodecModule;
+
+/**
+ * Splits the bytes read from a stream into frames. Reads go straight into a ring buffer that
+ * grows to fit the largest frame seen, and each complete frame is copied out exactly once.
+ */
+public class FrameDecoder
+{
+	public static final int FRAMING_FIXED = 0;
+	public static final int FRAMING_LENGTH_PREFIXED = 1;
+	public static final int FRAMING_DELIMITER = 2;
+
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private final int framing;
+	private final int frameLength;
+	private final int lengthSize;
+	private final int byteOrder;
+	private final byte[] delimiter;
+	private final int maxFrameSize;
+
+	// Capacity is always a power of two so indexes wrap with a mask
+	private byte[] ring = new byte[INITIAL_CAPACITY];
+	// Wraps ring so streams can read into it, replaced whenever ring grows
+	private BufferProxy ringProxy = new BufferProxy(ring);
+	private int head = 0;
+	private int count = 0;
+	// Number of buffered bytes already searched for a delimiter without a match
+	private int searched = 0;
+
+	/**
+	 * @param framing one of the FRAMING constants.
+	 * @param frameLength the length of every frame, only used by FRAMING_FIXED.
+	 * @param lengthSize the width of the length prefix in bytes (1, 2 or 4), only used by FRAMING_LENGTH_PREFIXED.
+	 * @param byteOrder the byte order of the length prefix, CodecModule.BIG_ENDIAN or LITTLE_ENDIAN.
+	 * @param delimiter the bytes that end a frame, only used by FRAMING_DELIMITER.
+	 * @param maxFrameSize the largest frame accepted, not counting prefix or delimiter.
+	 */
+	public FrameDecoder(int framing, int frameLength, int lengthSize, int byteOrder, byte[] delimiter, int maxFrameSize)
+	{
+		switch (framing) {
+			case FRAMING_FIXED:
+				if (frameLength <= 0 || frameLength > maxFrameSize) {
+					throw new IllegalArgumentException("Invalid frame length: " + frameLength);
+				}
+				break;
+			case FRAMING_LENGTH_PREFIXED:
+				if (lengthSize != 1 && lengthSize != 2 && lengthSize != 4) {
+					throw new IllegalArgumentException("Invalid length size: " + lengthSize + ", must be 1, 2 or 4");
+				}
+				break;
+			case FRAMING_DELIMITER:
+				if (delimiter == null || delimiter.length == 0) {
+					throw new IllegalArgumentException("Invalid delimiter, must not be empty");
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Invalid framing: " + framing);
+		}
+
+		this.framing = framing;
+		this.frameLength = frameLength;
+		this.lengthSize = lengthSize;
+		this.byteOrder = byteOrder;
+		this.delimiter = delimiter;
+		this.maxFrameSize = maxFrameSize;
+	}
+
+	/**
+	 * Reads once from the stream into the free space of the ring buffer.
+	 * @param stream the stream to read from.
+	 * @param maxBytes the most bytes to read.
+	 * @return the number of bytes read, or -1 at the end of the stream.
+	 * @throws IOException if the stream could not be read.
+	 */
+	public int fill(TiStream stream, int maxBytes) throws IOException
+	{
+		if (count == ring.length) {
+			grow(ring.length * 2);
+		}
+
+		int tail = (head + count) & (ring.length - 1);
+		int free = Math.min(ring.length - count, ring.length - tail);
+		int bytesRead = stream.read(new Object[] {ringProxy, tail, Math.min(free, maxBytes)});
+		if (bytesRead > 0) {
+			count += bytesRead;
+		}
+		return bytesRead;
+	}
+
+	/**
+	 * Removes the next complete frame from the buffered bytes.
+	 * @return the frame without its prefix or delimiter, or null if no complete frame is buffered.
+	 * @throws IOException if the frame is larger than the maximum frame size.
+	 */
+	public BufferProxy nextFrame() throws IOException
+	{
+		switch (framing) {
+			case FRAMING_FIXED:
+				return count >= frameLength ? take(0, frameLength, frameLength) : null;
+
+			case FRAMING_LENGTH_PREFIXED:
+				if (count < lengthSize) {
+					return null;
+				}
+				long length = readLength();
+				if (length > maxFrameSize) {
+					throw new IOException("Frame of " + length + " bytes is larger than the maximum frame size: " + maxFrameSize);
+				}
+				int frameSize = lengthSize + (int) length;
+				if (count < frameSize) {
+					// Make sure the whole frame will fit before asking for more data
+					if (frameSize > ring.length) {
+						grow(frameSize);
+					}
+					return null;
+				}
+				return take(lengthSize, (int) length, frameSize);
+
+			default:
+				int end = findDelimiter();
+				if (end == -1) {
+					if (count >= maxFrameSize + delimiter.length) {
+						throw new IOException("Frame is larger than the maximum frame size: " + maxFrameSize);
+					}
+					return null;
+				}
+				searched = 0;
+				return take(0, end, end + delimiter.length);
+		}
+	}
+
+	/**
+	 * Removes everything that is buffered, such as an incomplete frame at the end of a stream.
+	 * @return the buffered bytes, which may be empty.
+	 */
+	public BufferProxy drain()
+	{
+		searched = 0;
+		return take(0, count, count);
+	}
+
+	private long readLength()
+	{
+		long length = 0;
+		for (int i = 0; i < lengthSize; i++) {
+			int index = byteOrder == CodecModule.BIG_ENDIAN ? i : lengthSize - 1 - i;
+			length = (length << 8) | (byteAt(index) & 0xFF);
+		}
+		return length;
+	}
+
+	// Returns the offset of the first delimiter from head, or -1 if none is buffered
+	private int findDelimiter()
+	{
+		int last = count - delimiter.length;
+		for (int i = Math.max(0, searched - delimiter.length + 1); i <= last; i++) {
+			int matched = 0;
+			while (matched < delimiter.length && byteAt(i + matched) == delimiter[matched]) {
+				matched++;
+			}
+			if (matched == delimiter.length) {
+				return i;
+			}
+		}
+		searched = count;
+		return -1;
+	}
+
+	private byte byteAt(int offset)
+	{
+		return ring[(head + offset) & (ring.length - 1)];
+	}
+
+	// Copies length bytes starting at offset from head into a new buffer, then consumes the first consumed bytes
+	private BufferProxy take(int offset, int length, int consumed)
+	{
+		byte[] frame = new byte[length];
+		copyOut(offset, frame, length);
+
+		head = (head + consumed) & (ring.length - 1);
+		count -= consumed;
+		if (count == 0) {
+			head = 0;
+		}
+		return new BufferProxy(frame);
+	}
+
+	private void copyOut(int offset, byte[] dest, int length)
+	{
+		int start = (head + offset) & (ring.length - 1);
+		int firstPart = Math.min(length, ring.length - start);
+		System.arraycopy(ring, start, dest, 0, firstPart);
+		System.arraycopy(ring, 0, dest, firstPart, length - firstPart);
+	}
+
+	private void grow(int minCapacity)
+	{
+		int capacity = ring.length;
+		while (capacity < minCapacity) {
+			capacity *= 2;
+		}
+		byte[] grown = new byte[capacity];
+		copyOut(0, grown, count);
+		ring = grown;
+		ringProxy = new BufferProxy(ring);
+		head = 0;
+	}
+}
@@ -7,16 +7,27 @@
 package ti.modules.titanium.stream;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.appcelerator.kroll.KrollDict;
 import org.appcelerator.kroll.KrollFunction;
 import org.appcelerator.kroll.KrollModule;
 import org.appcelerator.kroll.annotations.Kroll;
 import org.appcelerator.titanium.TiBlob;
+import org.appcelerator.titanium.TiC;
+import org.appcelerator.titanium.io.TiChannelStream;
 import org.appcelerator.titanium.io.TiStream;
+import org.appcelerator.titanium.util.TiConvert;
 
 import ti.modules.titanium.BufferProxy;
 import ti.modules.titanium.TitaniumModule;
+import ti.modules.titanium.codec.CodecModule;
 
 @Kroll.module(parentModule=TitaniumModule.class)
 public class StreamModule extends KrollModule
@@ -25,6 +36,58 @@ public class StreamModule extends KrollModule
 	@Kroll.constant public static final int MODE_WRITE = 1;
 	@Kroll.constant public static final int MODE_APPEND = 2;
 
+	@Kroll.constant public static final int FRAMING_FIXED = FrameDecoder.FRAMING_FIXED;
+	@Kroll.constant public static final int FRAMING_LENGTH_PREFIXED = FrameDecoder.FRAMING_LENGTH_PREFIXED;
+	@Kroll.constant public static final int FRAMING_DELIMITER = FrameDecoder.FRAMING_DELIMITER;
+
+	// Bounds the number of threads used by asynchronous read, readAll, write and writeStream calls on file, blob and
+	// buffer streams.
+	private static final int MAX_OPERATION_THREADS = 4;
+
+	private static final int DEFAULT_FRAME_CHUNK_SIZE = 8192;
+	private static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+
+	private static ExecutorService operationExecutor;
+	// Operations on other streams, such as sockets, can block until a peer acts, which may need another operation
+	// to run first. A bounded pool could fill up with them and never run that one.
+	private static ExecutorService blockingOperationExecutor;
+	// Async pumps run until their stream ends, so they get their own pool instead of starving other operations.
+	private static ExecutorService pumpExecutor;
+
+	private static final StreamStats readStats = new StreamStats();
+	private static final StreamStats readAllStats = new StreamStats();
+	private static final StreamStats writeStats = new StreamStats();
+	private static final StreamStats writeStreamStats = new StreamStats();
+	private static final StreamStats pumpStats = new StreamStats();
+	private static final StreamStats pumpFramesStats = new StreamStats();
+
+	private static final ThreadLocal<ByteBuffer> transferBuffer = new ThreadLocal<ByteBuffer>();
+
+	private static synchronized ExecutorService getOperationExecutor(TiStream... streams)
+	{
+		for (TiStream stream : streams) {
+			if (!(stream instanceof FileStreamProxy || stream instanceof BlobStreamProxy
+				|| stream instanceof BufferStreamProxy)) {
+				if (blockingOperationExecutor == null) {
+					blockingOperationExecutor = Executors.newCachedThreadPool();
+				}
+				return blockingOperationExecutor;
+			}
+		}
+		if (operationExecutor == null) {
+			operationExecutor = Executors.newFixedThreadPool(MAX_OPERATION_THREADS);
+		}
+		return operationExecutor;
+	}
+
+	private static synchronized ExecutorService getPumpExecutor()
+	{
+		if (pumpExecutor == null) {
+			pumpExecutor = Executors.newCachedThreadPool();
+		}
+		return pumpExecutor;
+	}
+
 	@Kroll.method
 	public Object createStream(KrollDict params)
 	//public Object createStream(Object container)
@@ -120,12 +183,13 @@ public class StreamModule extends KrollModule
 		final int flength = length;
 		final KrollFunction fResultsCallback = resultsCallback;
 
-		new Thread(new Runnable() {
+		getOperationExecutor(fsourceStream).execute(new Runnable() {
 			public void run()
 			{
 				int bytesRead = -1;
 				int errorState = 0;
 				String errorDescription = "";
+				long start = System.nanoTime();
 
 				try {
 					bytesRead = fsourceStream.read(new Object[] {fbuffer, foffset, flength});
@@ -137,9 +201,10 @@ public class StreamModule extends KrollModule
 					errorDescription = e.getMessage();
 				}
 
+				readStats.record(bytesRead, start);
 				fResultsCallback.callAsync(getKrollObject(), buildRWCallbackArgs(fsourceStream, bytesRead, errorState, errorDescription));
 			}
-		}).start();
+		});
 	}
 
 	@Kroll.method
@@ -182,9 +247,11 @@ public class StreamModule extends KrollModule
 		if (args.length == 1) {
 			BufferProxy buffer = new BufferProxy(1024);
 			int offset = 0;
+			long start = System.nanoTime();
 
 			readAll(sourceStream, buffer, offset);
 
+			readAllStats.record(buffer.getLength(), start);
 			return buffer;
 
 		} else {
@@ -192,12 +259,13 @@ public class StreamModule extends KrollModule
 			final BufferProxy fbuffer = bufferArg;
 			final KrollFunction fResultsCallback = resultsCallback;
 
-			new Thread(new Runnable() {
+			getOperationExecutor(fsourceStream).execute(new Runnable() {
 				public void run()
 				{
 					int offset = 0;
 					int errorState = 0;
 					String errorDescription = "";
+					long start = System.nanoTime();
 
 					if (fbuffer.getLength() < 1024) {
 						fbuffer.resize(1024);
@@ -211,9 +279,10 @@ public class StreamModule extends KrollModule
 						errorDescription = e.getMessage();
 					}
 
+					readAllStats.record(fbuffer.getLength(), start);
 					fResultsCallback.callAsync(getKrollObject(), buildRWCallbackArgs(fsourceStream, fbuffer.getLength(), errorState, errorDescription));
 				}
-			}).start();
+			});
 
 			return null; // TODO KrollProxy.UNDEFINED;
 		}
@@ -305,12 +374,13 @@ public class StreamModule extends KrollModule
 		final int flength = length;
 		final KrollFunction fResultsCallback = resultsCallback;
 
-		new Thread(new Runnable() {
+		getOperationExecutor(foutputStream).execute(new Runnable() {
 			public void run()
 			{
 				int bytesWritten = -1;
 				int errorState = 0;
 				String errorDescription = "";
+				long start = System.nanoTime();
 
 				try {
 					bytesWritten = foutputStream.write(new Object[] {fbuffer, foffset, flength});
@@ -321,9 +391,10 @@ public class StreamModule extends KrollModule
 					errorDescription = e.getMessage();
 				}
 
+				writeStats.record(bytesWritten, start);
 				fResultsCallback.callAsync(getKrollObject(), buildRWCallbackArgs(foutputStream, bytesWritten, errorState, errorDescription));
 			}
-		}).start();
+		});
 	}
 
 	@Kroll.method
@@ -372,7 +443,10 @@ public class StreamModule extends KrollModule
 		}
 
 		if (args.length == 3) {
-			return writeStream(inputStream, outputStream, maxChunkSize);
+			long start = System.nanoTime();
+			int totalBytesWritten = writeStream(inputStream, outputStream, maxChunkSize);
+			writeStreamStats.record(totalBytesWritten, start);
+			return totalBytesWritten;
 
 		} else {
 			final TiStream finputStream = inputStream;
@@ -380,12 +454,13 @@ public class StreamModule extends KrollModule
 			final int fmaxChunkSize = maxChunkSize;
 			final KrollFunction fResultsCallback = resultsCallback;
 
-			new Thread(new Runnable() {
+			getOperationExecutor(finputStream, foutputStream).execute(new Runnable() {
 				public void run()
 				{
 					int totalBytesWritten = 0;
 					int errorState = 0;
 					String errorDescription = "";
+					long start = System.nanoTime();
 
 					try {
 						totalBytesWritten = writeStream(finputStream, foutputStream, fmaxChunkSize);
@@ -395,9 +470,10 @@ public class StreamModule extends KrollModule
 						errorDescription = e.getMessage();
 					}
 
+					writeStreamStats.record(totalBytesWritten, start);
 					fResultsCallback.callAsync(getKrollObject(), buildWriteStreamCallbackArgs(finputStream, foutputStream, totalBytesWritten, errorState, errorDescription));
 				}
-			}).start();
+			});
 
 			return 0;
 		}
@@ -405,6 +481,19 @@ public class StreamModule extends KrollModule
 
 	private int writeStream(TiStream inputStream, TiStream outputStream, int maxChunkSize) throws IOException
 	{
+		if (inputStream instanceof TiChannelStream && outputStream instanceof TiChannelStream) {
+			TiChannelStream channelInput = (TiChannelStream) inputStream;
+			TiChannelStream channelOutput = (TiChannelStream) outputStream;
+			ReadableByteChannel in = channelInput.getReadableChannel();
+			WritableByteChannel out = (in != null) ? channelOutput.getWritableChannel() : null;
+			if (in != null && out != null) {
+				if (in instanceof FileChannel) {
+					return transferFile((FileChannel) in, out, channelOutput);
+				}
+				return transferChannel(in, out, channelInput, channelOutput, maxChunkSize);
+			}
+		}
+
 		BufferProxy buffer = new BufferProxy(maxChunkSize);
 		int totalBytesWritten = 0;
 
@@ -422,17 +511,87 @@ public class StreamModule extends KrollModule
 		return totalBytesWritten;
 	}
 
+	/**
+	 * Lets the kernel copy the rest of a file straight into the output channel, without passing
+	 * the data through a buffer in the VM.
+	 */
+	private int transferFile(FileChannel in, WritableByteChannel out, TiChannelStream outputStream) throws IOException
+	{
+		long position = in.position();
+		long remaining = in.size() - position;
+		long totalBytesWritten = 0;
+
+		try {
+			while (totalBytesWritten < remaining) {
+				long transferred = in.transferTo(position + totalBytesWritten, remaining - totalBytesWritten, out);
+				if (transferred == 0) {
+					// Non-blocking output, such as a socket with a full send buffer
+					outputStream.awaitChannelReady(true);
+				}
+				totalBytesWritten += transferred;
+			}
+		} finally {
+			in.position(position + totalBytesWritten);
+		}
+
+		return (int) totalBytesWritten;
+	}
+
+	private int transferChannel(ReadableByteChannel in, WritableByteChannel out, TiChannelStream inputStream,
+		TiChannelStream outputStream, int maxChunkSize) throws IOException
+	{
+		ByteBuffer buffer = getTransferBuffer(maxChunkSize);
+		int totalBytesWritten = 0;
+
+		while (true) {
+			buffer.clear();
+			int bytesRead = in.read(buffer);
+			if (bytesRead == -1) {
+				break;
+			}
+			if (bytesRead == 0) {
+				inputStream.awaitChannelReady(false);
+				continue;
+			}
+
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				if (out.write(buffer) == 0) {
+					outputStream.awaitChannelReady(true);
+				}
+			}
+			totalBytesWritten += bytesRead;
+		}
+
+		return totalBytesWritten;
+	}
+
+	/**
+	 * Direct buffers are expensive to allocate, so each thread keeps the last one it used for channel transfers.
+	 */
+	private static ByteBuffer getTransferBuffer(int size)
+	{
+		ByteBuffer buffer = transferBuffer.get();
+		if (buffer == null || buffer.capacity() != size) {
+			buffer = ByteBuffer.allocateDirect(size);
+			transferBuffer.set(buffer);
+		}
+		return buffer;
+	}
+
 	@Kroll.method
 	//public void pump(TiStream inputStream, KrollFunction handler, int maxChunkSize)
 	//public void pump(TiStream inputStream, KrollFunction handler, int maxChunkSize, boolean isAsync)
+	//public void pump(TiStream inputStream, KrollFunction handler, int maxChunkSize, boolean isAsync, boolean reuseBuffer)
 	public void pump(Object args[])
 	{
 		TiStream inputStream = null;
 		KrollFunction handler = null;
 		int maxChunkSize = 0;
 		boolean isAsync = false;
+		boolean reuseBuffer = false;
 
-		if (args.length == 3 || args.length == 4) {
+		if (args.length >= 3 && args.length <= 5) {
 			if (args[0] instanceof TiStream) {
 				inputStream = (TiStream) args[0];
 
@@ -454,7 +613,7 @@ public class StreamModule extends KrollModule
 				throw new IllegalArgumentException("Invalid max chunk size argument");
 			}
 
-			if (args.length == 4) {
+			if (args.length >= 4) {
 				if (args[3] instanceof Boolean) {
 					isAsync = ((Boolean) args[3]).booleanValue();
 
@@ -463,6 +622,15 @@ public class StreamModule extends KrollModule
 				}
 			}
 
+			if (args.length == 5) {
+				if (args[4] instanceof Boolean) {
+					reuseBuffer = ((Boolean) args[4]).booleanValue();
+
+				} else {
+					throw new IllegalArgumentException("Invalid reuse buffer flag argument");
+				}
+			}
+
 		} else {
 			throw new IllegalArgumentException("Invalid number of arguments");
 		}
@@ -472,39 +640,55 @@ public class StreamModule extends KrollModule
 			final TiStream finputStream = inputStream;
 			final KrollFunction fHandler = handler;
 			final int fmaxChunkSize = maxChunkSize;
+			final boolean freuseBuffer = reuseBuffer;
 
-			new Thread(
+			getPumpExecutor().execute(
 					new Runnable()
 					{
 						public void run()
 						{
-							pump(finputStream, fHandler, fmaxChunkSize);
+							pump(finputStream, fHandler, fmaxChunkSize, freuseBuffer);
 						}
 					}
-				) {}.start();
+				);
 
 		} else {
-			pump(inputStream, handler, maxChunkSize);
+			pump(inputStream, handler, maxChunkSize, reuseBuffer);
 		}
 	}
 
-	private void pump(TiStream inputStream, KrollFunction handler, int maxChunkSize)
+	/**
+	 * Reads chunks from inputStream and passes each one to handler until the stream ends.
+	 * When reuseBuffer is true, full chunks are read into a single buffer that is only owned by the handler
+	 * until it returns; the handler must clone it to keep the data. Otherwise the handler owns every buffer
+	 * it is given.
+	 */
+	private void pump(TiStream inputStream, KrollFunction handler, int maxChunkSize, boolean reuseBuffer)
 	{
 		int totalBytesRead = 0;
 		int errorState = 0;
 		String errorDescription = "";
+		long start = System.nanoTime();
+		BufferProxy chunk = new BufferProxy(maxChunkSize);
 
 		try {
 			while (true) {
-				BufferProxy buffer = new BufferProxy(maxChunkSize);
-				int bytesRead = inputStream.read(new Object[] {buffer, 0, maxChunkSize});
+				int bytesRead = inputStream.read(new Object[] {chunk, 0, maxChunkSize});
 				if (bytesRead != -1) {
 					totalBytesRead += bytesRead;
 				}
 
-				if (bytesRead != buffer.getLength()) {
+				BufferProxy buffer = chunk;
+				if (bytesRead != maxChunkSize) {
+					// Partial and final chunks are handed over in a buffer of the exact size.
 					if (bytesRead == -1) {
-						buffer.resize(0);
+						buffer = new BufferProxy(0);
+
+					} else if (reuseBuffer) {
+						buffer = new BufferProxy(bytesRead);
+						ByteBuffer source = chunk.getByteBuffer();
+						source.limit(bytesRead);
+						buffer.getByteBuffer().put(source);
 
 					} else {
 						buffer.resize(bytesRead);
@@ -512,11 +696,14 @@ public class StreamModule extends KrollModule
 				}
 
 				handler.call(getKrollObject(), buildPumpCallbackArgs(inputStream, buffer, bytesRead, totalBytesRead, errorState, errorDescription));
-				buffer = null;
 
 				if (bytesRead == -1) {
 					break;
 				}
+				if (!reuseBuffer || chunk.getLength() != maxChunkSize) {
+					// The handler owns the buffer it was given
+					chunk = new BufferProxy(maxChunkSize);
+				}
 			}
 
 		} catch (IOException e) {
@@ -524,6 +711,125 @@ public class StreamModule extends KrollModule
 			errorDescription = e.getMessage();
 			handler.call(getKrollObject(), buildPumpCallbackArgs(inputStream, new BufferProxy(), 0, totalBytesRead, errorState, errorDescription));
 		}
+
+		pumpStats.record(totalBytesRead, start);
+	}
+
+	/**
+	 * Reads inputStream until it ends and calls handler once for every complete frame, as described
+	 * by options. Frames are handed over without their length prefix or delimiter.
+	 */
+	@Kroll.method
+	public void pumpFrames(Object inputStream, KrollFunction handler, KrollDict options)
+	{
+		if (!(inputStream instanceof TiStream)) {
+			throw new IllegalArgumentException("Invalid stream argument");
+		}
+
+		int framing = options.containsKey("framing") ? TiConvert.toInt(options, "framing") : FRAMING_DELIMITER;
+		int frameLength = options.containsKey("frameLength") ? TiConvert.toInt(options, "frameLength") : 0;
+		int lengthSize = options.containsKey("lengthSize") ? TiConvert.toInt(options, "lengthSize") : 4;
+		// Network protocols send lengths in big endian, so that is the default rather than the native order
+		int byteOrder = options.containsKey(TiC.PROPERTY_BYTE_ORDER) ? CodecModule.getByteOrder(options.get(TiC.PROPERTY_BYTE_ORDER)) : CodecModule.BIG_ENDIAN;
+		int maxFrameSize = options.containsKey("maxFrameSize") ? TiConvert.toInt(options, "maxFrameSize") : DEFAULT_MAX_FRAME_SIZE;
+		int chunkSize = options.containsKey("chunkSize") ? TiConvert.toInt(options, "chunkSize") : DEFAULT_FRAME_CHUNK_SIZE;
+		boolean isAsync = options.optBoolean("async", false);
+
+		byte[] delimiter = null;
+		Object delimiterValue = options.get("delimiter");
+		if (delimiterValue instanceof BufferProxy) {
+			BufferProxy delimiterBuffer = (BufferProxy) delimiterValue;
+			delimiter = delimiterBuffer.copyBytes(0, delimiterBuffer.getLength());
+
+		} else {
+			try {
+				delimiter = (delimiterValue != null ? TiConvert.toString(delimiterValue) : "\n").getBytes("UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalArgumentException("Invalid delimiter argument");
+			}
+		}
+
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+		}
+
+		final TiStream finputStream = (TiStream) inputStream;
+		final KrollFunction fHandler = handler;
+		final int fchunkSize = chunkSize;
+		final FrameDecoder decoder = new FrameDecoder(framing, frameLength, lengthSize, byteOrder, delimiter, maxFrameSize);
+
+		if (isAsync) {
+			getPumpExecutor().execute(
+					new Runnable()
+					{
+						public void run()
+						{
+							pumpFrames(finputStream, fHandler, decoder, fchunkSize);
+						}
+					}
+				);
+
+		} else {
+			pumpFrames(finputStream, fHandler, decoder, fchunkSize);
+		}
+	}
+
+	/**
+	 * Reads inputStream through decoder, calling handler for each frame. When the stream ends the handler is
+	 * called with a bytesProcessed of -1 and a buffer holding any incomplete frame that was left over.
+	 */
+	private void pumpFrames(TiStream inputStream, KrollFunction handler, FrameDecoder decoder, int chunkSize)
+	{
+		int totalBytesRead = 0;
+		long start = System.nanoTime();
+
+		try {
+			while (true) {
+				int bytesRead = decoder.fill(inputStream, chunkSize);
+				if (bytesRead == -1) {
+					handler.call(getKrollObject(), buildPumpCallbackArgs(inputStream, decoder.drain(), -1, totalBytesRead, 0, ""));
+					break;
+				}
+				totalBytesRead += bytesRead;
+
+				BufferProxy frame;
+				while ((frame = decoder.nextFrame()) != null) {
+					handler.call(getKrollObject(), buildPumpCallbackArgs(inputStream, frame, frame.getLength(), totalBytesRead, 0, ""));
+				}
+			}
+
+		} catch (IOException e) {
+			handler.call(getKrollObject(), buildPumpCallbackArgs(inputStream, new BufferProxy(), 0, totalBytesRead, 1, e.getMessage()));
+		}
+
+		pumpFramesStats.record(totalBytesRead, start);
+	}
+
+	/**
+	 * @return the operation count, bytes processed and time spent for each kind of stream operation.
+	 */
+	@Kroll.method
+	public KrollDict getStats()
+	{
+		KrollDict stats = new KrollDict();
+		stats.put("read", readStats.toDict());
+		stats.put("readAll", readAllStats.toDict());
+		stats.put("write", writeStats.toDict());
+		stats.put("writeStream", writeStreamStats.toDict());
+		stats.put("pump", pumpStats.toDict());
+		stats.put("pumpFrames", pumpFramesStats.toDict());
+		return stats;
+	}
+
+	@Kroll.method
+	public void resetStats()
+	{
+		readStats.reset();
+		readAllStats.reset();
+		writeStats.reset();
+		writeStreamStats.reset();
+		pumpStats.reset();
+		pumpFramesStats.reset();
 	}
 
 	private KrollDict buildRWCallbackArgs(TiStream sourceStream, int bytesProcessed, int errorState, String errorDescription)
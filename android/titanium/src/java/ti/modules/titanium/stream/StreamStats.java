@@ -0,0 +1,59 @@
+/**
+ * Appcelerator Titanium Mobile
+ * Copyright (c) 2012 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Apache Public License
+ * Please see the LICENSE included with this distribution for details.
+ */
+package ti.modules.titanium.stream;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.appcelerator.kroll.KrollDict;
+
+/**
+ * Running totals for one kind of stream operation: how many times it ran,
+ * how many bytes it moved and how long it took.
+ */
+public class StreamStats
+{
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong nanos = new AtomicLong();
+
+	/**
+	 * Records one completed operation.
+	 * @param byteCount the number of bytes processed, negative values are counted as 0.
+	 * @param startNanos the value of System.nanoTime() when the operation started.
+	 */
+	public void record(long byteCount, long startNanos)
+	{
+		count.incrementAndGet();
+		if (byteCount > 0) {
+			bytes.addAndGet(byteCount);
+		}
+		nanos.addAndGet(System.nanoTime() - startNanos);
+	}
+
+	public void reset()
+	{
+		count.set(0);
+		bytes.set(0);
+		nanos.set(0);
+	}
+
+	/**
+	 * @return a dictionary with count, bytes, totalTime and averageTime (both in milliseconds).
+	 */
+	public KrollDict toDict()
+	{
+		long operations = count.get();
+		double totalTime = nanos.get() / 1000000.0;
+
+		KrollDict dict = new KrollDict();
+		dict.put("count", operations);
+		dict.put("bytes", bytes.get());
+		dict.put("totalTime", totalTime);
+		dict.put("averageTime", operations > 0 ? totalTime / operations : 0);
+		return dict;
+	}
+}
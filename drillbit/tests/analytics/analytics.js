@@ -0,0 +1,168 @@
+describe("Ti.Analytics tests", {
+	//iOS: TIMOB-5014
+	//Android: TIMOB-5020
+	addEvent: function() {		
+		valueOf(function() {
+			Ti.Analytics.addEvent();
+		}).shouldThrowException();
+		valueOf(function() {
+			Ti.Analytics.addEvent('type');
+		}).shouldThrowException();
+		valueOf(Ti.Analytics.addEvent('adding', 'featureEvent.testButton')).shouldBeUndefined();
+		valueOf(Ti.Analytics.addEvent('adding', 'featureEvent.testButton', {'events':'adding'})).shouldBeUndefined();
+	},
+	
+	featureEvent: function() {
+		valueOf(function() {
+			Ti.Analytics.featureEvent();
+		}).shouldThrowException();
+		valueOf(Ti.Analytics.featureEvent('featureEvent.testButton')).shouldBeUndefined();
+		valueOf(Ti.Analytics.featureEvent('featureEvent.testButton', {'events':'feature'})).shouldBeUndefined();
+	},
+	
+	navEvent: function() {
+		valueOf(function() {
+			Ti.Analytics.navEvent();
+		}).shouldThrowException();
+		valueOf(function() {
+			Ti.Analytics.navEvent('here');
+		}).shouldThrowException();
+		valueOf(Ti.Analytics.navEvent('here', 'there')).shouldBeUndefined();
+		valueOf(Ti.Analytics.navEvent('here', 'there', 'navEvent.testButton')).shouldBeUndefined();
+		valueOf(Ti.Analytics.navEvent('here', 'there', 'navEvent.testButton', {'events':'nav'})).shouldBeUndefined();
+	},
+	
+	//iOS: TIMOB-4697
+	settingsEvent: function() {
+		valueOf(function() {
+			Ti.Analytics.settingsEvent();
+		}).shouldThrowException();
+		valueOf(Ti.Analytics.settingsEvent('settingsEvent.testButton')).shouldBeUndefined();
+		valueOf(Ti.Analytics.settingsEvent('settingsEvent.testButton', {'events':'settings'})).shouldBeUndefined();
+	},
+	
+	//Android: TIMOB-4642
+	timedEvent: function() {
+		var startDate = new Date();
+		var stopDate = new Date();
+		var duration = stopDate - startDate;
+		valueOf(function() {
+			Ti.Analytics.timedEvent();
+		}).shouldThrowException();
+		valueOf(function() {
+			Ti.Analytics.timedEvent('timedEvent.testButton');
+		}).shouldThrowException();
+		valueOf(function() {
+			Ti.Analytics.timedEvent('timedEvent.testButton', startDate);
+		}).shouldThrowException();
+		valueOf(function() {
+			Ti.Analytics.timedEvent('timedEvent.testButton', startDate, stopDate);
+		}).shouldThrowException();
+		valueOf(Ti.Analytics.timedEvent('timedEvent.testButton', startDate, stopDate, duration)).shouldBeUndefined();
+		valueOf(Ti.Analytics.timedEvent('timedEvent.testButton', startDate, stopDate, duration, {'events':'timed'})).shouldBeUndefined();
+	},
+	
+	userEvent: function() {
+		valueOf(function() {
+			Ti.Analytics.userEvent();
+		}).shouldThrowException();
+		valueOf(Ti.Analytics.userEvent('userEvent.testButton')).shouldBeUndefined();
+		valueOf(Ti.Analytics.userEvent('userEvent.testButton', {'events':'user'})).shouldBeUndefined();
+	},
+
+	// The test harness runner points the analytics service at a stand-in endpoint on this device. The
+	// service has to split the events into several requests and gzip each one.
+	compressedBatches: asyncTest({
+		start: function(callback) {
+			if (Ti.Platform.osname !== 'android') {
+				callback.passed();
+				return;
+			}
+			var payload = "";
+			while (payload.length < 2000) {
+				payload += "All work and no play makes Jack a dull boy. ";
+			}
+			var eventCount = 20;
+			var uncompressedLength = eventCount * payload.length;
+			var requests = [];
+			var received = [];
+			var doneTimer = null;
+
+			function indexOfHeaderEnd(start) {
+				for (var i = start; i + 3 < received.length; i++) {
+					if (received[i] == 13 && received[i + 1] == 10 && received[i + 2] == 13 && received[i + 3] == 10) {
+						return i;
+					}
+				}
+				return -1;
+			}
+
+			function finish() {
+				try {
+					valueOf(requests.length).shouldBeGreaterThan(1);
+					var compressedLength = 0;
+					for (var i = 0; i < requests.length; i++) {
+						valueOf(requests[i].encoding).shouldBe("gzip");
+						compressedLength += requests[i].length;
+					}
+					valueOf(compressedLength).shouldBeLessThan(uncompressedLength / 4);
+					listener.close();
+					callback.passed();
+				} catch (e) {
+					callback.failed(e);
+				}
+			}
+
+			function parseRequests(inbound) {
+				var end;
+				while ((end = indexOfHeaderEnd(0)) >= 0) {
+					var header = String.fromCharCode.apply(null, received.slice(0, end)).toLowerCase();
+					var match = /content-length:\s*(\d+)/.exec(header);
+					var length = match ? parseInt(match[1], 10) : 0;
+					if (received.length < end + 4 + length) {
+						return;
+					}
+					match = /content-encoding:\s*(\S+)/.exec(header);
+					requests.push({ encoding: match ? match[1] : null, length: length });
+					received = received.slice(end + 4 + length);
+
+					Ti.Stream.write(inbound, Ti.createBuffer({ value: "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n" }), function(e) {});
+					// The service sends the batches back to back, wait for it to go quiet.
+					if (doneTimer) {
+						clearTimeout(doneTimer);
+					}
+					doneTimer = setTimeout(finish, 5000);
+				}
+			}
+
+			var listener = Ti.Network.Socket.createTCP({
+				host: '127.0.0.1',
+				port: 40406
+			});
+			listener.accepted = function(e) {
+				var inbound = e.inbound;
+				Ti.Stream.pump(inbound, function(e) {
+					if (e.bytesProcessed <= 0) {
+						return;
+					}
+					for (var i = 0; i < e.bytesProcessed; i++) {
+						received.push(e.buffer[i]);
+					}
+					parseRequests(inbound);
+				}, 1024, true);
+				listener.accept({ error: function(e) {} });
+			};
+			listener.listen();
+			listener.accept({ error: function(e) {} });
+
+			for (var i = 0; i < eventCount; i++) {
+				Ti.Analytics.featureEvent('featureEvent.compressedBatches', { index: i, text: payload });
+			}
+			Ti.Android.startService(Ti.Android.createIntent({
+				className: 'org.appcelerator.titanium.analytics.TiAnalyticsService'
+			}));
+		},
+		timeout: 120000,
+		timeoutError: "Timed out waiting for the analytics service to post its batches"
+	})
+});
\ No newline at end of file
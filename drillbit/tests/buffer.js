@@ -326,6 +326,74 @@ describe("Ti.Buffer tests", {
 		valueOf(buffer[3]).shouldBe(0x12);
 	},
 
+	testInsertThenAppendSelf: function() {
+		var buffer = Ti.createBuffer({ value: "world" });
+		buffer.insert(Ti.createBuffer({ value: "hello " }), 0);
+		valueOf(buffer.append(buffer)).shouldBe(11);
+		valueOf(buffer.length).shouldBe(22);
+		valueOf(buffer.toString()).shouldBe("hello worldhello world");
+
+		buffer = Ti.createBuffer({ value: "ac" });
+		buffer.insert(Ti.createBuffer({ value: "b" }), 1);
+		buffer.append(Ti.createBuffer({ value: "d" }));
+		valueOf(buffer.toString()).shouldBe("abcd");
+	},
+
+	testTypedAccessors: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var buffer = Ti.createBuffer({ length: 16, byteOrder: Ti.Codec.BIG_ENDIAN });
+		valueOf(buffer.writeInt16(0x1234, 0)).shouldBe(2);
+		valueOf(buffer[0]).shouldBe(0x12);
+		valueOf(buffer[1]).shouldBe(0x34);
+		valueOf(buffer.readUInt16(0)).shouldBe(0x1234);
+		valueOf(buffer.readUInt16(0, Ti.Codec.LITTLE_ENDIAN)).shouldBe(0x3412);
+
+		valueOf(buffer.writeInt32(0xFFFFFFFE, 2)).shouldBe(6);
+		valueOf(buffer.readInt32(2)).shouldBe(-2);
+		valueOf(buffer.readUInt32(2)).shouldBe(4294967294);
+
+		buffer.writeInt8(-1, 6);
+		valueOf(buffer.readInt8(6)).shouldBe(-1);
+		valueOf(buffer.readUInt8(6)).shouldBe(255);
+
+		valueOf(buffer.writeDouble(1.5, 8, Ti.Codec.LITTLE_ENDIAN)).shouldBe(16);
+		valueOf(buffer.readDouble(8, Ti.Codec.LITTLE_ENDIAN)).shouldBe(1.5);
+		valueOf(buffer[15]).shouldBe(0x3F);
+
+		valueOf(function() { buffer.readInt32(14); }).shouldThrowException();
+		valueOf(function() { buffer.writeInt64(1, 9); }).shouldThrowException();
+	},
+
+	testDirect: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var buffer = Ti.createBuffer({ length: 4, direct: true, byteOrder: Ti.Codec.BIG_ENDIAN });
+		valueOf(buffer.isDirect()).shouldBeTrue();
+		buffer.writeInt32(0x01020304, 0);
+		valueOf(buffer[3]).shouldBe(4);
+
+		Ti.Codec.encodeNumber({ source: 0x0506, dest: buffer, position: 2, type: Ti.Codec.TYPE_SHORT, byteOrder: Ti.Codec.BIG_ENDIAN });
+		valueOf(Ti.Codec.decodeNumber({ source: buffer, position: 2, type: Ti.Codec.TYPE_SHORT, byteOrder: Ti.Codec.BIG_ENDIAN })).shouldBe(0x0506);
+
+		buffer.append(Ti.createBuffer({ value: "ab" }));
+		buffer.insert(Ti.createBuffer({ value: "x" }), 0);
+		valueOf(buffer.length).shouldBe(7);
+		valueOf(buffer[0]).shouldBe(120); // x
+		valueOf(buffer[1]).shouldBe(1);
+		valueOf(buffer[6]).shouldBe(98); // b
+
+		var copy = Ti.createBuffer({ length: 7 });
+		var stream = Ti.Stream.createStream({ source: buffer, mode: Ti.Stream.MODE_READ });
+		valueOf(stream.read(copy)).shouldBe(7);
+		valueOf(copy[3]).shouldBe(5);
+
+		// None of the above should have moved the data to the heap
+		valueOf(buffer.isDirect()).shouldBeTrue();
+	},
+
 	options: {
 		forceBuild: true
 	}
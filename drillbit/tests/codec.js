@@ -321,6 +321,67 @@ describe("Ti.Codec tests", {
 		valueOf(buffer.length).shouldBe(100);
 		var str = Ti.Codec.decodeString({ source: buffer, length: 18 });
 		valueOf(str).shouldBe("The system is down");
+	},
+
+	testEncodeDecodeNumbers: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var buffer = Ti.createBuffer({ length: 12 });
+		var end = Ti.Codec.encodeNumbers({
+			source: [1, -2, 0x1234],
+			dest: buffer,
+			type: Ti.Codec.TYPE_SHORT,
+			byteOrder: Ti.Codec.BIG_ENDIAN
+		});
+		valueOf(end).shouldBe(6);
+		valueOf(buffer[0]).shouldBe(0);
+		valueOf(buffer[1]).shouldBe(1);
+		valueOf(buffer[2]).shouldBe(0xff);
+		valueOf(buffer[3]).shouldBe(0xfe);
+		valueOf(buffer[4]).shouldBe(0x12);
+		valueOf(buffer[5]).shouldBe(0x34);
+
+		// Shorts decode unsigned, as with decodeNumber
+		var values = Ti.Codec.decodeNumbers({ source: buffer, type: Ti.Codec.TYPE_SHORT, count: 3, byteOrder: Ti.Codec.BIG_ENDIAN });
+		valueOf(values.length).shouldBe(3);
+		valueOf(values[0]).shouldBe(1);
+		valueOf(values[1]).shouldBe(0xfffe);
+		valueOf(values[2]).shouldBe(0x1234);
+
+		// Stride leaves gaps between values, and without a count everything that fits is decoded
+		buffer.clear();
+		end = Ti.Codec.encodeNumbers({
+			source: [1.5, -0.25],
+			dest: buffer,
+			position: 2,
+			stride: 6,
+			type: Ti.Codec.TYPE_FLOAT,
+			byteOrder: Ti.Codec.LITTLE_ENDIAN
+		});
+		valueOf(end).shouldBe(12);
+		values = Ti.Codec.decodeNumbers({ source: buffer, position: 2, stride: 6, type: Ti.Codec.TYPE_FLOAT, byteOrder: Ti.Codec.LITTLE_ENDIAN });
+		valueOf(values.length).shouldBe(2);
+		valueOf(values[0]).shouldBe(1.5);
+		valueOf(values[1]).shouldBe(-0.25);
+		valueOf(Ti.Codec.decodeNumber({ source: buffer, position: 8, type: Ti.Codec.TYPE_FLOAT, byteOrder: Ti.Codec.LITTLE_ENDIAN })).shouldBe(-0.25);
+
+		valueOf(function() {
+			Ti.Codec.encodeNumbers({ source: [1, 2, 3, 4], dest: buffer, type: Ti.Codec.TYPE_INT });
+		}).shouldThrowException();
+		valueOf(function() {
+			Ti.Codec.encodeNumbers({ source: [1, 2], dest: buffer, stride: 2, type: Ti.Codec.TYPE_INT });
+		}).shouldThrowException();
+		valueOf(function() {
+			Ti.Codec.decodeNumbers({ source: buffer, count: 2, position: 8, type: Ti.Codec.TYPE_INT });
+		}).shouldThrowException();
+
+		// A non-number element is rejected before anything is written
+		buffer.clear();
+		valueOf(function() {
+			Ti.Codec.encodeNumbers({ source: [7, "eight"], dest: buffer, type: Ti.Codec.TYPE_BYTE });
+		}).shouldThrowException();
+		valueOf(buffer[0]).shouldBe(0);
 	}
 
 });
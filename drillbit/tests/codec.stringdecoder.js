@@ -0,0 +1,118 @@
+describe("Ti.Codec.StringDecoder tests", {
+	before_all: function() {
+		this.bytesOf = function(bytes) {
+			var buffer = Ti.createBuffer({ length: bytes.length });
+			for (var i = 0; i < bytes.length; i++) {
+				buffer[i] = bytes[i];
+			}
+			return buffer;
+		};
+	},
+
+	testAPI: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var decoder = Ti.Codec.createStringDecoder();
+		valueOf(decoder).shouldBeObject();
+
+		var functions = ["decode", "decodeLines", "end", "reset"];
+		for (var i = 0; i < functions.length; i++) {
+			valueOf(decoder[functions[i]]).shouldBeFunction();
+		}
+
+		valueOf(function() { Ti.Codec.createStringDecoder({ charset: "no-such-charset" }); }).shouldThrowException();
+	},
+
+	testSplitCharacter: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		// "ä" is 0xc3 0xa4 in UTF-8, split it across two chunks
+		var decoder = Ti.Codec.createStringDecoder({ charset: Ti.Codec.CHARSET_UTF8 });
+		valueOf(decoder.decode(this.bytesOf([0x73, 0xc3]))).shouldBe("s");
+		valueOf(decoder.decode(this.bytesOf([0xa4, 0x74]))).shouldBe("\u00e4t");
+		valueOf(decoder.end()).shouldBe("");
+
+		// U+1F600 is four bytes in UTF-8 and a surrogate pair in JavaScript, feed it a byte at a time
+		var bytes = [0xf0, 0x9f, 0x98, 0x80];
+		for (var i = 0; i < bytes.length - 1; i++) {
+			valueOf(decoder.decode(this.bytesOf([bytes[i]]))).shouldBe("");
+		}
+		var text = decoder.decode(this.bytesOf([bytes[bytes.length - 1]]));
+		valueOf(text.length).shouldBe(2);
+		valueOf(text).shouldBe("\ud83d\ude00");
+		valueOf(decoder.end()).shouldBe("");
+	},
+
+	testOffsetAndLength: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		// Offset and length select part of the buffer
+		var decoder = Ti.Codec.createStringDecoder();
+		var buffer = Ti.createBuffer({ value: "xxabcxx" });
+		valueOf(decoder.decode(buffer, 2, 3)).shouldBe("abc");
+		valueOf(decoder.decode(buffer, 5)).shouldBe("xx");
+		valueOf(function() { decoder.decode(buffer, 5, 3); }).shouldThrowException();
+		valueOf(function() { decoder.decode(buffer, -1, 2); }).shouldThrowException();
+	},
+
+	testDecodeLines: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		// Lines are returned as they complete, CRLF is handled and the tail is kept for end()
+		var decoder = Ti.Codec.createStringDecoder();
+		var lines = decoder.decodeLines(Ti.createBuffer({ value: "one\r\ntw" }));
+		valueOf(JSON.stringify(lines)).shouldBe(JSON.stringify(["one"]));
+		lines = decoder.decodeLines(Ti.createBuffer({ value: "o\nthree" }));
+		valueOf(JSON.stringify(lines)).shouldBe(JSON.stringify(["two"]));
+		valueOf(decoder.end()).shouldBe("three");
+
+		// A CRLF split across chunks still ends the line once, without the carriage return
+		lines = decoder.decodeLines(Ti.createBuffer({ value: "a\r" }));
+		valueOf(lines.length).shouldBe(0);
+		lines = decoder.decodeLines(Ti.createBuffer({ value: "\n\nb\n" }));
+		valueOf(JSON.stringify(lines)).shouldBe(JSON.stringify(["a", "", "b"]));
+		valueOf(decoder.end()).shouldBe("");
+
+		// A line ending in a character split across chunks
+		lines = decoder.decodeLines(this.bytesOf([0x78, 0xc3]));
+		valueOf(lines.length).shouldBe(0);
+		lines = decoder.decodeLines(this.bytesOf([0xa4, 0x0a]));
+		valueOf(JSON.stringify(lines)).shouldBe(JSON.stringify(["x\u00e4"]));
+	},
+
+	testEndAndReset: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		// An incomplete character at the end becomes a replacement character, reset drops it instead
+		var decoder = Ti.Codec.createStringDecoder();
+		valueOf(decoder.decode(this.bytesOf([0x73, 0xc3]))).shouldBe("s");
+		valueOf(decoder.end()).shouldBe("\ufffd");
+
+		decoder.decode(this.bytesOf([0x73, 0xc3]));
+		decoder.reset();
+		valueOf(decoder.decode(this.bytesOf([0xa4, 0x74]))).shouldBe("\ufffdt");
+
+		// reset also drops a partial line
+		decoder.decodeLines(Ti.createBuffer({ value: "partial" }));
+		decoder.reset();
+		valueOf(decoder.end()).shouldBe("");
+	},
+
+	testCharset: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		// UTF-16 without a byte order mark is big endian, split "ab" inside the second character
+		var decoder = Ti.Codec.createStringDecoder({ charset: Ti.Codec.CHARSET_UTF16 });
+		valueOf(decoder.decode(this.bytesOf([0x00, 0x61, 0x00]))).shouldBe("a");
+		valueOf(decoder.decode(this.bytesOf([0x62]))).shouldBe("b");
+
+		decoder = Ti.Codec.createStringDecoder({ charset: Ti.Codec.CHARSET_ISO_LATIN_1 });
+		valueOf(decoder.decode(this.bytesOf([0xe4]))).shouldBe("\u00e4");
+	}
+});
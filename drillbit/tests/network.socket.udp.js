@@ -0,0 +1,71 @@
+describe("Ti.Network.Socket.UDP tests", {
+	testAPI: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var socket = Ti.Network.Socket.createUDP();
+		valueOf(socket).shouldBeObject();
+
+		var functions = ['start','sendTo','recycle','joinGroup','leaveGroup','getStats','close'];
+
+		for (var i=0; i < functions.length; i++) {
+			valueOf(socket[functions[i]]).shouldBeFunction();
+		}
+		valueOf(socket.localPort).shouldBe(0);
+	},
+
+	testSendReceive: asyncTest({
+		start: function(callback) {
+			if (Ti.Platform.osname !== 'android') {
+				callback.passed();
+				return;
+			}
+			var receiver = Ti.Network.Socket.createUDP({
+				port:40407
+			});
+			var sender = Ti.Network.Socket.createUDP();
+			var messages = ["hello", "world!"];
+			var received = 0;
+
+			receiver.received = function (e) {
+				try {
+					valueOf(e.bytesProcessed).shouldBe(messages[received].length);
+					valueOf(e.buffer.length).shouldBe(messages[received].length);
+					valueOf(e.buffer.toString()).shouldBe(messages[received]);
+					valueOf(e.address).shouldBe('127.0.0.1');
+					valueOf(e.port).shouldBe(sender.localPort);
+					// The next datagram is received into this buffer
+					receiver.recycle(e.buffer);
+					received++;
+
+					if (received < messages.length) {
+						valueOf(sender.sendTo(Ti.createBuffer({ value: messages[received] }), '127.0.0.1', 40407)).shouldBeTrue();
+						return;
+					}
+
+					var receiverStats = receiver.getStats();
+					valueOf(receiverStats.packetsReceived).shouldBe(2);
+					valueOf(receiverStats.bytesReceived).shouldBe(11);
+					var senderStats = sender.getStats();
+					valueOf(senderStats.packetsSent).shouldBe(2);
+					valueOf(senderStats.bytesSent).shouldBe(11);
+					valueOf(senderStats.packetsDropped).shouldBe(0);
+
+					valueOf(function() { receiver.close(); }).shouldNotThrowException();
+					valueOf(function() { sender.close(); }).shouldNotThrowException();
+					callback.passed();
+				} catch (err) {
+					callback.failed(err);
+				}
+			};
+
+			valueOf(function() { receiver.start(); }).shouldNotThrowException();
+			valueOf(receiver.localPort).shouldBe(40407);
+			valueOf(function() { sender.start(); }).shouldNotThrowException();
+			valueOf(sender.localPort).shouldBeGreaterThan(0);
+			valueOf(sender.sendTo(Ti.createBuffer({ value: messages[0] }), '127.0.0.1', 40407)).shouldBeTrue();
+		},
+		timeout: 10000,
+		timeoutError: "Timed out waiting for datagrams"
+	})
+});
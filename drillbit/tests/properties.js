@@ -99,6 +99,57 @@ describe("Ti.Properties tests", {
 
 		var value = Ti.App.Properties.getDouble('time');
 		valueOf(value).shouldBe(time);
-	}
+	},
+
+	setPropertiesRoundTrip: asyncTest({
+		start: function(callback) {
+			if (Ti.Platform.osname !== 'android') {
+				callback.passed();
+				return;
+			}
+			var changes = 0;
+			var listener = function(e) {
+				changes++;
+			};
+			var properties = {
+				bulkInt: 5,
+				bulkDouble: 2.5,
+				bulkBool: true,
+				bulkString: 'bulk',
+				'bulkKey.list': 'not a list',
+				bulkRemoved: null
+			};
+			Ti.App.Properties.setString('bulkRemoved', 'remove me');
+			Ti.App.Properties.addEventListener('change', listener);
+
+			Ti.App.Properties.setProperties(properties);
+			valueOf(Ti.App.Properties.getInt('bulkInt')).shouldBe(5);
+			valueOf(Ti.App.Properties.getString('bulkInt')).shouldBe('5');
+			valueOf(Ti.App.Properties.getDouble('bulkDouble')).shouldBe(2.5);
+			valueOf(Ti.App.Properties.getBool('bulkBool')).shouldBe(true);
+			valueOf(Ti.App.Properties.getString('bulkString')).shouldBe('bulk');
+			valueOf(Ti.App.Properties.getString('bulkKey.list')).shouldBe('not a list');
+			valueOf(Ti.App.Properties.hasProperty('bulkRemoved')).shouldBeFalse();
+
+			var proplist = Ti.App.Properties.listProperties();
+			valueOf(proplist.indexOf('bulkKey.list')).shouldBeGreaterThan(-1);
+			valueOf(proplist.indexOf('bulkKey')).shouldBe(-1);
+
+			// Setting the same values again is not a change.
+			Ti.App.Properties.setProperties(properties);
+
+			setTimeout(function() {
+				try {
+					Ti.App.Properties.removeEventListener('change', listener);
+					valueOf(changes).shouldBe(1);
+					callback.passed();
+				} catch (e) {
+					callback.failed(e);
+				}
+			}, 1000);
+		},
+		timeout: 5000,
+		timeoutError: "Timed out waiting for property change events"
+	})
 });
 
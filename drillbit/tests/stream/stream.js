@@ -16,6 +16,41 @@ describe("Ti.Stream tests", {
 		this.sourceBlob = Titanium.Filesystem.getFile(Ti.Filesystem.applicationDataDirectory, 'streamfile.txt').read();
 		this.sourceBlobStr = this.sourceBlob.toString();
 		this.streamFuncs = ['read', 'write', 'isReadable', 'isWritable'];
+
+		// Builds a buffer from strings and arrays of byte values
+		this.bufferOf = function() {
+			var buffer = Ti.createBuffer();
+			for (var i = 0; i < arguments.length; i++) {
+				var part = arguments[i];
+				if (typeof part === "string") {
+					buffer.append(Ti.createBuffer({ value: part }));
+				} else {
+					var bytes = Ti.createBuffer({ length: part.length });
+					for (var j = 0; j < part.length; j++) {
+						bytes[j] = part[j];
+					}
+					buffer.append(bytes);
+				}
+			}
+			return buffer;
+		};
+
+		// Runs a synchronous pumpFrames over buffer and collects the frames as strings
+		this.pumpFrameStrings = function(buffer, options) {
+			var result = { frames: [], rest: null, error: 0, errorDescription: "" };
+			var stream = Ti.Stream.createStream({ source: buffer, mode: Ti.Stream.MODE_READ });
+			Ti.Stream.pumpFrames(stream, function(e) {
+				if (e.errorState) {
+					result.error = e.errorState;
+					result.errorDescription = e.errorDescription;
+				} else if (e.bytesProcessed == -1) {
+					result.rest = e.buffer.toString();
+				} else {
+					result.frames.push(e.buffer.toString());
+				}
+			}, options);
+			return result;
+		};
 	},
 
 	basicBufferStream: function() {
@@ -386,4 +421,111 @@ describe("Ti.Stream tests", {
 		timeout: 10000,
 		timeoutError: "Timed out waiting for pump"
 	}),
-});
\ No newline at end of file
+
+	pumpFramesFixed: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var bufferOf = this.bufferOf;
+		var pumpFrameStrings = this.pumpFrameStrings;
+		var result = pumpFrameStrings(bufferOf("abcdefgh"), {
+			framing: Ti.Stream.FRAMING_FIXED,
+			frameLength: 3,
+			chunkSize: 2
+		});
+		valueOf(result.error).shouldBe(0);
+		valueOf(JSON.stringify(result.frames)).shouldBe(JSON.stringify(["abc", "def"]));
+		valueOf(result.rest).shouldBe("gh");
+	},
+
+	pumpFramesLengthPrefixed: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var bufferOf = this.bufferOf;
+		var pumpFrameStrings = this.pumpFrameStrings;
+		// 1 byte lengths, read a byte at a time so every frame is split across reads
+		var result = pumpFrameStrings(bufferOf([3], "abc", [0], [2], "de"), {
+			framing: Ti.Stream.FRAMING_LENGTH_PREFIXED,
+			lengthSize: 1,
+			chunkSize: 1
+		});
+		valueOf(result.error).shouldBe(0);
+		valueOf(JSON.stringify(result.frames)).shouldBe(JSON.stringify(["abc", "", "de"]));
+		valueOf(result.rest).shouldBe("");
+
+		// 2 byte lengths default to big endian
+		result = pumpFrameStrings(bufferOf([0, 3], "abc", [0, 2], "de", [0, 5], "fg"), {
+			framing: Ti.Stream.FRAMING_LENGTH_PREFIXED,
+			lengthSize: 2,
+			chunkSize: 4
+		});
+		valueOf(result.error).shouldBe(0);
+		valueOf(JSON.stringify(result.frames)).shouldBe(JSON.stringify(["abc", "de"]));
+		// The incomplete frame is handed over with its prefix
+		valueOf(result.rest.length).shouldBe(4);
+
+		// 4 byte lengths in little endian
+		result = pumpFrameStrings(bufferOf([4, 0, 0, 0], "abcd", [1, 0, 0, 0], "e"), {
+			framing: Ti.Stream.FRAMING_LENGTH_PREFIXED,
+			lengthSize: 4,
+			byteOrder: Ti.Codec.LITTLE_ENDIAN,
+			chunkSize: 3
+		});
+		valueOf(result.error).shouldBe(0);
+		valueOf(JSON.stringify(result.frames)).shouldBe(JSON.stringify(["abcd", "e"]));
+
+		valueOf(function() {
+			pumpFrameStrings(bufferOf("abc"), { framing: Ti.Stream.FRAMING_LENGTH_PREFIXED, lengthSize: 3 });
+		}).shouldThrowException();
+	},
+
+	pumpFramesDelimiter: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var bufferOf = this.bufferOf;
+		var pumpFrameStrings = this.pumpFrameStrings;
+		// The delimiter itself is split across reads
+		var result = pumpFrameStrings(bufferOf("one\r\ntwo\r\n\r\nthree"), {
+			framing: Ti.Stream.FRAMING_DELIMITER,
+			delimiter: "\r\n",
+			chunkSize: 3
+		});
+		valueOf(result.error).shouldBe(0);
+		valueOf(JSON.stringify(result.frames)).shouldBe(JSON.stringify(["one", "two", ""]));
+		valueOf(result.rest).shouldBe("three");
+
+		// Line feed is the default delimiter
+		result = pumpFrameStrings(bufferOf("a\nbc\n"), {});
+		valueOf(JSON.stringify(result.frames)).shouldBe(JSON.stringify(["a", "bc"]));
+		valueOf(result.rest).shouldBe("");
+	},
+
+	pumpFramesMaxFrameSize: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var bufferOf = this.bufferOf;
+		var pumpFrameStrings = this.pumpFrameStrings;
+		var result = pumpFrameStrings(bufferOf([2], "ab", [10], "abcdefghij"), {
+			framing: Ti.Stream.FRAMING_LENGTH_PREFIXED,
+			lengthSize: 1,
+			maxFrameSize: 4
+		});
+		valueOf(JSON.stringify(result.frames)).shouldBe(JSON.stringify(["ab"]));
+		valueOf(result.error).shouldBe(1);
+		valueOf(result.errorDescription).shouldContain("maximum frame size");
+
+		result = pumpFrameStrings(bufferOf("ab\nabcdefgh\n"), {
+			maxFrameSize: 4,
+			chunkSize: 2
+		});
+		valueOf(JSON.stringify(result.frames)).shouldBe(JSON.stringify(["ab"]));
+		valueOf(result.error).shouldBe(1);
+
+		valueOf(function() {
+			pumpFrameStrings(bufferOf("abc"), { framing: Ti.Stream.FRAMING_FIXED, frameLength: 8, maxFrameSize: 4 });
+		}).shouldThrowException();
+	}
+});
@@ -962,6 +962,46 @@ describe("Ti.UI Layout tests", {
 		valueOf(Ti.UI.convertUnits('abc', Ti.UI.UNIT_PX)).shouldBe(0);
 		
 	},
+	// Dimension strings are parsed by a scanner that must accept exactly what the original pattern
+	// did, on the trimmed string. Each string is converted twice, the second time comes from the cache.
+	dimensionStrings: function() {
+		if (Ti.Platform.osname !== 'android') {
+			return;
+		}
+		var dpi = Ti.Platform.displayCaps.dpi;
+		var pattern = /^(-?[0-9]*\.?[0-9]+)\s*(system|px|dp|dip|sp|sip|mm|cm|pt|in|%)?$/;
+		var corpus = ['10', '-5', '10px', '10 px', ' 10px ', '10\tpx', '10 dp', '10dip', '\n10dp\n',
+			'5.', '.5in', '-.5in', '-0.5in', '1.5.2', '--5', '-', '.', '', ' ', '1 0px', '10 d p',
+			'10zz', '10DP', 'px', '10px10', '3sp', '3sip', '2 mm', '1cm', '72pt', '7 system', '1in',
+			'auto', ' auto ', 'AUTO', 'auto10', '0', '-0', '007px', '1e3px'];
+
+		for (var i = 0; i < corpus.length; i++) {
+			var dimension = corpus[i];
+			var trimmed = dimension.replace(/^\s+|\s+$/g, '');
+			var match = pattern.exec(trimmed);
+			var expected;
+			if (match) {
+				// The same value and unit written without any spacing
+				expected = Ti.UI.convertUnits(match[1] + (match[2] || ''), Ti.UI.UNIT_PX);
+			} else if (trimmed === 'auto') {
+				expected = Ti.UI.convertUnits('auto', Ti.UI.UNIT_PX);
+			} else {
+				expected = 0;
+			}
+			var first = Ti.UI.convertUnits(dimension, Ti.UI.UNIT_PX);
+			var second = Ti.UI.convertUnits(dimension, Ti.UI.UNIT_PX);
+			valueOf(first).shouldBe(expected);
+			valueOf(second).shouldBe(first);
+		}
+
+		valueOf(Ti.UI.convertUnits(' 10 px ', Ti.UI.UNIT_PX)).shouldBe(10);
+		valueOf(Ti.UI.convertUnits('-5px', Ti.UI.UNIT_PX)).shouldBe(-5);
+		valueOf(Ti.UI.convertUnits('5.', Ti.UI.UNIT_PX)).shouldBe(0);
+		valueOf(Ti.UI.convertUnits('10zz', Ti.UI.UNIT_PX)).shouldBe(0);
+		valueOf(Ti.UI.convertUnits('10 dp', Ti.UI.UNIT_PX)).shouldBe(Ti.UI.convertUnits('10dip', Ti.UI.UNIT_PX));
+		valueOf(Math.abs(Ti.UI.convertUnits('.5in', Ti.UI.UNIT_PX) - dpi / 2)).shouldBeLessThanEqual(1);
+		valueOf(Math.abs(Ti.UI.convertUnits('-.5in', Ti.UI.UNIT_PX) + dpi / 2)).shouldBeLessThanEqual(1);
+	},
 	fourPins: asyncTest(function() {
 		var win = Ti.UI.createWindow({
 			width: 100, height: 100
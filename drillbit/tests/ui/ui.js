@@ -471,5 +471,375 @@ describe("Ti.UI tests", {
 		valueOf(view.children).shouldNotBeUndefined();
 		valueOf(view.children).shouldBeObject();
 		valueOf(view.children).shouldBe(0);
+	},
+
+	// Short hex, argb and rgb()/rgba() strings must keep resolving to the same colors
+	// as their long hex equivalents, and malformed ones must still fall back to yellow.
+	colorStrings_as_async: function(callback) {
+		if (Ti.Platform.osname !== 'android') {
+			callback.passed();
+			return;
+		}
+		var pairs = [
+			['#f80', '#ff8800'],
+			['#8f80', '#88ff8800'],
+			[' #F80 ', '#ff8800'],
+			['rgb(255,136,0)', '#ff8800'],
+			['rgba(255,136,0,128)', '#80ff8800'],
+			// Components over 255 are passed through to Color.rgb/argb unclamped
+			['rgb(300,0,0)', '#ff2c0000'],
+			['rgba(0,0,0,300)', '#2c000000'],
+			// Four digit components, unparseable forms and bad hex fall back to yellow
+			['rgb(1000,0,0)', 'yellow'],
+			['rgb(0255,0,0)', 'yellow'],
+			['RGB(255, 136, 0)', 'yellow'],
+			['rgb(255,136,0', 'yellow'],
+			['#12', 'yellow']
+		];
+		var w = Ti.UI.createWindow();
+		var views = [];
+		function addView(color) {
+			var view = Ti.UI.createView({top: 0, left: views.length * 12, width: 10, height: 10, backgroundColor: color});
+			views.push(view);
+			w.add(view);
+			return view;
+		}
+		var control = [addView('#ff8800'), addView('yellow')];
+		for (var i = 0; i < pairs.length; i++) {
+			pairs[i].push(addView(pairs[i][0]), addView(pairs[i][1]));
+		}
+		function digest(view) {
+			return Ti.Utils.md5HexDigest(view.toImage().media);
+		}
+		w.addEventListener('open', function() {
+			setTimeout(function() {
+				try {
+					// Different colors have to render differently or the comparisons below prove nothing
+					if (digest(control[0]) === digest(control[1])) {
+						throw new Error("'#ff8800' and 'yellow' rendered identically");
+					}
+					for (var i = 0; i < pairs.length; i++) {
+						if (digest(pairs[i][2]) !== digest(pairs[i][3])) {
+							throw new Error("'" + pairs[i][0] + "' did not render as '" + pairs[i][1] + "'");
+						}
+					}
+					w.close();
+					callback.passed();
+				} catch (e) {
+					w.close();
+					callback.failed(e);
+				}
+			}, 500);
+		});
+		w.open();
+	},
+
+	// Row inserts, deletes and updates patch the table's model in place. Click data and what is drawn
+	// have to match a full rebuild of the same data after each of them.
+	tableRowMutations_as_async: function(callback) {
+		if (Ti.Platform.osname !== 'android') {
+			callback.passed();
+			return;
+		}
+		var clicks = {};
+		var labels = {};
+		function row(title) {
+			var r = Ti.UI.createTableViewRow({title: title, height: 20});
+			// An event fired on a child with bubbles set reaches the row's native fireEvent, which fills
+			// in the click data from the row's model item
+			var label = Ti.UI.createLabel({text: title, right: 0, width: 40, height: 20});
+			r.add(label);
+			labels[title] = label;
+			r.addEventListener('click', function(e) {
+				clicks[title] = e;
+			});
+			return r;
+		}
+		function section(tag, options, titles) {
+			options.tag = tag;
+			var s = Ti.UI.createTableViewSection(options);
+			for (var i = 0; i < titles.length; i++) {
+				s.add(row(titles[i]));
+			}
+			return s;
+		}
+
+		var tv = Ti.UI.createTableView({data: [
+			section('A', {headerTitle: 'A', footerTitle: 'A end'}, ['a0', 'a1']),
+			section('B', {headerTitle: 'B', headerView: Ti.UI.createView({height: 20, backgroundColor: 'blue'})}, ['b0', 'b1']),
+			section('C', {footerTitle: 'C end'}, ['c0', 'c1'])
+		]});
+		var w = Ti.UI.createWindow();
+		w.add(tv);
+
+		var steps = [
+			['appendRow', function() { tv.appendRow(row('c2')); }],
+			['insertRowBefore the first row', function() { tv.insertRowBefore(0, row('a-1')); }],
+			['insertRowAfter the end of a section', function() { tv.insertRowAfter(2, row('a2')); }],
+			['deleteRow in the middle section', function() { tv.deleteRow(5); }],
+			['updateRow in the last section', function() { tv.updateRow(5, row('c0x')); }],
+			['insertRowBefore the start of a section', function() { tv.insertRowBefore(4, row('b-1')); }],
+			['deleteRow of the first row', function() { tv.deleteRow(0); }]
+		];
+
+		function fail(message) {
+			w.close();
+			callback.failed(message);
+		}
+
+		// Clicks every row and calls done with a description of the first click whose data doesn't
+		// match the row's place in tv.data, or with null
+		function checkClicks(step, done) {
+			var sections = tv.data;
+			var expected = [];
+			var index = 0;
+			clicks = {};
+			try {
+				for (var i = 0; i < sections.length; i++) {
+					var rows = sections[i].rows;
+					for (var j = 0; j < rows.length; j++) {
+						expected.push({title: rows[j].title, index: index++, section: sections[i].tag});
+						labels[rows[j].title].fireEvent('click', {bubbles: true});
+					}
+				}
+			} catch (e) {
+				done(step + ": " + e);
+				return;
+			}
+			setTimeout(function() {
+				for (var k = 0; k < expected.length; k++) {
+					var e = clicks[expected[k].title];
+					if (!e) {
+						done(step + ": no click from " + expected[k].title);
+						return;
+					}
+					if (e.index !== expected[k].index || !e.section || e.section.tag !== expected[k].section
+						|| !e.row || e.row.title !== expected[k].title) {
+						done(step + ": " + expected[k].title + " clicked with index " + e.index + " in section "
+							+ (e.section && e.section.tag) + ", expected " + expected[k].index + " in section "
+							+ expected[k].section);
+						return;
+					}
+				}
+				done(null);
+			}, 500);
+		}
+
+		function finish() {
+			// Rebuild the model from scratch, it has to draw the same and give the same click data
+			var patched = Ti.Utils.md5HexDigest(tv.toImage().media);
+			tv.setData(tv.data);
+			setTimeout(function() {
+				if (Ti.Utils.md5HexDigest(tv.toImage().media) !== patched) {
+					fail("The patched table draws differently from a rebuilt one");
+					return;
+				}
+				checkClicks('rebuild', function(error) {
+					if (error) {
+						fail(error);
+						return;
+					}
+					w.close();
+					callback.passed();
+				});
+			}, 500);
+		}
+
+		function runStep(n) {
+			if (n == steps.length) {
+				finish();
+				return;
+			}
+			try {
+				steps[n][1]();
+			} catch (e) {
+				fail(steps[n][0] + ": " + e);
+				return;
+			}
+			setTimeout(function() {
+				checkClicks(steps[n][0], function(error) {
+					if (error) {
+						fail(error);
+					} else {
+						runStep(n + 1);
+					}
+				});
+			}, 500);
+		}
+
+		w.addEventListener('open', function() {
+			setTimeout(function() {
+				checkClicks('initial data', function(error) {
+					if (error) {
+						fail(error);
+					} else {
+						runStep(0);
+					}
+				});
+			}, 500);
+		});
+		w.open();
+	},
+
+	// Searching narrows the rows already matched when the query gets longer, and has to search every row
+	// again when the query is shortened or replaced, or when the filter attribute or case sensitivity
+	// changes. Each step is checked by drawing the table next to one holding only the expected rows.
+	tableFilter_as_async: function(callback) {
+		if (Ti.Platform.osname !== 'android') {
+			callback.passed();
+			return;
+		}
+		var specs = [
+			{title: 'apple', name: 'red'},
+			{title: 'Apricot', name: 'orange'},
+			{title: 'banana', name: 'yellow'},
+			{title: 'grape', name: 'purple'},
+			{title: 'pineapple', name: 'yellow'},
+			// Has neither attribute, so it is never filtered out
+			{label: 'untitled'}
+		];
+		var steps = [
+			['first query', function() { sb.value = 'ap'; }, ['apple', 'Apricot', 'grape', 'pineapple', 'untitled']],
+			['narrowed query', function() { sb.value = 'app'; }, ['apple', 'pineapple', 'untitled']],
+			['shortened query', function() { sb.value = 'ap'; }, ['apple', 'Apricot', 'grape', 'pineapple', 'untitled']],
+			['replaced query', function() { sb.value = 'an'; }, ['banana', 'untitled']],
+			['query before a case change', function() { sb.value = 'Ap'; }, ['apple', 'Apricot', 'grape', 'pineapple', 'untitled']],
+			['case sensitive', function() { tv.filterCaseInsensitive = false; }, ['Apricot', 'untitled']],
+			['narrowed case sensitive query', function() { sb.value = 'Apr'; }, ['Apricot', 'untitled']],
+			['case insensitive again', function() { tv.filterCaseInsensitive = true; sb.value = 'e'; },
+				['apple', 'grape', 'pineapple', 'untitled']],
+			['query with no title match', function() { sb.value = 'yel'; }, ['untitled']],
+			['filter attribute changed', function() { tv.filterAttribute = 'name'; }, ['banana', 'pineapple', 'untitled']],
+			['narrowed query on the new attribute', function() { sb.value = 'yell'; }, ['banana', 'pineapple', 'untitled']],
+			['cleared query', function() { sb.value = ''; }, ['apple', 'Apricot', 'banana', 'grape', 'pineapple', 'untitled']]
+		];
+
+		function createRow(spec) {
+			var row = Ti.UI.createTableViewRow({height: 30});
+			if (spec.title) {
+				row.title = spec.title;
+				row.name = spec.name;
+			} else {
+				row.add(Ti.UI.createLabel({text: spec.label, left: 0, height: 30}));
+			}
+			return row;
+		}
+		function rowsFor(labels) {
+			var rows = [];
+			for (var i = 0; i < specs.length; i++) {
+				if (labels.indexOf(specs[i].title || specs[i].label) != -1) {
+					rows.push(createRow(specs[i]));
+				}
+			}
+			return rows;
+		}
+
+		var w = Ti.UI.createWindow();
+		var sb = Ti.UI.createSearchBar();
+		var allLabels = ['apple', 'Apricot', 'banana', 'grape', 'pineapple', 'untitled'];
+		var tv = Ti.UI.createTableView({top: 0, left: 0, width: 150, height: 200, search: sb, searchAsChild: false,
+			data: rowsFor(allLabels)});
+		w.add(tv);
+
+		function fail(message) {
+			w.close();
+			callback.failed(message);
+		}
+
+		function runStep(n) {
+			if (n == steps.length) {
+				w.close();
+				callback.passed();
+				return;
+			}
+			steps[n][1]();
+			var reference = Ti.UI.createTableView({top: 0, left: 160, width: 150, height: 200, data: rowsFor(steps[n][2])});
+			w.add(reference);
+			setTimeout(function() {
+				var actual = Ti.Utils.md5HexDigest(tv.toImage().media);
+				var expected = Ti.Utils.md5HexDigest(reference.toImage().media);
+				w.remove(reference);
+				if (actual !== expected) {
+					fail(steps[n][0] + ": expected only " + steps[n][2].join(", ") + " to be shown");
+					return;
+				}
+				runStep(n + 1);
+			}, 500);
+		}
+
+		w.addEventListener('open', function() {
+			setTimeout(function() {
+				runStep(0);
+			}, 500);
+		});
+		w.open();
+	},
+
+	// With filterAsync, searches of 500 or more rows finish in the background. A result that arrives after
+	// the query changed again has to be dropped.
+	tableFilterAsync_as_async: function(callback) {
+		if (Ti.Platform.osname !== 'android') {
+			callback.passed();
+			return;
+		}
+		function createRows(titles) {
+			var rows = [];
+			for (var i = 0; i < titles.length; i++) {
+				rows.push(Ti.UI.createTableViewRow({title: titles[i], height: 30}));
+			}
+			return rows;
+		}
+		function titlesMatching(query) {
+			var titles = [];
+			for (var i = 0; i < 600; i++) {
+				if (('row ' + i).indexOf(query) != -1) {
+					titles.push('row ' + i);
+				}
+			}
+			return titles;
+		}
+
+		var w = Ti.UI.createWindow();
+		var sb = Ti.UI.createSearchBar();
+		var tv = Ti.UI.createTableView({top: 0, left: 0, width: 150, height: 200, search: sb, searchAsChild: false,
+			filterAsync: true, data: createRows(titlesMatching(''))});
+		w.add(tv);
+
+		var steps = [
+			// The second query replaces the first before its background search can finish
+			['replaced while searching', function() { sb.value = 'row 1'; sb.value = 'row 2'; }, 'row 2'],
+			['narrowed', function() { sb.value = 'row 25'; }, 'row 25'],
+			['shortened', function() { sb.value = 'row'; }, 'row']
+		];
+
+		function runStep(n) {
+			if (n == steps.length) {
+				w.close();
+				callback.passed();
+				return;
+			}
+			steps[n][1]();
+			var reference = Ti.UI.createTableView({top: 0, left: 160, width: 150, height: 200,
+				data: createRows(titlesMatching(steps[n][2]))});
+			w.add(reference);
+			setTimeout(function() {
+				var actual = Ti.Utils.md5HexDigest(tv.toImage().media);
+				var expected = Ti.Utils.md5HexDigest(reference.toImage().media);
+				w.remove(reference);
+				if (actual !== expected) {
+					w.close();
+					callback.failed(steps[n][0] + ": expected the rows matching '" + steps[n][2] + "'");
+					return;
+				}
+				runStep(n + 1);
+			}, 1500);
+		}
+
+		w.addEventListener('open', function() {
+			setTimeout(function() {
+				runStep(0);
+			}, 500);
+		});
+		w.open();
 	}
 });
@@ -44,6 +44,25 @@ describe("Ti.Utils tests", {
 		var contents = f.read();
 		valueOf(Ti.Utils.md5HexDigest(contents)).shouldBe('86bd3c0247976528f3b7559d38cfb405');
     },
+    // Blobs of files on disk are digested through a memory mapping, in-memory blobs in place
+    digestFileAndMemoryBlobs: function() {
+		var resource = Titanium.Filesystem.getFile(Titanium.Filesystem.resourcesDirectory, 'decodedFile.txt');
+		var copy = Titanium.Filesystem.getFile(Titanium.Filesystem.applicationDataDirectory, 'digestCopy.txt');
+		copy.write(resource.read());
+		var blob = copy.read();
+		valueOf(Ti.Utils.md5HexDigest(blob)).shouldBe('86bd3c0247976528f3b7559d38cfb405');
+		valueOf(Ti.Utils.sha1(blob)).shouldBe('ddbb50fb5beea93d1d4913fc22355c84f22d43ed');
+		valueOf(Ti.Utils.sha256(blob)).shouldBe('9f81cd4f510080f1da92386b391cf2539b21f6363df491b89787e50fbc33b2c3');
+		copy.deleteFile();
+
+		var empty = Titanium.Filesystem.getFile(Titanium.Filesystem.applicationDataDirectory, 'digestEmpty.txt');
+		empty.write('');
+		valueOf(Ti.Utils.md5HexDigest(empty.read())).shouldBe('d41d8cd98f00b204e9800998ecf8427e');
+		empty.deleteFile();
+
+		var memory = Ti.createBuffer({ value: "Hello, world!" }).toBlob();
+		valueOf(Ti.Utils.md5HexDigest(memory)).shouldBe('6cd3556deb0da54bca060b4c39479839');
+    },
     nullArrayTest: function() {
 		if (Ti.Platform.osname === 'android') {
 			valueOf(Ti.Utils.arrayTest(null,null,null,null)).shouldBeTrue();
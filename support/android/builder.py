@@ -908,6 +908,7 @@ class Builder(object):
 		VIBRATE_PERMISSION = ['VIBRATE']
 		CAMERA_PERMISSION = ['CAMERA']
 		WALLPAPER_PERMISSION = ['SET_WALLPAPER']
+		MULTICAST_PERMISSION = ['CHANGE_WIFI_MULTICAST_STATE']
 
 		# Enable mock location if in development or test mode.
 		if self.deploy_type == 'development' or self.deploy_type == 'test':
@@ -947,6 +948,9 @@ class Builder(object):
 
 			# WALLPAPER
 			'Media.Android.setSystemWallpaper' : WALLPAPER_PERMISSION,
+
+			# UDP sockets can join multicast groups
+			'Network.Socket.createUDP' : MULTICAST_PERMISSION,
 		}
 		
 		VIDEO_ACTIVITY = """<activity